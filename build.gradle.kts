@@ -1,5 +1,6 @@
 plugins {
     id("java")
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "org.example"
@@ -22,4 +23,13 @@ dependencies {
 
 tasks.test {
     useJUnitPlatform()
+}
+
+// 성능 측정 (./gradlew jmh, 벤치마크 소스는 src/jmh/java)
+// 조각은 벤치마크가 임시 폴더에 합성해서 쓰므로 녹화 파일 없이도 실행된다
+jmh {
+    jmhVersion.set("1.37")
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    includes.addAll(providers.gradleProperty("jmhInclude").map { listOf(it) }.orElse(emptyList()))
 }
\ No newline at end of file
@@ -0,0 +1,78 @@
+package org.dk;
+
+import org.dk.merge.MergedRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * makeGroupFile 처리량 (이번 실행에서 생성한 큰 결과 레코드 여러 개를 하나의 그룹으로 기록)
+ * 그룹 파일은 src/result/groups/ 아래에 쓰이고 측정이 끝나면 삭제된다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GroupBenchmark {
+
+    private static final String GROUP_NAME = "jmh_group_benchmark";
+
+    @Param({"10", "40"})
+    public int records;
+
+    @Param({"1000", "10000"})
+    public int eventsPerRecord;
+
+    private final PrintStream out = new PrintStream(OutputStream.nullOutputStream());
+    private final Map<String, MergedRecord> builtRecords = new HashMap<>();
+    private String[] resultNames;
+    private Path dir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("group-bench");
+        List<String> inputFiles = SyntheticFragments.write(dir.resolve("macro"), 10, eventsPerRecord / 10);
+
+        resultNames = new String[records];
+        for (int i = 0; i < records; i++) {
+            resultNames[i] = "result_" + i;
+            String outputFile = dir.resolve(resultNames[i] + ".json").toString();
+            JsonMergerMultiple.MergeResult result = JsonMergerMultiple.mergeJsonFiles(inputFiles, outputFile, resultNames[i], "1", out);
+            builtRecords.put(resultNames[i], result.record);
+        }
+    }
+
+    @Benchmark
+    public void makeGroupFile() throws IOException {
+        JsonMergerMultiple.makeGroupFile(GROUP_NAME, new String[0], resultNames, builtRecords, out);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        new File("src/result/groups/" + GROUP_NAME + ".json").delete();
+        SyntheticFragments.delete(dir);
+    }
+}
@@ -0,0 +1,61 @@
+package org.dk;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * mergeJsonFiles 처리량 (조각 캐시가 채워진 상태, 결과는 임시 폴더에 기록)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MergeBenchmark {
+
+    @Param({"short", "medium", "large"})
+    public String size;
+
+    private final PrintStream out = new PrintStream(OutputStream.nullOutputStream());
+    private Path dir;
+    private List<String> inputFiles;
+    private String outputFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("merge-bench");
+        int[] shape = SyntheticFragments.shape(size);
+        inputFiles = SyntheticFragments.write(dir.resolve("macro"), shape[0], shape[1]);
+        outputFile = dir.resolve("merged.json").toString();
+    }
+
+    @Benchmark
+    public Object mergeJsonFiles() throws IOException {
+        return JsonMergerMultiple.mergeJsonFiles(inputFiles, outputFile, "bench", "1", out);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        SyntheticFragments.delete(dir);
+    }
+}
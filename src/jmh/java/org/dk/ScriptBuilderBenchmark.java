@@ -0,0 +1,97 @@
+package org.dk;
+
+import org.dk.script.Config;
+import org.dk.script.ScriptBuilder;
+import org.dk.script.ScriptPlan;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ScriptBuilder.make* 팩토리별 스크립트 계획 생성 처리량
+ * 설정은 macro-definitions.json의 대표 정의와 같은 값을 사용한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScriptBuilderBenchmark {
+
+    @Param({"mainCharacter", "yoonmainCharacter", "subCharacter", "yoonsubCharacter", "scheduleOnly",
+        "scheduleOnly_pass", "weekendAll", "weekendNightmare", "weekendHunt", "oman"})
+    public String type;
+
+    private Config config;
+
+    @Setup
+    public void setUp() {
+        Config.Builder builder = Config.builder()
+            .character("1번")
+            .sidunEvent("noevent")
+            .eventDungeon("nospecialdugeon");
+
+        switch (type) {
+            case "mainCharacter":
+                builder.mainCharRepeat(13).scheduleTime("00h");
+                break;
+            case "yoonmainCharacter":
+                builder.mainCharRepeat(9).scheduleTime("00m");
+                break;
+            case "subCharacter":
+            case "yoonsubCharacter":
+                builder.group("A").scheduleTime("01h");
+                break;
+            case "scheduleOnly":
+            case "scheduleOnly_pass":
+                builder.mainCharRepeat(13).scheduleTime("01h").scheduleOnly(true);
+                break;
+            case "weekendAll":
+                builder.isSubCharacter(0).waitTime("wait_hour_2").potionEvent(false);
+                break;
+            case "weekendNightmare":
+                builder.mainCharRepeat(5);
+                break;
+            default:
+                break;
+        }
+        config = builder.build();
+    }
+
+    @Benchmark
+    public ScriptPlan make() {
+        switch (type) {
+            case "mainCharacter":
+                return ScriptBuilder.makeMainCharacter(config, new ScriptPlan());
+            case "yoonmainCharacter":
+                return ScriptBuilder.makeYoonMainCharacter(config, new ScriptPlan());
+            case "subCharacter":
+                return ScriptBuilder.makeSubCharacter(config, new ScriptPlan());
+            case "yoonsubCharacter":
+                return ScriptBuilder.yoonmakeSubCharacter(config, new ScriptPlan());
+            case "scheduleOnly":
+                return ScriptBuilder.makeScheduleOnly(config, new ScriptPlan());
+            case "scheduleOnly_pass":
+                return ScriptBuilder.makeScheduleOnly_Pass(config, new ScriptPlan());
+            case "weekendAll":
+                return ScriptBuilder.makeWeekendAll(config, new ScriptPlan());
+            case "weekendNightmare":
+                return ScriptBuilder.makeWeekendNightMare(config, new ScriptPlan());
+            case "weekendHunt":
+                return ScriptBuilder.makeWeekendHunt(config, new ScriptPlan());
+            default:
+                return ScriptBuilder.makeOman(config, new ScriptPlan());
+        }
+    }
+}
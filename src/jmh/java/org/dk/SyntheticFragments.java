@@ -0,0 +1,110 @@
+package org.dk;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * 벤치마크용 합성 조각 생성기
+ * 녹화한 조각과 같은 형식(records.r8 메타데이터 + 문자열 필드 이벤트)의 파일을 임시 폴더에 만든다.
+ */
+final class SyntheticFragments {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final String END_MARKER_TYPE = "18446744073709551615";
+
+    private SyntheticFragments() {
+    }
+
+    /**
+     * 크기 이름별 (조각 수, 조각당 이벤트 수)
+     * short: 200개, medium: 3,000개, large: 100,000개 이벤트
+     */
+    static int[] shape(String size) {
+        switch (size) {
+            case "short":
+                return new int[]{10, 20};
+            case "medium":
+                return new int[]{50, 60};
+            case "large":
+                return new int[]{100, 1000};
+            default:
+                throw new IllegalArgumentException("알 수 없는 크기: " + size);
+        }
+    }
+
+    /**
+     * 조각 fragments개(마지막은 스크립트 종료 조각)를 dir에 쓰고 병합 순서대로 경로를 반환
+     */
+    static List<String> write(Path dir, int fragments, int eventsPerFragment) throws IOException {
+        Files.createDirectories(dir);
+        Random random = new Random(42);
+        List<String> paths = new ArrayList<>();
+
+        for (int i = 0; i < fragments; i++) {
+            boolean last = i == fragments - 1;
+            Path file = dir.resolve(last ? "script_end.json" : "fragment_" + i + ".json");
+            mapper.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), fragment("fragment_" + i, eventsPerFragment, last, random));
+            paths.add(file.toString());
+        }
+        return paths;
+    }
+
+    private static ObjectNode fragment(String title, int eventCount, boolean withEndMarker, Random random) {
+        ObjectNode root = mapper.createObjectNode();
+        ObjectNode r8 = root.putObject("records").putObject("r8");
+        r8.put("version", "1.1");
+        ObjectNode repeat = r8.putObject("repeat");
+        repeat.put("count", "1");
+        repeat.put("duration", "0");
+        repeat.put("sel", "count");
+        r8.put("timestamp", "1754312569333");
+        r8.put("interval", "0");
+        r8.put("speed", "1");
+        r8.put("title", title);
+
+        ArrayNode events = r8.putArray("events");
+        long ms = 0;
+        for (int i = 0; i < eventCount; i++) {
+            ms += 50 + random.nextInt(900);
+            // 터치 다운/업 쌍처럼 보이도록 type을 번갈아 사용
+            addEvent(events, random, ms, i % 2 == 0 ? "513" : "514");
+        }
+        if (withEndMarker) {
+            addEvent(events, random, ms + 100, END_MARKER_TYPE);
+        }
+        return root;
+    }
+
+    private static void addEvent(ArrayNode events, Random random, long ms, String type) {
+        ObjectNode event = events.addObject();
+        ObjectNode position = event.putObject("position");
+        position.put("x", String.valueOf(random.nextFloat()));
+        position.put("y", String.valueOf(random.nextFloat()));
+        event.put("ms", String.valueOf(ms));
+        event.put("type", type);
+        event.put("detail", String.valueOf(1374208 + random.nextInt(16)));
+        event.put("data", "0");
+    }
+
+    /**
+     * 임시 폴더 삭제
+     */
+    static void delete(Path dir) throws IOException {
+        if (dir == null || !Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
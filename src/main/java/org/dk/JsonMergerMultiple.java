@@ -1,86 +1,592 @@
 package org.dk;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.dk.merge.EventBuffer;
+import org.dk.merge.Fingerprint;
+import org.dk.merge.FlightEvents;
+import org.dk.merge.Fragment;
+import org.dk.merge.FragmentCache;
+import org.dk.merge.FragmentCatalog;
+import org.dk.merge.FragmentLibrary;
+import org.dk.merge.GenerationExecutors;
+import org.dk.merge.GenerationLog;
+import org.dk.merge.GenerationMetrics;
+import org.dk.merge.GenerationManifest;
+import org.dk.merge.MergedRecord;
+import org.dk.merge.ParallelMerge;
+import org.dk.merge.PipelinedMacroWriter;
+import org.dk.merge.PlanOptimizer;
+import org.dk.merge.SegmentCache;
+import org.dk.merge.SpliceTemplate;
+import org.dk.merge.StreamingMacroWriter;
+import org.dk.merge.WaitFragments;
 import org.dk.script.*;
 
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.text.Normalizer;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 public class JsonMergerMultiple {
 
-    private static final String DEFINITIONS_PATH = "src/main/resources/macro-definitions.json";
+    static final String DEFINITIONS_PATH = "src/main/resources/macro-definitions.json";
     private static final String LOG_FILE_PATH = "src/result/generation_log.txt";
     private static final ObjectMapper mapper = new ObjectMapper();
+    private static final FragmentCache fragmentCache = FragmentCache.getInstance();
+    static final int SCRIPT_END = FragmentSymbols.intern("script_end");
+
+    // true면 병합 결과를 JsonGenerator로 바로 기록 (macro-config.json의 generator.streamingWriter)
+    private static boolean streamingWriter = true;
+
+    // true면 스트리밍 출력에서 조각별로 렌더링해 둔 바이트를 ms만 바꿔 복사 (generator.spliceWriter)
+    private static boolean spliceWriter = true;
+
+    // 병렬 생성 옵션 (macro-config.json의 generator.parallel / executor / threads)
+    private static boolean parallel = false;
+    private static String executorKind = GenerationExecutors.FORK_JOIN;
+    private static int threads = 0;
+
+    // true면 대기 조각(wait_*)을 파일 대신 메모리에서 생성 (generator.syntheticWaits)
+    private static boolean syntheticWaits = true;
+
+    // 계획 최적화 (generator.optimizePlan, 꺼져 있으면 null)
+    private static PlanOptimizer planOptimizer;
+
+    // 미리 합친 script* 구간 (generator.segmentCache, 꺼져 있으면 null, 실행마다 새로 만듦)
+    private static SegmentCache segmentCache;
+
+    // true면 계획 배열 없이 ScriptBuilder가 만드는 대로 병합 (generator.streamingPlan)
+    private static boolean streamingPlan = true;
+
+    // true면 조각 읽기, 이어 붙이기, 결과 쓰기를 겹쳐서 실행 (generator.pipeline)
+    private static boolean pipeline = false;
+
+    // true면 매크로 하나를 조각 묶음으로 나눠 병렬로 병합 (generator.parallelMerge)
+    private static boolean parallelMerge = false;
+
+    // true면 조각과 결과 파일을 트리 없이 JsonParser로 읽음 (generator.streamingParse)
+    private static boolean streamingParse = true;
+
+    // 콘솔 출력 수준 (generator.logLevel)
+    private static GenerationLog.Level logLevel = GenerationLog.Level.INFO;
+
+    // 생성 실행 중에 열어 두는 generation_log.txt 기록기 (실행 중이 아니면 null)
+    private static GenerationLog generationLog;
+
+    // true면 실행마다 metrics.json을 씀 (generator.metrics), 경로가 있으면 Prometheus textfile도 (generator.metricsTextfile)
+    private static boolean writeMetrics = true;
+    private static String metricsTextfile = "";
+    private static GenerationMetrics metrics = new GenerationMetrics();
+
+    // 마지막 생성 실행의 조각 목록 (생성 전 확인과 병합 중 조각 찾기, generate 전에는 null)
+    private static FragmentCatalog catalog;
+
+    // 어떤 그룹의 resultScripts에 있는 매크로 이름 (이 매크로만 병합한 레코드를 그룹 생성까지 메모리에 둔다)
+    private static Set<String> groupResultScripts = Collections.emptySet();
+
+    // 증분 생성 옵션 (macro-config.json의 generator.incremental)
+    // previousManifest는 지난 실행의 지문, manifest는 이번 실행에서 채워서 저장할 지문
+    private static boolean incremental = false;
+    private static GenerationManifest previousManifest = new GenerationManifest();
+    private static GenerationManifest manifest = new GenerationManifest();
 
     public static void main(String[] args) {
+        // watch: 조각과 정의 파일을 감시하면서 바뀐 매크로만 다시 생성
+        if (args.length > 0 && "watch".equals(args[0])) {
+            try {
+                new MacroWatcher(MacroConfig.getInstance().getWatchDebounceMs()).run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+
+        // plan: 결과 파일을 쓰지 않고 매크로별 실행 시간, 이벤트 수, 결과 크기만 계산
+        if (args.length > 0 && "plan".equals(args[0])) {
+            try {
+                MacroPlanner.run(System.out);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+
+        // compile-library: macro 폴더를 조각 라이브러리 파일 하나로 묶기
+        if (args.length > 0 && "compile-library".equals(args[0])) {
+            try {
+                File packFile = new File(FragmentLibrary.DEFAULT_PATH);
+                int count = FragmentLibrary.compile(new File("src/main/resources/macro"), packFile);
+                System.out.println("조각 라이브러리 생성 완료: " + packFile.getPath() + " (" + count + "개 조각, " + packFile.length() + " bytes)");
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+
+        // verify-waits: 녹화한 대기 조각 파일과 대기 조각 생성기 결과 비교
+        if (args.length > 0 && "verify-waits".equals(args[0])) {
+            try {
+                System.out.println("=== 대기 조각 확인 ===");
+                int mismatches = WaitFragments.verify(new File("src/main/resources/macro"), System.out);
+                System.out.println(mismatches == 0
+                    ? "모든 대기 조각이 생성기와 일치합니다."
+                    : mismatches + "개 대기 조각이 다릅니다. (생성할 때 다른 대기 조각은 파일을 사용)");
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+
         try {
-            // result 폴더 정리
-            clearResultFolder();
+            generate(false);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 정의 파일 전체를 한 번 생성
+     *
+     * @param forceIncremental true면 설정과 관계없이 증분 생성 (감시 모드)
+     */
+    static void generate(boolean forceIncremental) throws IOException {
+        metrics = new GenerationMetrics();
+        long mark = System.nanoTime();
+        long fragmentHits = fragmentCache.getHitCount();
+        long fragmentMisses = fragmentCache.getMissCount();
+
+        // 이벤트 설정 로드
+        MacroConfig macroConfig = MacroConfig.getInstance();
+        String sidunEvent = macroConfig.getCurrentSidunEvent();
+        String dungeonEvent = macroConfig.getCurrentDungeonEvent();
+        loadOptions(macroConfig);
+        incremental = forceIncremental || macroConfig.isIncremental();
+        previousManifest = new GenerationManifest();
+        manifest = new GenerationManifest();
+        mark = metrics.stage("config", mark);
+
+        // macro-definitions.json 읽기
+        JsonNode definitions = mapper.readTree(new File(DEFINITIONS_PATH));
+        JsonNode macros = definitions.get("macros");
+        JsonNode groups = definitions.get("groups");
+        mark = metrics.stage("definitions", mark);
+
+        // 조각 목록을 만들고 모든 계획과 그룹 입력 확인 (없는 조각이 있으면 결과 폴더를 지우기 전에 중단)
+        catalog = FragmentCatalog.scan(new File(FragmentSymbols.MACRO_DIR));
+        if (syntheticWaits) {
+            // 다시 녹화해서 생성기와 달라진 표준 대기는 파일을 사용 (증분 생성의 지문도 파일 기준)
+            for (String name : WaitFragments.checkRecordings(new File(FragmentSymbols.MACRO_DIR), catalog)) {
+                System.out.println("경고: " + name + ".json이 대기 조각 생성기와 달라 파일을 사용합니다.");
+            }
+        }
+        validateDefinitions(catalog, macros, groups, sidunEvent, dungeonEvent);
+        mark = metrics.stage("catalog", mark);
+
+        // result 폴더 정리 (증분 생성이면 매니페스트만 읽고 파일은 유지)
+        prepareResultFolder();
+        mark = metrics.stage("prepare", mark);
 
-            // 이벤트 설정 로드
-            MacroConfig macroConfig = MacroConfig.getInstance();
-            String sidunEvent = macroConfig.getCurrentSidunEvent();
-            String dungeonEvent = macroConfig.getCurrentDungeonEvent();
+        generationLog = new GenerationLog(new File(LOG_FILE_PATH));
+        try {
+            generateAll(macros, groups, sidunEvent, dungeonEvent, mark);
+        } finally {
+            generationLog.close();
+            generationLog = null;
+        }
 
-            // macro-definitions.json 읽기
-            JsonNode definitions = mapper.readTree(new File(DEFINITIONS_PATH));
-            JsonNode macros = definitions.get("macros");
-            JsonNode groups = definitions.get("groups");
+        metrics.cache("fragment", fragmentCache.getHitCount() - fragmentHits, fragmentCache.getMissCount() - fragmentMisses);
+        if (segmentCache != null) {
+            metrics.cache("segment", segmentCache.getHitCount(), segmentCache.getMissCount());
+        }
+        if (writeMetrics) {
+            metrics.writeJson(mapper, new File(GenerationMetrics.DEFAULT_PATH));
+        }
+        if (!metricsTextfile.isEmpty()) {
+            metrics.writeTextfile(new File(metricsTextfile));
+        }
 
-            System.out.println("=== 매크로 정의 파일 로드 완료 ===");
-            System.out.println("시던 이벤트: " + sidunEvent);
-            System.out.println("던전 이벤트: " + dungeonEvent + "\n");
+        info(System.out, "\n=== 모든 매크로 생성 완료 ===");
+        info(System.out, fragmentCache.summary());
+        if (planOptimizer != null) {
+            info(System.out, planOptimizer.summary());
+        }
+        if (segmentCache != null) {
+            info(System.out, segmentCache.summary());
+        }
+    }
 
+    /**
+     * 정의 파일의 매크로와 그룹 생성 (단계별 실행 시간은 mark부터 측정)
+     */
+    private static void generateAll(JsonNode macros, JsonNode groups, String sidunEvent, String dungeonEvent,
+                                    long mark) throws IOException {
+        info(System.out, "=== 매크로 정의 파일 로드 완료 ===");
+        info(System.out, "시던 이벤트: " + sidunEvent);
+        info(System.out, "던전 이벤트: " + dungeonEvent);
+        info(System.out, "조각 목록: " + catalog.size() + "개 조각 확인\n");
+        groupResultScripts = resultScriptNames(groups);
+
+        if (parallel) {
+            // 매크로 생성과 그룹 생성을 의존 관계에 따라 겹쳐서 실행
+            runPipeline(macros, groups, sidunEvent, dungeonEvent);
+            mark = metrics.stage("pipeline", mark);
+        } else {
             // 매크로 생성
-            processMacroDefinitions(macros, sidunEvent, dungeonEvent);
+            Map<String, MergedRecord> builtRecords = processMacroDefinitions(macros, sidunEvent, dungeonEvent);
+            mark = metrics.stage("macros", mark);
 
             // 그룹 생성
-            processGroupDefinitions(groups);
+            processGroupDefinitions(groups, builtRecords);
+            mark = metrics.stage("groups", mark);
+        }
 
-            System.out.println("\n=== 모든 매크로 생성 완료 ===");
+        if (incremental) {
+            removeStaleOutputs();
+            manifest.save(mapper, new File(GenerationManifest.DEFAULT_PATH));
+            metrics.stage("manifest", mark);
+        }
+    }
 
-        } catch (IOException e) {
-            e.printStackTrace();
+    /**
+     * macro-config.json의 생성기 옵션 적용 (증분 생성 제외)
+     */
+    static void loadOptions(MacroConfig macroConfig) {
+        streamingWriter = macroConfig.isStreamingWriter();
+        spliceWriter = macroConfig.isSpliceWriter();
+        parallel = macroConfig.isParallel();
+        executorKind = macroConfig.getExecutor();
+        threads = macroConfig.getThreads();
+        syntheticWaits = macroConfig.isSyntheticWaits();
+        planOptimizer = macroConfig.isOptimizePlan()
+            ? new PlanOptimizer(JsonMergerMultiple::fragmentAt, syntheticWaits, macroConfig.getIdempotentFragments())
+            : null;
+        streamingPlan = macroConfig.isStreamingPlan();
+        pipeline = macroConfig.isPipeline();
+        parallelMerge = macroConfig.isParallelMerge();
+        segmentCache = macroConfig.isSegmentCache() ? new SegmentCache(JsonMergerMultiple::fragmentAt) : null;
+
+        // 조각 라이브러리가 있으면 원본 파일 대신 사용 (라이브러리 생성 후 바뀐 조각은 원본 파일에서 읽음)
+        FragmentLibrary library = macroConfig.isFragmentLibrary()
+            ? FragmentLibrary.open(new File(FragmentLibrary.DEFAULT_PATH)) : null;
+        fragmentCache.setLibrary(library);
+        logLevel = GenerationLog.Level.parse(macroConfig.getLogLevel());
+        writeMetrics = macroConfig.isMetrics();
+        metricsTextfile = macroConfig.getMetricsTextfile();
+        streamingParse = macroConfig.isStreamingParse();
+        fragmentCache.setStreamingParse(streamingParse);
+        fragmentCache.setBudget(macroConfig.getFragmentCacheMb() * 1024L * 1024L, macroConfig.getPinnedFragments());
+        if (library != null) {
+            info(System.out, "조각 라이브러리 사용: " + FragmentLibrary.DEFAULT_PATH + " (" + library.size() + "개 조각)");
         }
     }
 
     /**
      * 매크로 정의 처리
+     * 생성된 레코드는 그룹 생성에서 파일을 다시 읽지 않도록 이름별로 반환한다.
      */
-    private static void processMacroDefinitions(JsonNode macros, String sidunEvent, String dungeonEvent) throws IOException {
+    private static Map<String, MergedRecord> processMacroDefinitions(JsonNode macros, String sidunEvent, String dungeonEvent) throws IOException {
+        Map<String, MergedRecord> builtRecords = new HashMap<>();
         Iterator<String> categoryNames = macros.fieldNames();
 
         while (categoryNames.hasNext()) {
             String category = categoryNames.next();
             JsonNode categoryMacros = macros.get(category);
 
-            System.out.println("\n--- 카테고리: " + category + " ---");
+            info(System.out, "\n--- 카테고리: " + category + " ---");
 
             for (JsonNode macroDef : categoryMacros) {
-                String name = macroDef.get("name").asText();
-                String type = macroDef.get("type").asText();
-                JsonNode configNode = macroDef.get("config");
-                System.out.println("\n--- Name: " + name + " ---");
-                Config config = buildConfig(configNode, sidunEvent, dungeonEvent);
-                String[] scripts = buildScripts(type, config, configNode);
+                MergeResult result = generateMacro(macroDef, sidunEvent, dungeonEvent, System.out);
+                if (result != null) {
+                    writeLog(result.log);
+                    metrics.macro(result.stats);
+                    if (result.record != null) {
+                        builtRecords.put(result.record.getName(), result.record);
+                    }
+                }
+            }
+        }
+        return builtRecords;
+    }
+
+    /**
+     * 병렬 모드: 매크로 생성과 그룹 생성을 의존 관계(DAG)에 따라 실행
+     * 매크로는 모두 동시에 시작하고, 그룹은 resultScripts에 있는 매크로가 끝나는 즉시 시작한다.
+     * 그룹은 방금 생성된 레코드를 결과 파일 대신 메모리로 넘겨받는다.
+     * 작업마다 콘솔 출력과 로그를 따로 모아 두었다가 정의 순서대로 내보내므로
+     * 콘솔과 generation_log.txt의 순서는 순차 처리와 같다.
+     */
+    private static void runPipeline(JsonNode macros, JsonNode groups, String sidunEvent, String dungeonEvent) throws IOException {
+        ExecutorService executor = GenerationExecutors.create(executorKind, threads);
+        Map<String, List<CompletableFuture<MacroOutput>>> macroTasks = new LinkedHashMap<>();
+        Map<String, CompletableFuture<MacroOutput>> macroTasksByName = new HashMap<>();
+        Map<String, CompletableFuture<String>> groupTasks = new LinkedHashMap<>();
 
-                if (scripts != null && scripts.length > 0) {
-                    makeMacroFile(name, scripts, "1");
+        try {
+            Iterator<String> categoryNames = macros.fieldNames();
+            while (categoryNames.hasNext()) {
+                String category = categoryNames.next();
+                List<CompletableFuture<MacroOutput>> categoryTasks = new ArrayList<>();
+                for (JsonNode macroDef : macros.get(category)) {
+                    CompletableFuture<MacroOutput> task = CompletableFuture.supplyAsync(() -> {
+                        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                        PrintStream out = new PrintStream(buffer, true, StandardCharsets.UTF_8);
+                        try {
+                            MergeResult result = generateMacro(macroDef, sidunEvent, dungeonEvent, out);
+                            return new MacroOutput(buffer.toString(StandardCharsets.UTF_8), result);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }, executor);
+                    categoryTasks.add(task);
+                    macroTasksByName.put(normalizeFileName(macroDef.get("name").asText()), task);
+                }
+                macroTasks.put(category, categoryTasks);
+            }
+
+            Iterator<String> groupNames = groups.fieldNames();
+            while (groupNames.hasNext()) {
+                String groupName = groupNames.next();
+                JsonNode groupDef = groups.get(groupName);
+                String[] resultScripts = readScriptNames(groupDef, "resultScripts");
+
+                // 이번 실행에서 생성하는 결과 매크로만 의존 관계로 묶고, 나머지는 파일에서 읽는다
+                List<CompletableFuture<MacroOutput>> dependencies = new ArrayList<>();
+                for (String resultScript : resultScripts) {
+                    CompletableFuture<MacroOutput> dependency = macroTasksByName.get(normalizeFileName(resultScript));
+                    if (dependency != null) {
+                        dependencies.add(dependency);
+                    }
+                }
+
+                CompletableFuture<?>[] waits = dependencies.toArray(new CompletableFuture<?>[0]);
+                CompletableFuture<String> task = CompletableFuture
+                    .allOf(waits)
+                    .thenApplyAsync(ignored -> {
+                        Map<String, MergedRecord> builtRecords = new HashMap<>();
+                        for (CompletableFuture<MacroOutput> dependency : dependencies) {
+                            MergeResult result = dependency.join().result;
+                            if (result != null && result.record != null) {
+                                builtRecords.put(result.record.getName(), result.record);
+                            }
+                        }
+
+                        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                        PrintStream out = new PrintStream(buffer, true, StandardCharsets.UTF_8);
+                        try {
+                            buildGroup(groupName, groupDef, builtRecords, out);
+                            return buffer.toString(StandardCharsets.UTF_8);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }, executor);
+                groupTasks.put(groupName, task);
+            }
+
+            for (Map.Entry<String, List<CompletableFuture<MacroOutput>>> entry : macroTasks.entrySet()) {
+                info(System.out, "\n--- 카테고리: " + entry.getKey() + " ---");
+
+                for (CompletableFuture<MacroOutput> task : entry.getValue()) {
+                    MacroOutput output = await(task);
+                    System.out.print(output.console);
+                    if (output.result != null) {
+                        writeLog(output.result.log);
+                        metrics.macro(output.result.stats);
+                    }
                 }
             }
+
+            info(System.out, "\n=== 그룹 생성 ===");
+            for (CompletableFuture<String> task : groupTasks.values()) {
+                System.out.print(await(task));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 매크로 정의 하나를 생성하고 걸린 시간을 측정값에 기록 (생성할 스크립트가 없으면 null)
+     */
+    private static MergeResult generateMacro(JsonNode macroDef, String sidunEvent, String dungeonEvent, PrintStream out) throws IOException {
+        long start = System.nanoTime();
+        MergeResult result = buildMacro(macroDef, sidunEvent, dungeonEvent, out);
+        if (result != null) {
+            result.stats.buildNanos = System.nanoTime() - start;
+        }
+        return result;
+    }
+
+    /**
+     * 매크로 정의 하나를 생성 (생성할 스크립트가 없으면 null)
+     * 증분 생성에서 입력 지문이 지난 실행과 같으면 파일을 다시 쓰지 않고 저장해 둔 로그만 돌려준다. (record는 null)
+     */
+    private static MergeResult buildMacro(JsonNode macroDef, String sidunEvent, String dungeonEvent, PrintStream out) throws IOException {
+        String name = macroDef.get("name").asText();
+        String type = macroDef.get("type").asText();
+        JsonNode configNode = macroDef.get("config");
+        info(out, "\n--- Name: " + name + " ---");
+        Config config = buildConfig(configNode, sidunEvent, dungeonEvent);
+        // 지문 계산이나 계획 최적화에 전체 계획이 필요 없으면 만드는 대로 병합
+        if (streamingPlan && !parallelMerge && !incremental && planOptimizer == null) {
+            return streamMacroFile(name, type, config, configNode, out);
+        }
+        ScriptPlan scripts = buildPlan(type, config, configNode, out);
+
+        if (scripts == null || scripts.isEmpty()) {
+            return null;
+        }
+        if (!incremental) {
+            return makeMacroFile(name, scripts, "1", out);
+        }
+
+        String normalizedName = normalizeFileName(name);
+        String fingerprint = macroFingerprint(macroDef, config, scripts);
+        if (previousManifest.isMacroUpToDate(normalizedName, fingerprint,
+            new File("src/result/" + normalizedName + ".json"))) {
+            info(out, "변경 없음, 건너뜀: " + normalizedName);
+            String log = previousManifest.getMacro(normalizedName).getLog();
+            manifest.putMacro(normalizedName, fingerprint, log);
+            MergeResult skipped = new MergeResult(log, null);
+            skipped.stats.name = normalizedName;
+            skipped.stats.skipped = true;
+            return skipped;
+        }
+
+        MergeResult result = makeMacroFile(name, scripts, "1", out);
+        manifest.putMacro(normalizedName, fingerprint, result.log);
+        return result;
+    }
+
+    /**
+     * 스크립트 계획 생성 (계획 최적화가 켜져 있으면 최적화한 계획)
+     */
+    static ScriptPlan buildPlan(String type, Config config, JsonNode configNode, PrintStream out) throws IOException {
+        ScriptPlan scripts = buildScripts(type, config, configNode, new ScriptPlan(), out);
+        if (planOptimizer != null && scripts != null && !scripts.isEmpty()) {
+            PlanOptimizer.Result optimized = planOptimizer.optimize(scripts);
+            info(out, "계획 최적화: " + optimized);
+            scripts = optimized.plan;
+        }
+        return scripts;
+    }
+
+    /**
+     * 매크로 입력 지문: 정의, 해석된 설정, 스크립트 순서와 각 조각 파일 내용
+     */
+    private static String macroFingerprint(JsonNode macroDef, Config config, ScriptPlan scripts) throws IOException {
+        Fingerprint fingerprint = new Fingerprint()
+            .add(GenerationManifest.FORMAT_VERSION)
+            .add(macroDef.toString())
+            .add(config.toString());
+        for (int i = 0; i < scripts.size(); i++) {
+            int id = scripts.id(i);
+            fingerprint.add(FragmentSymbols.name(id)).add(fragmentCache.contentHash(FragmentSymbols.path(id)));
+        }
+        fingerprint.add(FragmentSymbols.name(SCRIPT_END)).add(fragmentCache.contentHash(FragmentSymbols.path(SCRIPT_END)));
+        return fingerprint.hex();
+    }
+
+    /**
+     * 그룹 입력 지문: 정의, macroScripts 조각 파일 내용, resultScripts 매크로의 입력 지문
+     * 이번 실행에 없는 결과 매크로는 src/result/의 파일 내용을 대신 사용한다.
+     */
+    private static String groupFingerprint(String groupName, JsonNode groupDef,
+                                           String[] macroScripts, String[] resultScripts) throws IOException {
+        Fingerprint fingerprint = new Fingerprint()
+            .add(GenerationManifest.FORMAT_VERSION)
+            .add(groupName)
+            .add(groupDef.toString());
+        for (String script : macroScripts) {
+            fingerprint.add(script).add(fragmentCache.contentHash(FragmentSymbols.path(FragmentSymbols.intern(script))));
+        }
+        for (String script : resultScripts) {
+            GenerationManifest.Entry built = manifest.getMacro(normalizeFileName(script));
+            fingerprint.add(script).add(built != null
+                ? built.getFingerprint()
+                : fragmentCache.contentHash("src/result/" + script + ".json"));
+        }
+        return fingerprint.hex();
+    }
+
+    /**
+     * 병렬 작업 결과 대기 (작업 중 발생한 예외는 그대로 다시 던짐)
+     */
+    private static <T> T await(Future<T> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("매크로 생성이 중단되었습니다.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * 매크로 하나의 병합 결과 (generation_log.txt에 남길 내용과 그룹에 넘길 레코드, 그룹이 쓰지 않는 매크로는 레코드가 null)
+     */
+    static class MergeResult {
+        final String log;
+        final MergedRecord record;
+        // metrics.json에 남길 병합 측정값
+        final GenerationMetrics.Macro stats;
+
+        MergeResult(String log, MergedRecord record) {
+            this(log, record, new GenerationMetrics.Macro());
+        }
+
+        MergeResult(String log, MergedRecord record, GenerationMetrics.Macro stats) {
+            this.log = log;
+            this.record = record;
+            this.stats = stats;
+        }
+    }
+
+    /**
+     * 병렬 생성 시 매크로 하나의 콘솔 출력과 병합 결과
+     */
+    private static class MacroOutput {
+        final String console;
+        final MergeResult result;
+
+        MacroOutput(String console, MergeResult result) {
+            this.console = console;
+            this.result = result;
         }
     }
 
     /**
      * Config 객체 생성
      */
-    private static Config buildConfig(JsonNode configNode, String sidunEvent, String dungeonEvent) {
+    static Config buildConfig(JsonNode configNode, String sidunEvent, String dungeonEvent) {
         Config.Builder builder = Config.builder();
 
         // 기본 설정
@@ -135,78 +641,282 @@ public class JsonMergerMultiple {
     }
 
     /**
-     * 스크립트 타입에 따른 스크립트 배열 생성
+     * 스크립트 타입에 따른 스크립트 계획 생성
      */
-    private static String[] buildScripts(String type, Config config, JsonNode configNode) {
+    private static <S extends PlanSink> S buildScripts(String type, Config config, JsonNode configNode, S plan, PrintStream out) {
         switch (type) {
             case "mainCharacter":
-                return ScriptBuilder.makeMainCharacter(config);
+                return ScriptBuilder.makeMainCharacter(config, plan);
             case "yoonmainCharacter":
-                return ScriptBuilder.makeYoonMainCharacter(config);
+                return ScriptBuilder.makeYoonMainCharacter(config, plan);
             case "subCharacter":
-                return ScriptBuilder.makeSubCharacter(config);
+                return ScriptBuilder.makeSubCharacter(config, plan);
             case "yoonsubCharacter":
-                return ScriptBuilder.yoonmakeSubCharacter(config);
+                return ScriptBuilder.yoonmakeSubCharacter(config, plan);
             case "scheduleOnly":
-                return ScriptBuilder.makeScheduleOnly(config);
+                return ScriptBuilder.makeScheduleOnly(config, plan);
             case "scheduleOnly_pass":
-                return ScriptBuilder.makeScheduleOnly_Pass(config);
+                return ScriptBuilder.makeScheduleOnly_Pass(config, plan);
             case "weekendAll":
-                return ScriptBuilder.makeWeekendAll(config);
+                return ScriptBuilder.makeWeekendAll(config, plan);
             case "weekendNightmare":
-                return ScriptBuilder.makeWeekendNightMare(config);
+                return ScriptBuilder.makeWeekendNightMare(config, plan);
             case "oman":
-                return ScriptBuilder.makeOman(config);
+                return ScriptBuilder.makeOman(config, plan);
             default:
-                System.out.println("알 수 없는 스크립트 타입: " + type);
-                return new String[0];
+                out.println("알 수 없는 스크립트 타입: " + type);
+                return plan;
         }
     }
 
     /**
-     * 그룹 정의 처리
+     * 생성을 시작하기 전에 모든 매크로 계획과 그룹 입력의 조각이 있고 쓸 수 있는지 확인 (문제가 있으면 모두 모아서 IOException)
+     * 계획은 조각 ID만 확인하고 버리므로 병합할 때 다시 만든다. (ScriptBuilder 계획 생성은 파일을 읽지 않음)
+     * 계획과 그룹이 쓰는 조각 파일은 한 번씩 JsonParser로 훑어서 JSON이 깨졌거나 events가 비어 있지 않은지,
+     * script_end에 스크립트 종료 이벤트가 있는지 본다. (내용은 보관하지 않음)
+     * 그룹의 resultScripts는 이번 실행에서 생성하는 매크로이거나, 증분 생성이면 이미 있는 결과 파일이어야 한다.
      */
-    private static void processGroupDefinitions(JsonNode groups) throws IOException {
-        System.out.println("\n=== 그룹 생성 ===");
+    static void validateDefinitions(FragmentCatalog catalog, JsonNode macros, JsonNode groups, String sidunEvent,
+                                    String dungeonEvent) throws IOException {
+        // 알 수 없는 스크립트 타입 등의 출력은 생성할 때 다시 나오므로 버림
+        PrintStream quiet = new PrintStream(OutputStream.nullOutputStream());
+        List<String> problems = new ArrayList<>();
+        Set<String> builtNames = new HashSet<>();
+        // 계획과 그룹이 쓰는 조각 (나온 순서)
+        Set<Integer> referenced = new LinkedHashSet<>();
+
+        if (!isAvailable(catalog, SCRIPT_END)) {
+            problems.add("script_end (모든 매크로의 마지막 조각)");
+        }
+        referenced.add(SCRIPT_END);
+
+        Iterator<String> categoryNames = macros.fieldNames();
+        while (categoryNames.hasNext()) {
+            for (JsonNode macroDef : macros.get(categoryNames.next())) {
+                String name = normalizeFileName(macroDef.get("name").asText());
+                JsonNode configNode = macroDef.get("config");
+                Config config = buildConfig(configNode, sidunEvent, dungeonEvent);
+                FragmentCheck check = buildScripts(macroDef.get("type").asText(), config, configNode, new FragmentCheck(catalog, referenced), quiet);
+                if (check.count > 0) {
+                    builtNames.add(name);
+                }
+                for (String missing : check.missing) {
+                    problems.add(name + ": " + missing);
+                }
+            }
+        }
 
         Iterator<String> groupNames = groups.fieldNames();
         while (groupNames.hasNext()) {
             String groupName = groupNames.next();
             JsonNode groupDef = groups.get(groupName);
+            for (String script : readScriptNames(groupDef, "macroScripts")) {
+                int symbol = FragmentSymbols.intern(script);
+                if (!catalog.contains(symbol)) {
+                    problems.add("그룹 " + groupName + ": " + script);
+                }
+                referenced.add(symbol);
+            }
+            for (String script : readScriptNames(groupDef, "resultScripts")) {
+                if (!builtNames.contains(normalizeFileName(script))
+                    && !(incremental && new File("src/result/" + script + ".json").isFile())) {
+                    problems.add("그룹 " + groupName + ": 결과 매크로 " + script);
+                }
+            }
+        }
 
-            List<String> macroScripts = new ArrayList<>();
-            List<String> resultScripts = new ArrayList<>();
+        for (int symbol : referenced) {
+            String problem = inspectFragment(catalog, symbol);
+            if (problem != null) {
+                problems.add(FragmentSymbols.name(symbol) + ": " + problem);
+            }
+        }
 
-            JsonNode macroScriptsNode = groupDef.get("macroScripts");
-            if (macroScriptsNode != null) {
-                for (JsonNode script : macroScriptsNode) {
-                    macroScripts.add(script.asText());
-                }
+        if (!problems.isEmpty()) {
+            throw new IOException("없거나 쓸 수 없는 조각이 있어 생성을 시작하지 않습니다. (" + problems.size() + "개)\n  "
+                + String.join("\n  ", problems));
+        }
+    }
+
+    /**
+     * 조각 파일 하나의 내용 확인 (문제가 없거나 목록에 없는 조각이면 null, 목록에 없는 조각은 이미 따로 보고함)
+     * 메모리에서 만드는 대기 조각은 파일을 읽지 않는다.
+     */
+    private static String inspectFragment(FragmentCatalog catalog, int symbol) {
+        if (syntheticWaitAt(symbol) != null) {
+            return null;
+        }
+        FragmentCatalog.Entry entry;
+        try {
+            entry = catalog.inspect(symbol);
+        } catch (IOException e) {
+            return "읽을 수 없음 (" + String.valueOf(e.getMessage()).lines().findFirst().orElse("") + ")";
+        }
+        if (entry == null) {
+            return null;
+        }
+        if (entry.getEventCount() == 0) {
+            return "events가 없거나 비어 있음";
+        }
+        if (symbol == SCRIPT_END && !entry.hasEndMarker()) {
+            return "스크립트 종료 이벤트(type " + Fragment.END_MARKER_TYPE + ")가 없음";
+        }
+        return null;
+    }
+
+    /**
+     * 계획의 조각이 목록에 있는지만 확인하는 PlanSink (validateDefinitions)
+     */
+    private static class FragmentCheck implements PlanSink {
+        // 없는 조각 이름 (계획에 나온 순서, 중복 제외)
+        final Set<String> missing = new LinkedHashSet<>();
+        final FragmentCatalog catalog;
+        // 모든 계획이 쓰는 조각 (내용 확인용, 매크로끼리 공유)
+        final Set<Integer> referenced;
+        int count;
+
+        FragmentCheck(FragmentCatalog catalog, Set<Integer> referenced) {
+            this.catalog = catalog;
+            this.referenced = referenced;
+        }
+
+        @Override
+        public FragmentCheck add(int id) {
+            count++;
+            if (!isAvailable(catalog, id)) {
+                missing.add(FragmentSymbols.name(id));
             }
+            referenced.add(id);
+            return this;
+        }
 
-            JsonNode resultScriptsNode = groupDef.get("resultScripts");
-            if (resultScriptsNode != null) {
-                for (JsonNode script : resultScriptsNode) {
-                    resultScripts.add(script.asText());
+        @Override
+        public void beginSegment() {
+        }
+
+        @Override
+        public void endSegment() {
+        }
+    }
+
+    /**
+     * 그룹 정의 처리
+     */
+    private static void processGroupDefinitions(JsonNode groups, Map<String, MergedRecord> builtRecords) throws IOException {
+        info(System.out, "\n=== 그룹 생성 ===");
+
+        Iterator<String> groupNames = groups.fieldNames();
+        while (groupNames.hasNext()) {
+            String groupName = groupNames.next();
+            buildGroup(groupName, groups.get(groupName), builtRecords, System.out);
+        }
+    }
+
+    /**
+     * 그룹 정의 하나를 생성
+     * 증분 생성에서 입력 지문이 지난 실행과 같으면 건너뛴다.
+     */
+    private static void buildGroup(String groupName, JsonNode groupDef, Map<String, MergedRecord> builtRecords,
+                                   PrintStream out) throws IOException {
+        String[] macroScripts = readScriptNames(groupDef, "macroScripts");
+        String[] resultScripts = readScriptNames(groupDef, "resultScripts");
+
+        if (!incremental) {
+            makeGroupFile(groupName, macroScripts, resultScripts, builtRecords, out);
+            return;
+        }
+
+        String normalizedName = normalizeFileName(groupName);
+        String fingerprint = groupFingerprint(groupName, groupDef, macroScripts, resultScripts);
+        if (previousManifest.isGroupUpToDate(normalizedName, fingerprint,
+            new File("src/result/groups/" + normalizedName + ".json"))) {
+            info(out, "\n그룹 변경 없음, 건너뜀: " + groupName);
+            manifest.putGroup(normalizedName, fingerprint);
+            return;
+        }
+
+        makeGroupFile(groupName, macroScripts, resultScripts, builtRecords, out);
+        manifest.putGroup(normalizedName, fingerprint);
+    }
+
+    /**
+     * 모든 그룹의 resultScripts에 나오는 매크로 이름 (정규화한 이름)
+     */
+    static Set<String> resultScriptNames(JsonNode groups) {
+        Set<String> names = new HashSet<>();
+        if (groups != null) {
+            Iterator<String> groupNames = groups.fieldNames();
+            while (groupNames.hasNext()) {
+                for (String script : readScriptNames(groups.get(groupNames.next()), "resultScripts")) {
+                    names.add(normalizeFileName(script));
                 }
             }
+        }
+        return names;
+    }
 
-            makeGroupFile(groupName,
-                macroScripts.toArray(new String[0]),
-                resultScripts.toArray(new String[0]));
+    /**
+     * 그룹 정의의 macroScripts / resultScripts 목록 읽기
+     */
+    private static String[] readScriptNames(JsonNode groupDef, String field) {
+        List<String> scripts = new ArrayList<>();
+        JsonNode scriptsNode = groupDef.get(field);
+        if (scriptsNode != null) {
+            for (JsonNode script : scriptsNode) {
+                scripts.add(script.asText());
+            }
         }
+        return scripts.toArray(new String[0]);
     }
 
     /**
      * 한글 파일명을 Windows 호환 형식(NFC)으로 정규화
      */
-    private static String normalizeFileName(String fileName) {
+    static String normalizeFileName(String fileName) {
         if (fileName == null) {
             return null;
         }
         return Normalizer.normalize(fileName, Normalizer.Form.NFC);
     }
 
+    /**
+     * 생성 전 result 폴더 준비
+     * 증분 생성이고 지난 매니페스트가 있으면 파일은 그대로 두고 로그만 새로 시작한다.
+     * (건너뛴 매크로의 로그도 매니페스트에서 다시 기록하므로 로그는 항상 전체가 새로 써진다)
+     */
+    private static void prepareResultFolder() {
+        File manifestFile = new File(GenerationManifest.DEFAULT_PATH);
+        if (!incremental || !manifestFile.exists()) {
+            clearResultFolder();
+            return;
+        }
+
+        previousManifest = GenerationManifest.load(mapper, manifestFile);
+        new File("src/result/groups").mkdirs();
+
+        File logFile = new File(LOG_FILE_PATH);
+        if (logFile.exists() && logFile.delete()) {
+            debug(System.out, "삭제: " + logFile.getName());
+        }
+        info(System.out, "증분 생성: 변경된 매크로와 그룹만 다시 생성합니다.\n");
+    }
+
+    /**
+     * 증분 생성: 지난 실행에는 있었지만 이번 정의에서 빠진 결과 파일 삭제
+     */
+    private static void removeStaleOutputs() {
+        for (String name : previousManifest.macroNames()) {
+            if (manifest.getMacro(name) == null && new File("src/result/" + name + ".json").delete()) {
+                info(System.out, "삭제: " + name + ".json");
+            }
+        }
+        for (String name : previousManifest.groupNames()) {
+            if (manifest.getGroup(name) == null && new File("src/result/groups/" + name + ".json").delete()) {
+                info(System.out, "삭제: groups/" + name + ".json");
+            }
+        }
+    }
+
     /**
      * result 폴더의 모든 파일을 삭제
      */
@@ -216,11 +926,11 @@ public class JsonMergerMultiple {
 
         if (!resultFolder.exists()) {
             resultFolder.mkdirs();
-            System.out.println("result 폴더 생성: " + resultFolder.getAbsolutePath());
+            info(System.out, "result 폴더 생성: " + resultFolder.getAbsolutePath());
         }
         if (!groupsFolder.exists()) {
             groupsFolder.mkdirs();
-            System.out.println("groups 폴더 생성: " + groupsFolder.getAbsolutePath());
+            info(System.out, "groups 폴더 생성: " + groupsFolder.getAbsolutePath());
         }
 
         int deletedCount = 0;
@@ -231,7 +941,7 @@ public class JsonMergerMultiple {
                 if (file.isFile()) {
                     if (file.delete()) {
                         deletedCount++;
-                        System.out.println("삭제: " + file.getName());
+                        debug(System.out, "삭제: " + file.getName());
                     }
                 }
             }
@@ -240,7 +950,7 @@ public class JsonMergerMultiple {
         // 로그 파일 삭제
         File logFile = new File(LOG_FILE_PATH);
         if (logFile.exists() && logFile.delete()) {
-            System.out.println("삭제: " + logFile.getName());
+            debug(System.out, "삭제: " + logFile.getName());
         }
 
         File[] groupFiles = groupsFolder.listFiles();
@@ -249,234 +959,741 @@ public class JsonMergerMultiple {
                 if (file.isFile()) {
                     if (file.delete()) {
                         deletedCount++;
-                        System.out.println("삭제: groups/" + file.getName());
+                        debug(System.out, "삭제: groups/" + file.getName());
                     }
                 }
             }
         }
 
         if (deletedCount > 0) {
-            System.out.println("총 " + deletedCount + "개 파일 삭제 완료\n");
+            info(System.out, "총 " + deletedCount + "개 파일 삭제 완료\n");
         } else {
-            System.out.println("삭제할 파일이 없습니다.\n");
+            info(System.out, "삭제할 파일이 없습니다.\n");
         }
     }
 
-    private static void makeMacroFile(String resultFileName, String[] ready, String count) throws IOException {
-        String[] schedule = new String[ready.length + 1];
-        for (int i = 0; i < ready.length; i++) {
-            schedule[i] = ready[i];
-        }
-        schedule[ready.length] = "script_end";
+    /**
+     * 스크립트 계획 뒤에 script_end를 붙여 병합 (조각은 ID로 찾음)
+     */
+    private static MergeResult makeMacroFile(String resultFileName, ScriptPlan ready, String count, PrintStream out) throws IOException {
+        String normalizedFileName = normalizeFileName(resultFileName);
+        String outputFile = "src/result/" + normalizedFileName + ".json";
 
-        List<String> pathList = Arrays.stream(schedule)
-            .map(JsonMergerMultiple::makePath)
-            .collect(Collectors.toList());
+        try (MacroMerger merger = new MacroMerger(outputFile, normalizedFileName, count, ready.size() + 1, out)) {
+            if (parallelMerge) {
+                int[] schedule = ready.toIds(1);
+                schedule[ready.size()] = SCRIPT_END;
+                Fragment[] fragments = new Fragment[schedule.length];
+                String[] filePaths = new String[schedule.length];
+                String[] fileNames = new String[schedule.length];
+                for (int i = 0; i < schedule.length; i++) {
+                    fragments[i] = fragmentAt(schedule[i]);
+                    filePaths[i] = FragmentSymbols.path(schedule[i]);
+                    fileNames[i] = FragmentSymbols.name(schedule[i]);
+                }
+                return merger.finishParallel(fragments, filePaths, fileNames);
+            }
+            ready.writeTo(merger);
+            return merger.finish(SCRIPT_END);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
 
+    /**
+     * 계획을 배열로 만들지 않고 ScriptBuilder가 조각을 내놓는 대로 병합 (생성할 스크립트가 없으면 null)
+     */
+    private static MergeResult streamMacroFile(String resultFileName, String type, Config config, JsonNode configNode,
+                                               PrintStream out) throws IOException {
         String normalizedFileName = normalizeFileName(resultFileName);
         String outputFile = "src/result/" + normalizedFileName + ".json";
 
-        mergeJsonFiles(pathList, outputFile, normalizedFileName, count);
+        try (MacroMerger merger = new MacroMerger(outputFile, normalizedFileName, "1", -1, out)) {
+            buildScripts(type, config, configNode, merger, out);
+            if (merger.isEmpty()) {
+                return null;
+            }
+            return merger.finish(SCRIPT_END);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 파일의 records 첫 레코드를 트리로 읽지 않고 JsonParser에서 gen으로 그대로 복사 (copyCurrentStructure)
+     * 레코드가 없으면 wholeIfMissing일 때 파일 전체를, 아니면 아무것도 쓰지 않고 false를 반환한다.
+     */
+    private static boolean copyFirstRecord(File file, JsonGenerator gen, String recordKey, boolean wholeIfMissing)
+        throws IOException {
+        try (JsonParser parser = mapper.getFactory().createParser(file)) {
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    JsonToken value = parser.nextToken();
+                    if ("records".equals(field) && value == JsonToken.START_OBJECT) {
+                        if (parser.nextToken() != JsonToken.FIELD_NAME) {
+                            break;
+                        }
+                        parser.nextToken();
+                        gen.writeFieldName(recordKey);
+                        gen.copyCurrentStructure(parser);
+                        return true;
+                    }
+                    parser.skipChildren();
+                }
+            }
+        }
+        if (!wholeIfMissing) {
+            return false;
+        }
+
+        try (JsonParser parser = mapper.getFactory().createParser(file)) {
+            parser.nextToken();
+            gen.writeFieldName(recordKey);
+            gen.copyCurrentStructure(parser);
+        }
+        return true;
     }
 
+    /**
+     * 조각 이름의 파일 경로 (심볼 표에 한 번 만들어 둔 문자열)
+     */
     public static String makePath(String name) {
-        String prefix = "src/main/resources/macro/";
-        String ext = ".json";
-        return prefix + name + ext;
+        return FragmentSymbols.path(FragmentSymbols.intern(name));
     }
 
     /**
      * macro 폴더와 result 폴더의 JSON 파일들을 r0, r1, r2... 형태로 묶어서 하나의 파일로 생성
      */
     public static void makeGroupFile(String groupFileName, String[] macroFileNames, String[] resultFileNames) throws IOException {
+        makeGroupFile(groupFileName, macroFileNames, resultFileNames, Collections.emptyMap(), System.out);
+    }
+
+    /**
+     * 그룹 파일 생성
+     * builtRecords에 있는 결과 매크로는 src/result/ 파일을 다시 읽지 않고 메모리의 레코드를 그대로 기록한다.
+     * 레코드는 읽는 순서대로 JsonGenerator에 바로 쓰며, 출력은 트리를 만든 뒤 한 번에 쓰는 것과 동일하다.
+     */
+    static void makeGroupFile(String groupFileName, String[] macroFileNames, String[] resultFileNames,
+                              Map<String, MergedRecord> builtRecords, PrintStream out) throws IOException {
         if ((macroFileNames == null || macroFileNames.length == 0) &&
             (resultFileNames == null || resultFileNames.length == 0)) {
             throw new IllegalArgumentException("묶을 파일이 없습니다.");
         }
 
-        ObjectNode result = mapper.createObjectNode();
-        ObjectNode records = mapper.createObjectNode();
-
         int totalFiles = (macroFileNames != null ? macroFileNames.length : 0) +
                          (resultFileNames != null ? resultFileNames.length : 0);
 
-        System.out.println("\n=== 그룹 파일 생성: " + groupFileName + " ===");
-        System.out.println("묶을 파일 개수: " + totalFiles);
+        info(out, "\n=== 그룹 파일 생성: " + groupFileName + " ===");
+        info(out, "묶을 파일 개수: " + totalFiles);
 
-        int recordIndex = 0;
-
-        // macro 폴더의 파일들 먼저 추가
-        if (macroFileNames != null) {
-            for (String fileName : macroFileNames) {
-                String filePath = "src/main/resources/macro/" + fileName + ".json";
-                String recordKey = "r" + recordIndex;
+        File groupsFolder = new File("src/result/groups");
+        if (!groupsFolder.exists()) {
+            groupsFolder.mkdirs();
+        }
 
-                System.out.println("  " + recordKey + ": [macro] " + fileName);
+        String normalizedFileName = normalizeFileName(groupFileName);
+        String outputFile = "src/result/groups/" + normalizedFileName + ".json";
+        File output = new File(outputFile);
 
-                try {
-                    JsonNode jsonNode = mapper.readTree(new File(filePath));
-                    JsonNode recordsNode = jsonNode.get("records");
-                    if (recordsNode != null && recordsNode.fields().hasNext()) {
-                        JsonNode firstRecord = recordsNode.fields().next().getValue();
-                        records.set(recordKey, firstRecord);
-                    } else {
-                        records.set(recordKey, jsonNode);
+        int recordIndex = 0;
+        boolean completed = false;
+        FlightEvents.OutputWrite writeEvent = new FlightEvents.OutputWrite();
+        writeEvent.begin();
+
+        try (JsonGenerator gen = mapper.writerWithDefaultPrettyPrinter().createGenerator(output, JsonEncoding.UTF8)) {
+            gen.writeStartObject();
+            gen.writeFieldName("records");
+            gen.writeStartObject();
+
+            // macro 폴더의 파일들 먼저 추가
+            if (macroFileNames != null) {
+                for (String fileName : macroFileNames) {
+                    String filePath = FragmentSymbols.path(FragmentSymbols.intern(fileName));
+                    String recordKey = "r" + recordIndex;
+
+                    debug(out, "  " + recordKey + ": [macro] " + fileName);
+
+                    try {
+                        // 캐시나 라이브러리에 있는 조각은 파일을 다시 읽지 않고 그 레코드를 기록
+                        Fragment fragment = streamingParse ? fragmentCache.getIfLoaded(filePath) : fragmentCache.get(filePath);
+                        if (fragment != null) {
+                            gen.writeFieldName(recordKey);
+                            fragment.writeRecord(gen);
+                        } else {
+                            FlightEvents.FragmentLoad load = new FlightEvents.FragmentLoad();
+                            load.begin();
+                            File file = new File(filePath);
+                            copyFirstRecord(file, gen, recordKey, true);
+                            load.record(filePath, "group", file.length());
+                        }
+                    } catch (IOException e) {
+                        out.println("    오류: " + fileName + " 파일을 읽을 수 없습니다. - " + e.getMessage());
+                        throw e;
                     }
-                } catch (IOException e) {
-                    System.out.println("    오류: " + fileName + " 파일을 읽을 수 없습니다. - " + e.getMessage());
-                    throw e;
+                    recordIndex++;
                 }
-                recordIndex++;
             }
-        }
-
-        // result 폴더의 파일들 추가
-        if (resultFileNames != null) {
-            for (String fileName : resultFileNames) {
-                String filePath = "src/result/" + fileName + ".json";
-                String recordKey = "r" + recordIndex;
 
-                System.out.println("  " + recordKey + ": [result] " + fileName);
+            // result 폴더의 파일들 추가
+            if (resultFileNames != null) {
+                for (String fileName : resultFileNames) {
+                    String filePath = "src/result/" + fileName + ".json";
+                    String recordKey = "r" + recordIndex;
+
+                    debug(out, "  " + recordKey + ": [result] " + fileName);
+
+                    // 이번 실행에서 생성한 매크로는 메모리에서 바로 기록
+                    MergedRecord builtRecord = builtRecords.get(normalizeFileName(fileName));
+                    if (builtRecord != null) {
+                        gen.writeFieldName(recordKey);
+                        builtRecord.writeTo(gen);
+                        recordIndex++;
+                        continue;
+                    }
 
-                try {
-                    JsonNode jsonNode = mapper.readTree(new File(filePath));
-                    JsonNode recordsNode = jsonNode.get("records");
-                    if (recordsNode != null && recordsNode.fields().hasNext()) {
-                        JsonNode firstRecord = recordsNode.fields().next().getValue();
-                        records.set(recordKey, firstRecord);
-                    } else {
-                        System.out.println("    경고: " + fileName + "에 records가 없습니다.");
+                    try {
+                        FlightEvents.FragmentLoad load = new FlightEvents.FragmentLoad();
+                        load.begin();
+                        boolean copied;
+                        if (streamingParse) {
+                            copied = copyFirstRecord(new File(filePath), gen, recordKey, false);
+                        } else {
+                            JsonNode jsonNode = mapper.readTree(new File(filePath));
+                            JsonNode recordsNode = jsonNode.get("records");
+                            copied = recordsNode != null && recordsNode.fields().hasNext();
+                            if (copied) {
+                                JsonNode firstRecord = recordsNode.fields().next().getValue();
+                                gen.writeFieldName(recordKey);
+                                gen.writeTree(firstRecord);
+                            }
+                        }
+                        load.record(filePath, "group", new File(filePath).length());
+                        if (!copied) {
+                            out.println("    경고: " + fileName + "에 records가 없습니다.");
+                        }
+                    } catch (IOException e) {
+                        out.println("    오류: " + fileName + " 파일을 읽을 수 없습니다. - " + e.getMessage());
+                        throw e;
                     }
-                } catch (IOException e) {
-                    System.out.println("    오류: " + fileName + " 파일을 읽을 수 없습니다. - " + e.getMessage());
-                    throw e;
+                    recordIndex++;
                 }
-                recordIndex++;
             }
-        }
-
-        result.set("records", records);
 
-        File groupsFolder = new File("src/result/groups");
-        if (!groupsFolder.exists()) {
-            groupsFolder.mkdirs();
+            gen.writeEndObject();
+            gen.writeEndObject();
+            completed = true;
+        } finally {
+            // 중간에 실패하면 반쯤 쓴 그룹 파일을 남기지 않는다
+            if (!completed) {
+                output.delete();
+            }
         }
+        writeEvent.record(outputFile, "group", output.length());
 
-        String normalizedFileName = normalizeFileName(groupFileName);
-        String outputFile = "src/result/groups/" + normalizedFileName + ".json";
-
-        mapper.writerWithDefaultPrettyPrinter().writeValue(new File(outputFile), result);
-
-        System.out.println("그룹 파일 생성 완료: " + outputFile);
-        System.out.println("총 " + totalFiles + "개의 records 포함 (r0 ~ r" + (recordIndex - 1) + ")\n");
+        info(out, "그룹 파일 생성 완료: " + outputFile);
+        info(out, "총 " + totalFiles + "개의 records 포함 (r0 ~ r" + (recordIndex - 1) + ")\n");
     }
 
     /**
      * N개의 JSON 파일을 순서대로 합치는 메서드
      */
     public static void mergeJsonFiles(List<String> inputFiles, String outputFile, String resultFileName, String count) throws IOException {
+        writeLog(mergeJsonFiles(inputFiles, outputFile, resultFileName, count, System.out).log);
+    }
+
+    /**
+     * N개의 JSON 파일을 순서대로 합치고 generation_log.txt에 남길 내용과 그룹에 넘길 레코드를 반환
+     * 진행 상황은 out으로 출력한다. (병렬 생성 시 매크로별 버퍼)
+     */
+    static MergeResult mergeJsonFiles(List<String> inputFiles, String outputFile, String resultFileName, String count,
+                                      PrintStream out) throws IOException {
         if (inputFiles == null || inputFiles.isEmpty()) {
             throw new IllegalArgumentException("입력 파일 리스트가 비어있습니다.");
         }
+        try (MacroMerger merger = new MacroMerger(outputFile, resultFileName, count, inputFiles.size(), out)) {
+            if (parallelMerge) {
+                Fragment[] fragments = new Fragment[inputFiles.size()];
+                String[] fileNames = new String[inputFiles.size()];
+                for (int i = 0; i < fragments.length; i++) {
+                    fragments[i] = fragmentCache.get(inputFiles.get(i));
+                    fileNames[i] = new File(inputFiles.get(i)).getName().replace(".json", "");
+                }
+                return merger.finishParallel(fragments, inputFiles.toArray(new String[0]), fileNames);
+            }
+            for (int i = 0; i < inputFiles.size() - 1; i++) {
+                merger.addFile(inputFiles.get(i));
+            }
+            return merger.finishFile(inputFiles.get(inputFiles.size() - 1));
+        }
+    }
 
-        JsonNode firstJson = mapper.readTree(new File(inputFiles.get(0)));
+    /**
+     * 조각을 받는 대로 결과 파일에 병합하는 PlanSink
+     * ScriptBuilder에 바로 넘기면 계획 전체를 배열로 만들지 않고 조각이 나오는 대로 읽고 쓴다.
+     * 스크립트 종료 조각(마지막 파일)은 finish로 넘기고, 받은 조각 없이 닫으면 결과 파일을 만들지 않는다.
+     * PlanSink는 IOException을 던질 수 없으므로 조각 읽기/쓰기 실패는 UncheckedIOException으로 감싼다.
+     */
+    private static class MacroMerger implements PlanSink, Closeable {
+        // 파이프라인 병합에서 미리 읽어 둘 조각 수와 쓰기 큐 크기
+        private static final int PIPELINE_DEPTH = 16;
+
+        private final File output;
+        private final String outputFile;
+        private final String resultFileName;
+        private final String count;
+        // 전체 조각 수 (진행 표시용, 모르면 -1)
+        private final int expectedCount;
+        private final PrintStream out;
+        // 조각마다 진행 상황을 출력할지 여부 (logLevel이 debug일 때)
+        private final boolean verbose = logLevel.shows(GenerationLog.Level.DEBUG);
+
+        // 이벤트는 열 단위 버퍼에 ms만 밀어서 붙이고, JSON으로는 출력할 때만 바꾼다
+        // 그룹이 쓰지 않는 매크로를 스트리밍으로 쓸 때는 조각마다 비우고 다시 채운다
+        private final EventBuffer mergedEvents = new EventBuffer(1024);
+        // 그룹의 resultScripts에 있어서 병합한 레코드를 넘겨야 하는지 여부
+        private final boolean keepRecord;
+        // 로그 생성을 위한 StringBuilder
+        private final StringBuilder logBuilder = new StringBuilder();
+        // 병합 측정값 (출력 크기는 출력기를 닫은 뒤 close에서 채움)
+        private final GenerationMetrics.Macro stats = new GenerationMetrics.Macro();
+        // JFR 이벤트: 병합 전체와 결과 파일 쓰기 (쓰기는 파일을 열 때 시작)
+        private final FlightEvents.MacroMerge mergeEvent = new FlightEvents.MacroMerge();
+        private final FlightEvents.OutputWrite writeEvent = new FlightEvents.OutputWrite();
+        private ObjectNode r8;
+        private StreamingMacroWriter writer;
+        private long cumulativeMs;
+        private int totalEvents;
+        private int fileCount;
+        private String prevFileName = "";
+        private boolean completed;
+
+        // 구간 안의 조각은 모았다가 endSegment에서 미리 합친 묶음으로 붙임 (구간 캐시가 꺼져 있으면 null)
+        private ScriptPlan segment;
+        private int segmentDepth;
+
+        // 파이프라인 병합에서 읽기를 시작한 조각과 구간 (받은 순서대로 병합)
+        private final ArrayDeque<Pending> pending = new ArrayDeque<>();
+
+        MacroMerger(String outputFile, String resultFileName, String count, int expectedCount, PrintStream out) {
+            this.output = new File(outputFile);
+            this.outputFile = outputFile;
+            this.resultFileName = resultFileName;
+            this.count = count;
+            this.expectedCount = expectedCount;
+            this.out = out;
+            this.keepRecord = groupResultScripts.contains(resultFileName);
+            logBuilder.append("[").append(resultFileName).append(".json]\n");
+            mergeEvent.begin();
+        }
 
-        ObjectNode result = mapper.createObjectNode();
-        ObjectNode records = mapper.createObjectNode();
-        ObjectNode r8 = mapper.createObjectNode();
+        boolean isEmpty() {
+            return fileCount == 0 && pending.isEmpty();
+        }
 
-        JsonNode firstRecords = firstJson.get("records");
-        JsonNode firstRecord = firstRecords.fields().next().getValue();
-        copyMetadata(firstRecord, r8, resultFileName, count);
+        @Override
+        public MacroMerger add(int id) {
+            if (segment != null) {
+                segment.add(id);
+                return this;
+            }
+            try {
+                if (pipeline) {
+                    enqueue(new Pending(prefetchAt(id), FragmentSymbols.path(id), FragmentSymbols.name(id)));
+                } else {
+                    merge(fragmentAt(id), FragmentSymbols.path(id), FragmentSymbols.name(id), false);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
 
-        ArrayNode mergedEvents = mapper.createArrayNode();
-        long cumulativeMs = 0;
+        @Override
+        public void beginSegment() {
+            if (segmentDepth++ == 0 && segmentCache != null) {
+                segment = new ScriptPlan(16);
+            }
+        }
 
-        // 로그 생성을 위한 StringBuilder
-        StringBuilder logBuilder = new StringBuilder();
-        logBuilder.append("[").append(resultFileName).append(".json]\n");
+        @Override
+        public void endSegment() {
+            if (--segmentDepth > 0 || segment == null) {
+                return;
+            }
+            ScriptPlan ids = segment;
+            segment = null;
+            if (ids.size() < 2) {
+                for (int i = 0; i < ids.size(); i++) {
+                    add(ids.id(i));
+                }
+                return;
+            }
+            try {
+                if (pipeline) {
+                    enqueue(new Pending(ids));
+                } else {
+                    mergeSegment(ids);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
 
-        String prevFileName = "";
-        for (int i = 0; i < inputFiles.size(); i++) {
-            String filePath = inputFiles.get(i);
-            System.out.println("처리 중: " + filePath + " (" + (i + 1) + "/" + inputFiles.size() + ")");
+        /**
+         * 경로로 조각 하나 병합 (마지막 파일이 아닌 경우)
+         */
+        void addFile(String filePath) throws IOException {
+            if (pipeline) {
+                enqueue(new Pending(fragmentCache.prefetch(filePath), filePath, fileNameOf(filePath)));
+            } else {
+                merge(fragmentCache.get(filePath), filePath, fileNameOf(filePath), false);
+            }
+        }
 
-            // 파일명 추출 (로그용)
-            File f = new File(filePath);
-            String fileName = f.getName().replace(".json", "");
+        /**
+         * 마지막 조각을 붙이고 결과 파일을 마무리
+         */
+        MergeResult finish(int symbol) throws IOException {
+            drain();
+            merge(fragmentAt(symbol), FragmentSymbols.path(symbol), FragmentSymbols.name(symbol), true);
+            return complete();
+        }
 
-            // 가독성을 위한 줄바꿈 처리
-            // 1. 이전 파일이 캐릭터 변경이었으면 줄바꿈 (반복 종료 의미)
-            // 2. 현재 파일이 주요 시작점(daily_check, world_move 등)이면 줄바꿈
-            if (i > 0) {
-                if (prevFileName.startsWith("changeChar")
-                    ) {
-                    logBuilder.append("\n");
+        MergeResult finishFile(String filePath) throws IOException {
+            drain();
+            merge(fragmentCache.get(filePath), filePath, fileNameOf(filePath), true);
+            return complete();
+        }
+
+        /**
+         * 읽기를 시작해 두고, 미리 읽은 조각이 PIPELINE_DEPTH를 넘으면 가장 앞의 것을 병합
+         */
+        private void enqueue(Pending item) throws IOException {
+            pending.add(item);
+            if (pending.size() > PIPELINE_DEPTH) {
+                mergeNext();
+            }
+        }
+
+        private void drain() throws IOException {
+            while (!pending.isEmpty()) {
+                mergeNext();
+            }
+        }
+
+        private void mergeNext() throws IOException {
+            Pending item = pending.poll();
+            if (item.segment != null) {
+                mergeSegment(item.segment);
+            } else {
+                merge(await(item.fragment), item.filePath, item.fileName, false);
+            }
+        }
+
+        /**
+         * 조각 전체(마지막 파일 포함)를 묶음으로 나눠 병렬로 병합하고 결과 파일을 마무리 (parallelMerge)
+         */
+        MergeResult finishParallel(Fragment[] fragments, String[] filePaths, String[] fileNames) throws IOException {
+            open(fragments[0]);
+            for (int i = 0; i < fragments.length; i++) {
+                appendLog(fileNames[i], i == fragments.length - 1);
+                stats.bytesRead += fragments[i].getSourceBytes();
+                EventBuffer events = fragments[i].getEventBuffer();
+                if (events == null || events.size() == 0) {
+                    out.println("경고: " + filePaths[i] + " 파일에 events가 없습니다.");
+                }
+            }
+
+            // spliceWriter가 꺼져 있으면 묶음을 렌더링하지 않고 병합 버퍼에 붙인 뒤 writeEvents로 쓴다
+            boolean render = writer != null && spliceWriter;
+            ParallelMerge merge = new ParallelMerge(fragments);
+            ParallelMerge.Chunk[] chunks = merge.run(render);
+            for (int c = 0; c < chunks.length; c++) {
+                ParallelMerge.Chunk chunk = chunks[c];
+                if (verbose) {
+                    out.println("처리 중: 묶음 " + (c + 1) + "/" + chunks.length
+                        + " (" + (chunk.from + 1) + "-" + chunk.to + "/" + fragments.length + ")");
                 }
+                if (!keepEvents()) {
+                    mergedEvents.clear();
+                }
+                int start = mergedEvents.size();
+                mergedEvents.appendShifted(chunk.events, 0, true);
+                if (render) {
+                    writer.writeRendered(chunk.bytes, chunk.events.size());
+                } else if (writer != null) {
+                    writer.writeEvents(mergedEvents, start);
+                }
+            }
+
+            cumulativeMs = merge.getDurationMs();
+            totalEvents = merge.getEventCount();
+            if (verbose) {
+                out.println("완료: " + totalEvents + "개 이벤트 추가, 누적 ms: " + cumulativeMs);
+            }
+            return complete();
+        }
+
+        private static String fileNameOf(String filePath) {
+            return new File(filePath).getName().replace(".json", "");
+        }
+
+        private void merge(Fragment fragment, String filePath, String fileName, boolean isLastFile) throws IOException {
+            open(fragment);
+            if (verbose) {
+                out.println("처리 중: " + filePath + " (" + progress(fileCount + 1) + ")");
+            }
+            appendLog(fileName, isLastFile);
+            stats.bytesRead += fragment.getSourceBytes();
+
+            EventBuffer currentEvents = fragment.getEventBuffer();
+            if (currentEvents == null || currentEvents.size() == 0) {
+                out.println("경고: " + filePath + " 파일에 events가 없습니다.");
+                return;
+            }
+
+            // 타입이 18446744073709551615인 스크립트 종료 이벤트는 마지막 파일에서만 추가
+            append(currentEvents, writer != null && spliceWriter ? fragment.getSpliceTemplate() : null, isLastFile);
+        }
+
+        /**
+         * script* 구간은 미리 합친 이벤트 묶음을 한 번에 밀어서 붙임
+         */
+        private void mergeSegment(ScriptPlan ids) throws IOException {
+            open(fragmentAt(ids.id(0)));
+            if (verbose) {
+                out.println("처리 중: 구간 " + (fileCount + 1) + "-" + progress(fileCount + ids.size())
+                    + " (" + ids.size() + "개 조각)");
+            }
+            for (int i = 0; i < ids.size(); i++) {
+                appendLog(ids.name(i), false);
+            }
+
+            SegmentCache.Segment cached = segmentCache.get(ids, 0, ids.size());
+            stats.bytesRead += cached.getSourceBytes();
+            append(cached.getEvents(), writer != null && spliceWriter ? cached.getSpliceTemplate() : null, false);
+        }
+
+        /**
+         * 첫 조각의 메타데이터로 결과 헤더 준비 (스트리밍이면 이때 결과 파일을 연다)
+         */
+        private void open(Fragment first) throws IOException {
+            if (r8 != null) {
+                return;
+            }
+            r8 = mapper.createObjectNode();
+            copyMetadata(first.getMetadata(), r8, resultFileName, count);
+            if (streamingWriter) {
+                writeEvent.begin();
+                // 파이프라인 병합이면 쓰기는 별도 스레드에서 (렌더링한 바이트만 받음)
+                writer = pipeline
+                    ? new PipelinedMacroWriter(mapper, output, PIPELINE_DEPTH)
+                    : new StreamingMacroWriter(mapper, output);
+                writer.writeHeader(r8);
+            }
+        }
+
+        private void append(EventBuffer events, SpliceTemplate template, boolean isLastFile) throws IOException {
+            if (!keepEvents()) {
+                mergedEvents.clear();
+            }
+            int start = mergedEvents.size();
+            int addedCount = mergedEvents.appendShifted(events, cumulativeMs, isLastFile);
+            if (template != null) {
+                writer.writeSpliced(template, cumulativeMs, isLastFile);
+            } else if (writer != null) {
+                writer.writeEvents(mergedEvents, start);
+            }
+
+            if (addedCount > 0) {
+                // 마지막으로 추가한 이벤트의 원래 ms만큼 누적
+                cumulativeMs = mergedEvents.getMs(mergedEvents.size() - 1);
+            }
+
+            totalEvents += addedCount;
+            if (verbose) {
+                out.println("완료: " + addedCount + "개 이벤트 추가, 누적 ms: " + cumulativeMs);
+            }
+        }
+
+        /**
+         * 병합한 이벤트를 끝까지 모아 둬야 하는지 (그룹에 넘길 레코드이거나, 트리 방식으로 마지막에 한 번에 쓸 때)
+         */
+        private boolean keepEvents() {
+            return keepRecord || writer == null;
+        }
+
+        private void appendLog(String fileName, boolean isLastFile) {
+            // 가독성을 위한 줄바꿈 처리
+            // 이전 파일이 캐릭터 변경이었으면 줄바꿈 (반복 종료 의미)
+            if (fileCount > 0 && prevFileName.startsWith("changeChar")) {
+                logBuilder.append("\n");
             }
 
             logBuilder.append(fileName);
-            if (i < inputFiles.size() - 1) {
+            if (!isLastFile) {
                 logBuilder.append(" > ");
             }
-            
+
             prevFileName = fileName;
+            fileCount++;
+        }
 
-            JsonNode currentJson = mapper.readTree(f);
-            JsonNode currentRecords = currentJson.get("records");
-            JsonNode currentRecord = currentRecords.fields().next().getValue();
-            ArrayNode currentEvents = (ArrayNode) currentRecord.get("events");
+        private String progress(int index) {
+            return expectedCount > 0 ? index + "/" + expectedCount : String.valueOf(index);
+        }
 
-            if (currentEvents == null || currentEvents.size() == 0) {
-                System.out.println("경고: " + filePath + " 파일에 events가 없습니다.");
-                continue;
+        private MergeResult complete() throws IOException {
+            if (writer != null) {
+                writer.finish();
+            } else {
+                // r8은 MergedRecord의 메타데이터로도 쓰이므로 복사본에 events를 붙인다
+                ObjectNode result = mapper.createObjectNode();
+                ObjectNode records = mapper.createObjectNode();
+                ObjectNode r8WithEvents = r8.deepCopy();
+                r8WithEvents.set("events", mergedEvents.toArrayNode(mapper.createArrayNode()));
+                records.set("r8", r8WithEvents);
+                result.set("records", records);
+
+                writeEvent.begin();
+                mapper.writerWithDefaultPrettyPrinter().writeValue(output, result);
             }
+            completed = true;
 
-            // 마지막 파일인지 확인 (script_end.json)
-            boolean isLastFile = (i == inputFiles.size() - 1);
-            int addedCount = 0;
-            long lastValidMs = 0;
+            logBuilder.append("\nTotal Duration: ").append(cumulativeMs).append(" ms\n\n");
 
-            for (JsonNode event : currentEvents) {
-                // type이 18446744073709551615인 경우 마지막 파일이 아니면 스킵
-                String eventType = event.has("type") ? event.get("type").asText() : "";
-                if ("18446744073709551615".equals(eventType) && !isLastFile) {
-                    continue; // 스크립트 종료 이벤트는 마지막에만 추가
+            info(out, "\n=== 합치기 완료 ===");
+            info(out, "총 " + fileCount + "개 파일 처리");
+            info(out, "총 " + totalEvents + "개 이벤트");
+            info(out, "결과 파일: " + outputFile);
+
+            stats.name = resultFileName;
+            stats.fragments = fileCount;
+            stats.events = totalEvents;
+            stats.durationMs = cumulativeMs;
+            MergedRecord record = keepRecord ? new MergedRecord(resultFileName, r8, mergedEvents) : null;
+            return new MergeResult(logBuilder.toString(), record, stats);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } finally {
+                    // 스트리밍 중 실패하면 반쯤 쓴 결과 파일을 남기지 않는다
+                    if (!completed) {
+                        output.delete();
+                    }
                 }
+            }
+            if (completed) {
+                stats.bytesWritten = output.length();
+                commitEvents();
+            }
+        }
 
-                ObjectNode newEvent = event.deepCopy();
-                long originalMs = event.get("ms").asLong();
-                long adjustedMs = originalMs + cumulativeMs;
-                newEvent.put("ms", String.valueOf(adjustedMs));
-                mergedEvents.add(newEvent);
-                addedCount++;
-                lastValidMs = originalMs;
+        private void commitEvents() {
+            writeEvent.record(outputFile, "macro", stats.bytesWritten);
+            mergeEvent.end();
+            if (mergeEvent.shouldCommit()) {
+                mergeEvent.macro = resultFileName;
+                mergeEvent.fragments = stats.fragments;
+                mergeEvent.events = stats.events;
+                mergeEvent.outputBytes = stats.bytesWritten;
+                mergeEvent.playbackMs = stats.durationMs;
+                mergeEvent.commit();
             }
+        }
 
-            if (addedCount > 0) {
-                cumulativeMs += lastValidMs;
+        /**
+         * 병합을 기다리는 조각 하나 또는 구간 하나
+         */
+        private static class Pending {
+            final CompletableFuture<Fragment> fragment;
+            final String filePath;
+            final String fileName;
+            final ScriptPlan segment;
+
+            Pending(CompletableFuture<Fragment> fragment, String filePath, String fileName) {
+                this.fragment = fragment;
+                this.filePath = filePath;
+                this.fileName = fileName;
+                this.segment = null;
             }
 
-            System.out.println("완료: " + addedCount + "개 이벤트 추가, 누적 ms: " + cumulativeMs);
+            Pending(ScriptPlan segment) {
+                this.fragment = null;
+                this.filePath = null;
+                this.fileName = null;
+                this.segment = segment;
+            }
         }
+    }
 
-        r8.set("events", mergedEvents);
-        records.set("r8", r8);
-        result.set("records", records);
+    /**
+     * ID로 조각 찾기 (대기 조각은 syntheticWaits가 켜져 있으면 파일을 읽지 않고 생성)
+     */
+    static Fragment fragmentAt(int symbol) throws IOException {
+        Fragment wait = syntheticWaitAt(symbol);
+        if (wait != null) {
+            return wait;
+        }
+        FragmentCatalog.Entry entry = catalogEntry(symbol);
+        if (entry != null) {
+            return fragmentCache.get(symbol, FragmentSymbols.path(symbol), entry.getLastModified(), entry.getSize());
+        }
+        return fragmentCache.get(symbol, FragmentSymbols.path(symbol));
+    }
 
-        mapper.writerWithDefaultPrettyPrinter().writeValue(new File(outputFile), result);
+    /**
+     * fragmentAt과 같지만 파일은 미리 읽기만 시작 (파이프라인 병합의 읽기 단계)
+     */
+    static CompletableFuture<Fragment> prefetchAt(int symbol) {
+        Fragment wait = syntheticWaitAt(symbol);
+        if (wait != null) {
+            return CompletableFuture.completedFuture(wait);
+        }
+        FragmentCatalog.Entry entry = catalogEntry(symbol);
+        if (entry != null) {
+            return fragmentCache.prefetch(symbol, FragmentSymbols.path(symbol), entry.getLastModified(), entry.getSize());
+        }
+        return fragmentCache.prefetch(symbol, FragmentSymbols.path(symbol));
+    }
 
-        // 로그 파일 기록
-        logBuilder.append("\nTotal Duration: ").append(cumulativeMs).append(" ms\n\n");
-        writeLog(logBuilder.toString());
+    /**
+     * 조각 목록에 있으면 목록의 파일 상태 반환 (목록이 없거나 목록에 없는 조각이면 null, 파일 상태를 직접 확인)
+     */
+    private static FragmentCatalog.Entry catalogEntry(int symbol) {
+        FragmentCatalog current = catalog;
+        return current != null ? current.get(symbol) : null;
+    }
 
-        System.out.println("\n=== 합치기 완료 ===");
-        System.out.println("총 " + inputFiles.size() + "개 파일 처리");
-        System.out.println("총 " + mergedEvents.size() + "개 이벤트");
-        System.out.println("결과 파일: " + outputFile);
+    /**
+     * 조각 목록에 있거나 메모리에서 만들 수 있는 대기 조각인지 여부
+     */
+    private static boolean isAvailable(FragmentCatalog catalog, int symbol) {
+        return catalog.contains(symbol)
+            || syntheticWaits && WaitFragments.durationMs(FragmentSymbols.name(symbol)) >= 0;
+    }
+
+    private static Fragment syntheticWaitAt(int symbol) {
+        if (!syntheticWaits) {
+            return null;
+        }
+        return WaitFragments.get(FragmentSymbols.name(symbol), FragmentSymbols.path(symbol));
     }
 
+    /**
+     * generation_log.txt에 기록 (생성 실행 중이면 열어 둔 기록기로 넘기고, 아니면 바로 이어 씀)
+     */
     private static void writeLog(String content) {
+        GenerationLog log = generationLog;
+        if (log != null) {
+            log.write(content);
+            return;
+        }
         try (java.io.FileWriter fw = new java.io.FileWriter(LOG_FILE_PATH, true)) {
             fw.write(content);
         } catch (IOException e) {
@@ -484,10 +1701,28 @@ public class JsonMergerMultiple {
         }
     }
 
+    /**
+     * 진행 상황 출력 (logLevel이 info 이하일 때)
+     */
+    private static void info(PrintStream out, String line) {
+        if (logLevel.shows(GenerationLog.Level.INFO)) {
+            out.println(line);
+        }
+    }
+
+    /**
+     * 파일 하나 단위의 상세 출력 (logLevel이 debug일 때)
+     */
+    private static void debug(PrintStream out, String line) {
+        if (logLevel.shows(GenerationLog.Level.DEBUG)) {
+            out.println(line);
+        }
+    }
+
     /**
      * 첫 번째 파일의 메타데이터를 결과 JSON에 복사
      */
-    private static void copyMetadata(JsonNode sourceR8, ObjectNode targetR8, String resultFileName, String count) {
+    static void copyMetadata(JsonNode sourceR8, ObjectNode targetR8, String resultFileName, String count) {
         if (sourceR8.has("version")) {
             targetR8.put("version", sourceR8.get("version").asText());
         }
@@ -0,0 +1,122 @@
+package org.dk;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.dk.merge.Fragment;
+import org.dk.merge.FragmentStats;
+import org.dk.script.Config;
+import org.dk.script.MacroConfig;
+import org.dk.script.ScriptPlan;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Iterator;
+
+/**
+ * 예상 실행 시간 계산 (JsonMergerMultiple plan)
+ * 정의마다 ScriptBuilder 계획을 만들고 조각별 요약(FragmentStats)만 더해서
+ * 결과 파일을 쓰지 않고 실행 시간, 이벤트 수, 결과 파일 크기를 계산한다.
+ * 실행 시간과 이벤트 수는 실제 생성 결과와 같고, 크기는 ms 자릿수를 어림한 값이다.
+ */
+public class MacroPlanner {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private MacroPlanner() {
+    }
+
+    /**
+     * 정의 파일 전체의 예상 결과를 out으로 출력
+     */
+    public static void run(PrintStream out) throws IOException {
+        MacroConfig macroConfig = MacroConfig.getInstance();
+        JsonMergerMultiple.loadOptions(macroConfig);
+        String sidunEvent = macroConfig.getCurrentSidunEvent();
+        String dungeonEvent = macroConfig.getCurrentDungeonEvent();
+
+        JsonNode macros = mapper.readTree(new File(JsonMergerMultiple.DEFINITIONS_PATH)).get("macros");
+        // 계획 최적화 등 생성 과정의 출력은 버림
+        PrintStream quiet = new PrintStream(OutputStream.nullOutputStream());
+
+        out.println("=== 예상 실행 시간 (파일 생성 없음) ===");
+        int macroCount = 0;
+        long totalEvents = 0;
+        long totalBytes = 0;
+
+        Iterator<String> categoryNames = macros.fieldNames();
+        while (categoryNames.hasNext()) {
+            String category = categoryNames.next();
+            out.println("\n--- 카테고리: " + category + " ---");
+
+            for (JsonNode macroDef : macros.get(category)) {
+                String name = JsonMergerMultiple.normalizeFileName(macroDef.get("name").asText());
+                JsonNode configNode = macroDef.get("config");
+                Config config = JsonMergerMultiple.buildConfig(configNode, sidunEvent, dungeonEvent);
+                ScriptPlan plan = JsonMergerMultiple.buildPlan(macroDef.get("type").asText(), config, configNode, quiet);
+                if (plan == null || plan.isEmpty()) {
+                    out.println(name + ": 생성할 스크립트 없음");
+                    continue;
+                }
+
+                Estimate estimate = estimate(name, plan);
+                out.printf("%s: %s (%d ms), 이벤트 %d개, 예상 크기 %,d bytes%n",
+                    name, formatDuration(estimate.durationMs), estimate.durationMs, estimate.events, estimate.bytes);
+                macroCount++;
+                totalEvents += estimate.events;
+                totalBytes += estimate.bytes;
+            }
+        }
+
+        out.printf("%n총 %d개 매크로, 이벤트 %d개, 예상 크기 %,d bytes%n", macroCount, totalEvents, totalBytes);
+    }
+
+    /**
+     * 계획 뒤에 script_end를 붙여 병합했을 때의 결과 계산 (mergeJsonFiles와 같은 누적 규칙)
+     */
+    static Estimate estimate(String resultFileName, ScriptPlan plan) throws IOException {
+        Estimate estimate = new Estimate();
+        long eventBytes = 0;
+        int count = plan.size() + 1;
+
+        for (int i = 0; i < count; i++) {
+            boolean lastFile = i == count - 1;
+            int symbol = lastFile ? JsonMergerMultiple.SCRIPT_END : plan.id(i);
+            FragmentStats stats = JsonMergerMultiple.fragmentAt(symbol).getStats();
+
+            int added = stats.events(lastFile);
+            if (added == 0) {
+                continue;
+            }
+            long endMs = estimate.durationMs + stats.advanceMs(lastFile);
+            eventBytes += stats.bytes(lastFile, endMs);
+            estimate.events += added;
+            estimate.durationMs = endMs;
+        }
+
+        // 메타데이터와 빈 events 배열("[ ]")을 렌더링한 크기에 이벤트와 구분자(" ", ", ")를 더함
+        Fragment first = JsonMergerMultiple.fragmentAt(plan.id(0));
+        ObjectNode root = mapper.createObjectNode();
+        ObjectNode r8 = root.putObject("records").putObject("r8");
+        JsonMergerMultiple.copyMetadata(first.getMetadata(), r8, resultFileName, "1");
+        r8.putArray("events");
+        estimate.bytes = mapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(root).length;
+        if (estimate.events > 0) {
+            estimate.bytes += eventBytes + 2 * estimate.events - 1;
+        }
+        return estimate;
+    }
+
+    private static String formatDuration(long ms) {
+        long seconds = ms / 1000;
+        return String.format("%d:%02d:%02d", seconds / 3600, seconds % 3600 / 60, seconds % 60);
+    }
+
+    static class Estimate {
+        long durationMs;
+        long events;
+        long bytes;
+    }
+}
@@ -0,0 +1,109 @@
+package org.dk;
+
+import org.dk.script.MacroConfig;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * 감시 모드 (JsonMergerMultiple watch)
+ * macro/ 폴더와 macro-definitions.json, macro-config.json이 바뀌면 같은 JVM에서 다시 생성한다.
+ * 항상 증분 생성으로 돌리므로 바뀐 조각을 쓰는 매크로와 그 매크로를 포함한 그룹만 다시 쓰이고,
+ * 조각 캐시도 실행 사이에 그대로 유지된다.
+ */
+public class MacroWatcher {
+
+    private static final Path MACRO_DIR = Paths.get("src/main/resources/macro");
+    private static final Path RESOURCES_DIR = Paths.get("src/main/resources");
+    private static final String DEFINITIONS_FILE = "macro-definitions.json";
+    private static final String CONFIG_FILE = "macro-config.json";
+
+    private final long debounceMs;
+
+    public MacroWatcher(long debounceMs) {
+        this.debounceMs = debounceMs;
+    }
+
+    /**
+     * 한 번 생성한 뒤 변경을 기다리며 계속 다시 생성 (인터럽트될 때까지)
+     */
+    public void run() throws IOException, InterruptedException {
+        regenerate();
+
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            MACRO_DIR.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+            RESOURCES_DIR.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+            System.out.println("\n=== 변경 감시 시작: " + MACRO_DIR + ", " + DEFINITIONS_FILE + ", " + CONFIG_FILE + " (종료: Ctrl+C) ===");
+
+            while (true) {
+                Set<String> changed = new TreeSet<>();
+                collect(watchService.take(), changed);
+
+                // 에디터가 저장할 때 연달아 들어오는 이벤트는 debounceMs 동안 조용해질 때까지 모은다
+                WatchKey key;
+                while ((key = watchService.poll(debounceMs, TimeUnit.MILLISECONDS)) != null) {
+                    collect(key, changed);
+                }
+                if (changed.isEmpty()) {
+                    continue;
+                }
+
+                System.out.println("\n=== 변경 감지: " + String.join(", ", changed) + " ===");
+                if (changed.contains(CONFIG_FILE)) {
+                    MacroConfig.getInstance().reload();
+                }
+                regenerate();
+            }
+        }
+    }
+
+    /**
+     * 감시 대상 파일의 변경만 골라서 changed에 추가
+     */
+    private void collect(WatchKey key, Set<String> changed) {
+        Path dir = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                // 이벤트가 유실되어도 증분 생성이 지문으로 모든 입력을 다시 확인한다
+                changed.add("(변경 이벤트 유실)");
+                continue;
+            }
+
+            String fileName = event.context().toString();
+            if (dir.equals(MACRO_DIR)) {
+                if (fileName.endsWith(".json")) {
+                    changed.add("macro/" + fileName);
+                }
+            } else if (DEFINITIONS_FILE.equals(fileName) || CONFIG_FILE.equals(fileName)) {
+                changed.add(fileName);
+            }
+        }
+        key.reset();
+    }
+
+    /**
+     * 증분 생성 한 번 (실패해도 감시는 계속)
+     */
+    private void regenerate() {
+        long start = System.currentTimeMillis();
+        try {
+            JsonMergerMultiple.generate(true);
+            System.out.println("다시 생성 완료 (" + (System.currentTimeMillis() - start) + " ms)");
+        } catch (IOException | RuntimeException e) {
+            System.err.println("생성 실패: " + e.getMessage() + " (파일을 고치면 다시 시도합니다)");
+        }
+    }
+}
@@ -0,0 +1,402 @@
+package org.dk.merge;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * 이벤트 목록의 열(column) 단위 표현
+ * ms는 long[]에, 나머지 문자열 필드(position.x/y, type, detail, data)는 전역 문자열 표의 int 번호로 보관한다.
+ * 좌표나 type을 숫자로 바꾸면 "0"과 "0.0"처럼 원본 문자열이 달라질 수 있어 문자열 그대로 번호만 매긴다.
+ * (type의 종료 이벤트 값 18446744073709551615는 long 범위도 넘는다)
+ *
+ * 형식이 다른 이벤트(필드 구성이나 순서가 다르거나 문자열이 아닌 값, "007"처럼 숫자로 바꾸면 달라지는 ms)는
+ * 원본 노드를 옆 표에 두고 ms만 열에 넣는다.
+ * JSON 노드와의 변환은 조각을 읽을 때(of)와 결과를 쓸 때(writeEvents, toArrayNode)만 일어난다.
+ *
+ * 문자열 표는 프로세스 전역이고 번호를 지우지 않는다. 캐시에서 제거한 조각의 번호도 다른 조각과 병합 버퍼가 쓸 수 있기 때문이다.
+ * 녹화 값의 종류(좌표, detail 등)만큼만 커지며 조각 캐시 예산(fragmentCacheMb)에는 들어가지 않는다.
+ */
+public class EventBuffer {
+
+    private static final StringTable strings = new StringTable();
+    private static final int END_MARKER = strings.intern(Fragment.END_MARKER_TYPE);
+
+    private static final String[] FIELDS = {"position", "ms", "type", "detail", "data"};
+    private static final String[] POSITION_FIELDS = {"x", "y"};
+
+    private int size;
+    private long[] ms;
+    private int[] x;
+    private int[] y;
+    private int[] type;
+    private int[] detail;
+    private int[] data;
+
+    // 형식이 다른 이벤트의 원본 (하나도 없으면 null)
+    private JsonNode[] irregular;
+
+    public EventBuffer(int capacity) {
+        int initial = Math.max(capacity, 8);
+        this.ms = new long[initial];
+        this.x = new int[initial];
+        this.y = new int[initial];
+        this.type = new int[initial];
+        this.detail = new int[initial];
+        this.data = new int[initial];
+    }
+
+    /**
+     * events 배열을 열 표현으로 변환
+     */
+    public static EventBuffer of(ArrayNode events) {
+        EventBuffer buffer = new EventBuffer(events.size());
+        for (JsonNode event : events) {
+            buffer.add(event);
+        }
+        return buffer;
+    }
+
+    void add(JsonNode event) {
+        ensureCapacity(size + 1);
+        if (isRegular(event)) {
+            JsonNode position = event.get("position");
+            ms[size] = Long.parseLong(event.get("ms").textValue());
+            x[size] = strings.intern(position.get("x").textValue());
+            y[size] = strings.intern(position.get("y").textValue());
+            type[size] = strings.intern(event.get("type").textValue());
+            detail[size] = strings.intern(event.get("detail").textValue());
+            data[size] = strings.intern(event.get("data").textValue());
+        } else {
+            if (irregular == null) {
+                irregular = new JsonNode[ms.length];
+            }
+            JsonNode msNode = event.get("ms");
+            ms[size] = msNode != null ? msNode.asLong() : 0;
+            type[size] = Fragment.isEndMarker(event) ? END_MARKER : -1;
+            irregular[size] = event;
+        }
+        size++;
+    }
+
+    /**
+     * {"position": {"x", "y"}, "ms", "type", "detail", "data"} 순서에 값이 모두 문자열이고
+     * ms가 숫자로 바꿨다가 다시 써도 같은 문자열인 이벤트인지 확인
+     */
+    private static boolean isRegular(JsonNode event) {
+        if (!hasTextFields(event, FIELDS, 1) || !hasTextFields(event.get("position"), POSITION_FIELDS, 0)) {
+            return false;
+        }
+        String ms = event.get("ms").textValue();
+        try {
+            return String.valueOf(Long.parseLong(ms)).equals(ms);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static boolean hasTextFields(JsonNode node, String[] names, int from) {
+        if (node == null || !node.isObject() || node.size() != names.length) {
+            return false;
+        }
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        for (int i = 0; i < names.length; i++) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (!names[i].equals(field.getKey())) {
+                return false;
+            }
+            if (i >= from && !field.getValue().isTextual()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * source의 이벤트를 offset만큼 밀어서 뒤에 추가하고 추가한 개수를 반환
+     *
+     * @param includeEndMarker false면 스크립트 종료 이벤트는 건너뜀 (마지막 파일만 true)
+     */
+    public int appendShifted(EventBuffer source, long offset, boolean includeEndMarker) {
+        ensureCapacity(size + source.size);
+        int start = size;
+        for (int i = 0; i < source.size; i++) {
+            if (!includeEndMarker && source.type[i] == END_MARKER) {
+                continue;
+            }
+            ms[size] = source.ms[i] + offset;
+            x[size] = source.x[i];
+            y[size] = source.y[i];
+            type[size] = source.type[i];
+            detail[size] = source.detail[i];
+            data[size] = source.data[i];
+            if (source.irregular != null && source.irregular[i] != null) {
+                if (irregular == null) {
+                    irregular = new JsonNode[ms.length];
+                }
+                irregular[size] = source.irregular[i];
+            }
+            size++;
+        }
+        return size - start;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 이벤트를 모두 지움 (배열은 그대로 두고 다시 채움)
+     */
+    public void clear() {
+        if (irregular != null) {
+            Arrays.fill(irregular, 0, size, null);
+        }
+        size = 0;
+    }
+
+    /**
+     * 열 배열이 차지하는 대략적인 바이트 수 (조각 캐시 예산용, 형식이 다른 이벤트의 원본 노드는 제외)
+     */
+    public long retainedBytes() {
+        long bytes = (long) ms.length * Long.BYTES + 5L * x.length * Integer.BYTES;
+        if (irregular != null) {
+            bytes += (long) irregular.length * Long.BYTES;
+        }
+        return bytes;
+    }
+
+    public long getMs(int index) {
+        return ms[index];
+    }
+
+    public boolean isEndMarker(int index) {
+        return type[index] == END_MARKER;
+    }
+
+    /**
+     * index번째 이벤트의 문자열 값(x, y, type, detail, data)이 결과 파일에서 차지하는 바이트 합 (형식이 다른 이벤트면 -1)
+     * 렌더링하지 않고 JSON 이스케이프와 UTF-8 길이만 센다.
+     */
+    long textBytes(int index) {
+        if (irregular != null && irregular[index] != null) {
+            return -1;
+        }
+        return jsonLength(strings.get(x[index])) + jsonLength(strings.get(y[index]))
+            + jsonLength(strings.get(type[index])) + jsonLength(strings.get(detail[index]))
+            + jsonLength(strings.get(data[index]));
+    }
+
+    /**
+     * 따옴표를 뺀 JSON 문자열 값의 UTF-8 바이트 수 (JsonGenerator 기본 이스케이프 기준)
+     * UTF-8 JsonGenerator는 BMP 밖의 문자(서로게이트 쌍)를 유니코드 이스케이프 두 개로 쓰므로 서로게이트 문자마다 6바이트로 센다.
+     */
+    static int jsonLength(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\' || c == '\b' || c == '\t' || c == '\n' || c == '\f' || c == '\r') {
+                length += 2;
+            } else if (c < 0x20) {
+                length += 6;
+            } else if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isSurrogate(c)) {
+                length += 6;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * 형식이 다른 이벤트(원본 노드로 보관한 이벤트)가 있는지 여부
+     */
+    public boolean hasIrregular() {
+        if (irregular == null) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (irregular[i] != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 조각 라이브러리용 열 기록 (문자열 번호는 toPackId로 라이브러리 번호로 바꿔서 기록)
+     * 형식이 다른 이벤트가 있는 버퍼는 기록할 수 없다.
+     */
+    void writeColumns(DataOutputStream out, IntUnaryOperator toPackId) throws IOException {
+        if (hasIrregular()) {
+            throw new IllegalStateException("형식이 다른 이벤트가 있어 열로 기록할 수 없습니다.");
+        }
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeLong(ms[i]);
+        }
+        for (int[] column : new int[][]{x, y, type, detail, data}) {
+            for (int i = 0; i < size; i++) {
+                out.writeInt(toPackId.applyAsInt(column[i]));
+            }
+        }
+    }
+
+    /**
+     * writeColumns로 기록한 열 읽기 (packStrings는 라이브러리 번호 -> 전역 번호)
+     */
+    static EventBuffer readColumns(ByteBuffer in, int[] packStrings) {
+        int count = in.getInt();
+        EventBuffer buffer = new EventBuffer(count);
+        in.asLongBuffer().get(buffer.ms, 0, count);
+        in.position(in.position() + count * Long.BYTES);
+        for (int[] column : new int[][]{buffer.x, buffer.y, buffer.type, buffer.detail, buffer.data}) {
+            in.asIntBuffer().get(column, 0, count);
+            in.position(in.position() + count * Integer.BYTES);
+            for (int i = 0; i < count; i++) {
+                column[i] = packStrings[column[i]];
+            }
+        }
+        buffer.size = count;
+        return buffer;
+    }
+
+    static int intern(String value) {
+        return strings.intern(value);
+    }
+
+    static String lookup(int id) {
+        return strings.get(id);
+    }
+
+    /**
+     * from번째부터 끝까지의 이벤트를 현재 위치(배열 안)에 기록
+     */
+    public void writeEvents(JsonGenerator gen, int from) throws IOException {
+        for (int i = from; i < size; i++) {
+            writeEvent(gen, i, ms[i]);
+        }
+    }
+
+    /**
+     * 이벤트를 읽은 그대로 현재 위치(배열 안)에 기록 (형식이 다른 이벤트는 원본 노드를 그대로 기록)
+     */
+    public void writeOriginalEvents(JsonGenerator gen) throws IOException {
+        for (int i = 0; i < size; i++) {
+            if (irregular != null && irregular[i] != null) {
+                gen.writeTree(irregular[i]);
+            } else {
+                writeEvent(gen, i, ms[i]);
+            }
+        }
+    }
+
+    /**
+     * i번째 이벤트를 ms 값만 msValue로 바꿔서 기록
+     */
+    void writeEvent(JsonGenerator gen, int i, long msValue) throws IOException {
+        if (irregular != null && irregular[i] != null) {
+            StreamingMacroWriter.writeShiftedEvent(gen, irregular[i], msValue);
+            return;
+        }
+        gen.writeStartObject();
+        gen.writeFieldName("position");
+        gen.writeStartObject();
+        gen.writeStringField("x", strings.get(x[i]));
+        gen.writeStringField("y", strings.get(y[i]));
+        gen.writeEndObject();
+        gen.writeStringField("ms", String.valueOf(msValue));
+        gen.writeStringField("type", strings.get(type[i]));
+        gen.writeStringField("detail", strings.get(detail[i]));
+        gen.writeStringField("data", strings.get(data[i]));
+        gen.writeEndObject();
+    }
+
+    /**
+     * 트리 방식 출력용 events 배열 생성
+     */
+    public ArrayNode toArrayNode(ArrayNode target) {
+        for (int i = 0; i < size; i++) {
+            if (irregular != null && irregular[i] != null) {
+                ObjectNode event = irregular[i].deepCopy();
+                event.put("ms", String.valueOf(ms[i]));
+                target.add(event);
+                continue;
+            }
+            ObjectNode event = target.addObject();
+            ObjectNode position = event.putObject("position");
+            position.put("x", strings.get(x[i]));
+            position.put("y", strings.get(y[i]));
+            event.put("ms", String.valueOf(ms[i]));
+            event.put("type", strings.get(type[i]));
+            event.put("detail", strings.get(detail[i]));
+            event.put("data", strings.get(data[i]));
+        }
+        return target;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ms.length) {
+            return;
+        }
+        int capacity = Math.max(required, ms.length * 2);
+        ms = Arrays.copyOf(ms, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        type = Arrays.copyOf(type, capacity);
+        detail = Arrays.copyOf(detail, capacity);
+        data = Arrays.copyOf(data, capacity);
+        if (irregular != null) {
+            irregular = Arrays.copyOf(irregular, capacity);
+        }
+    }
+
+    /**
+     * 프로세스 전역 문자열 표 (같은 문자열은 같은 번호)
+     * 번호 발급은 조각을 읽을 때만 일어나므로 동기화하고, 조회는 volatile 배열로 잠금 없이 한다.
+     */
+    private static class StringTable {
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+        private volatile String[] values = new String[256];
+        private int count;
+
+        int intern(String value) {
+            Integer id = ids.get(value);
+            if (id != null) {
+                return id;
+            }
+            synchronized (this) {
+                id = ids.get(value);
+                if (id != null) {
+                    return id;
+                }
+                String[] table = values;
+                if (count == table.length) {
+                    table = Arrays.copyOf(table, table.length * 2);
+                }
+                table[count] = value;
+                values = table;
+                ids.put(value, count);
+                return count++;
+            }
+        }
+
+        String get(int id) {
+            return values[id];
+        }
+    }
+}
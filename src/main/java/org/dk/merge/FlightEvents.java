@@ -0,0 +1,118 @@
+package org.dk.merge;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JDK Flight Recorder 이벤트 (-XX:StartFlightRecording으로 기록할 때만 남음)
+ * 기록 중이 아니면 begin/commit은 거의 비용이 없고, 필드는 shouldCommit()이 true일 때만 채운다.
+ * JDK Mission Control이나 jfr print --categories "Macro Generator"로 조각별, 매크로별 시간과 할당을 볼 수 있다.
+ */
+public final class FlightEvents {
+
+    private static final String CATEGORY = "Macro Generator";
+
+    private FlightEvents() {
+    }
+
+    /**
+     * 조각 파일 하나를 읽고 파싱 (캐시 실패, 그룹 파일의 입력 레코드)
+     */
+    @Name("org.dk.FragmentLoad")
+    @Label("Fragment Load")
+    @Description("조각 또는 결과 파일 하나를 읽고 파싱")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static class FragmentLoad extends Event {
+        @Label("Path")
+        public String path;
+
+        @Label("Source")
+        @Description("library, stream, tree, async, group")
+        public String source;
+
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+
+        /**
+         * 끝난 시각을 정하고 기록 중이면 필드를 채워서 남긴다
+         */
+        public void record(String path, String source, long bytes) {
+            end();
+            if (shouldCommit()) {
+                this.path = path;
+                this.source = source;
+                this.bytes = bytes;
+                commit();
+            }
+        }
+    }
+
+    /**
+     * 매크로 하나의 병합 (병합을 시작할 때부터 결과 파일을 닫을 때까지)
+     */
+    @Name("org.dk.MacroMerge")
+    @Label("Macro Merge")
+    @Description("매크로 하나의 조각 병합과 결과 파일 쓰기")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static class MacroMerge extends Event {
+        @Label("Macro")
+        public String macro;
+
+        @Label("Fragments")
+        public int fragments;
+
+        @Label("Events")
+        public long events;
+
+        @Label("Output Size")
+        @DataAmount
+        public long outputBytes;
+
+        @Label("Playback Duration")
+        @Timespan(Timespan.MILLISECONDS)
+        public long playbackMs;
+    }
+
+    /**
+     * 결과 파일 하나 쓰기 (파일을 열 때부터 닫을 때까지)
+     */
+    @Name("org.dk.OutputWrite")
+    @Label("Output Write")
+    @Description("결과 파일 하나 쓰기")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static class OutputWrite extends Event {
+        @Label("Path")
+        public String path;
+
+        @Label("Kind")
+        @Description("macro, group")
+        public String kind;
+
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+
+        /**
+         * 쓰기를 끝내고 기록 중이면 남긴다
+         */
+        public void record(String path, String kind, long bytes) {
+            end();
+            if (shouldCommit()) {
+                this.path = path;
+                this.kind = kind;
+                this.bytes = bytes;
+                commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package org.dk.merge;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 파싱이 끝난 매크로 조각 하나
+ * records의 첫 번째 레코드(메타데이터 포함)와 events 배열, 병합에 쓰는 열 표현(EventBuffer)을 보관한다.
+ * 캐시에서 여러 병합 작업이 공유하므로 내부 노드를 수정하면 안 된다.
+ */
+public class Fragment {
+
+    // 스크립트 종료 이벤트 type (병합 시 마지막 파일에서만 유지)
+    public static final String END_MARKER_TYPE = "18446744073709551615";
+
+    // 메모리 어림값 계산용 (객체 자체 크기, JSON 트리가 원본 파일 크기의 몇 배인지)
+    private static final long OVERHEAD = 256;
+    private static final int TREE_FACTOR = 4;
+
+    private final String path;
+    private final EventBuffer eventBuffer;
+    private SpliceTemplate spliceTemplate;
+    private FragmentStats stats;
+
+    // 조각 라이브러리에서 읽은 조각은 이벤트 열만 가지고 있다가 트리를 처음 요청할 때 만든다
+    private Supplier<JsonNode> treeLoader;
+    private JsonNode root;
+    private JsonNode record;
+    // 스트리밍으로 읽은 조각은 events를 뺀 레코드와 레코드 안에서 events가 있던 위치를 따로 가지고 있다
+    private JsonNode metadata;
+    private int eventsIndex = -1;
+    private ArrayNode events;
+
+    // 원본 조각 파일 크기 (캐시에 넣을 때 기록, 메모리에서 만든 조각은 0)
+    private volatile long sourceBytes;
+    // 트리나 렌더링 바이트를 나중에 만들었을 때 부르는 콜백 (조각 캐시가 메모리 어림값을 다시 계산, 없으면 null)
+    private volatile Runnable growthListener;
+
+    public Fragment(String path, JsonNode root) {
+        this.path = path;
+        setTree(root);
+        this.eventBuffer = events != null ? EventBuffer.of(events) : null;
+    }
+
+    /**
+     * 이미 변환된 이벤트 열로 생성 (트리는 treeLoader로 필요할 때 만든다)
+     */
+    public Fragment(String path, EventBuffer eventBuffer, Supplier<JsonNode> treeLoader) {
+        this.path = path;
+        this.eventBuffer = eventBuffer;
+        this.treeLoader = treeLoader;
+    }
+
+    /**
+     * 스트리밍으로 읽은 이벤트 열과 events를 뺀 레코드로 생성 (전체 트리는 treeLoader로 필요할 때 만든다)
+     *
+     * @param eventsIndex 레코드의 필드 중 events가 있던 순서 (events가 없었으면 -1)
+     */
+    public Fragment(String path, EventBuffer eventBuffer, JsonNode metadata, int eventsIndex,
+                    Supplier<JsonNode> treeLoader) {
+        this(path, eventBuffer, treeLoader);
+        this.metadata = metadata;
+        this.eventsIndex = eventsIndex;
+    }
+
+    private void setTree(JsonNode root) {
+        this.root = root;
+
+        JsonNode recordsNode = root.get("records");
+        if (recordsNode != null && recordsNode.fields().hasNext()) {
+            this.record = recordsNode.fields().next().getValue();
+        } else {
+            this.record = null;
+        }
+
+        JsonNode eventsNode = record != null ? record.get("events") : null;
+        this.events = eventsNode instanceof ArrayNode ? (ArrayNode) eventsNode : null;
+    }
+
+    private synchronized void loadTree() {
+        if (treeLoader != null) {
+            setTree(treeLoader.get());
+            treeLoader = null;
+            grown();
+        }
+    }
+
+    /**
+     * 나중에 만든 트리나 렌더링 바이트를 알릴 콜백 설정 (조각 캐시에 넣을 때)
+     */
+    void setGrowthListener(Runnable growthListener) {
+        this.growthListener = growthListener;
+    }
+
+    private void grown() {
+        Runnable listener = growthListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public long getSourceBytes() {
+        return sourceBytes;
+    }
+
+    void setSourceBytes(long sourceBytes) {
+        this.sourceBytes = sourceBytes;
+    }
+
+    /**
+     * 파일 전체 트리
+     */
+    public synchronized JsonNode getRoot() {
+        loadTree();
+        return root;
+    }
+
+    /**
+     * records의 첫 번째 레코드 (없으면 null)
+     */
+    public synchronized JsonNode getRecord() {
+        loadTree();
+        return record;
+    }
+
+    /**
+     * 메타데이터(version, repeat 등)를 읽을 레코드 (스트리밍으로 읽었으면 events가 빠져 있음, 없으면 null)
+     * 전체 트리를 만들지 않고 읽을 수 있으면 그쪽을 쓴다.
+     */
+    public synchronized JsonNode getMetadata() {
+        return metadata != null ? metadata : getRecord();
+    }
+
+    /**
+     * records의 첫 번째 레코드를 현재 위치에 원본과 같은 내용으로 기록 (레코드가 없으면 파일 전체)
+     * 스트리밍으로 읽은 조각은 메타데이터 사이의 원래 위치에 이벤트 열을 기록하므로 파일을 다시 읽지 않는다.
+     */
+    public void writeRecord(JsonGenerator gen) throws IOException {
+        JsonNode streamed;
+        synchronized (this) {
+            streamed = root == null ? metadata : null;
+        }
+        if (streamed == null) {
+            JsonNode first = getRecord();
+            gen.writeTree(first != null ? first : getRoot());
+            return;
+        }
+        if (eventsIndex < 0) {
+            gen.writeTree(streamed);
+            return;
+        }
+
+        gen.writeStartObject();
+        int index = 0;
+        Iterator<Map.Entry<String, JsonNode>> fields = streamed.fields();
+        while (true) {
+            if (index++ == eventsIndex) {
+                gen.writeFieldName("events");
+                gen.writeStartArray();
+                eventBuffer.writeOriginalEvents(gen);
+                gen.writeEndArray();
+            }
+            if (!fields.hasNext()) {
+                break;
+            }
+            Map.Entry<String, JsonNode> field = fields.next();
+            gen.writeFieldName(field.getKey());
+            gen.writeTree(field.getValue());
+        }
+        gen.writeEndObject();
+    }
+
+    /**
+     * 첫 번째 레코드의 events 배열 (없으면 null)
+     */
+    public synchronized ArrayNode getEvents() {
+        loadTree();
+        return events;
+    }
+
+    /**
+     * events 배열의 열 표현 (events가 없으면 null)
+     */
+    public EventBuffer getEventBuffer() {
+        return eventBuffer;
+    }
+
+    /**
+     * 결과 파일 형식으로 렌더링한 이벤트 바이트 (처음 요청할 때 만든다, events가 없으면 null)
+     */
+    public synchronized SpliceTemplate getSpliceTemplate() {
+        if (spliceTemplate == null && eventBuffer != null) {
+            spliceTemplate = SpliceTemplate.of(eventBuffer);
+            grown();
+        }
+        return spliceTemplate;
+    }
+
+    /**
+     * 병합 요약 (처음 요청할 때 만든다)
+     */
+    public synchronized FragmentStats getStats() {
+        if (stats == null) {
+            stats = FragmentStats.of(this);
+        }
+        return stats;
+    }
+
+    /**
+     * 조각 캐시 예산용 메모리 어림값 (캐시에 넣을 때 계산하고, 트리나 렌더링 바이트가 생기면 다시 계산)
+     * 열 표현과 렌더링 바이트는 배열 크기로, JSON 트리는 원본 크기의 TREE_FACTOR배로 어림한다.
+     * 이벤트 문자열은 EventBuffer의 전역 문자열 표에 있으므로 포함하지 않는다.
+     *
+     * @param sourceBytes 원본 조각 파일 크기
+     */
+    public synchronized long estimatedBytes(long sourceBytes) {
+        long bytes = OVERHEAD;
+        if (eventBuffer != null) {
+            bytes += eventBuffer.retainedBytes();
+        }
+        if (spliceTemplate != null) {
+            bytes += spliceTemplate.retainedBytes();
+        }
+        if (root != null) {
+            bytes += sourceBytes * TREE_FACTOR;
+        }
+        return bytes;
+    }
+
+    public boolean hasEvents() {
+        return eventBuffer != null && eventBuffer.size() > 0;
+    }
+
+    /**
+     * 스크립트 종료 이벤트인지 확인
+     */
+    public static boolean isEndMarker(JsonNode event) {
+        JsonNode type = event.get("type");
+        return type != null && END_MARKER_TYPE.equals(type.asText());
+    }
+}
@@ -0,0 +1,532 @@
+package org.dk.merge;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 매크로 조각 파싱 결과 캐시 (프로세스 전역)
+ * 경로를 키로 사용하고, 파일의 수정 시각이나 크기가 바뀌면 다시 읽는다.
+ * 조각 라이브러리가 설정되어 있으면 원본 파일을 파싱하기 전에 라이브러리에서 먼저 찾는다.
+ * FragmentSymbols ID로 찾으면 경로 해시 대신 ID 인덱스 배열을 먼저 본다.
+ * 메모리 예산을 설정하면 조각마다 어림한 크기를 더해 두고, 넘으면 고정하지 않은 조각 중 가장 오래 쓰지 않은 것부터 제거한다.
+ * 고정하지 않은 조각은 접근 순서 LinkedHashMap에도 넣어 두므로 제거할 조각을 전체를 훑지 않고 앞에서부터 꺼낸다.
+ * (사용 순서는 예산이 있을 때만 갱신하고, 예산이 없으면 읽은 순서로 남는다)
+ * 조각이 나중에 트리나 렌더링 바이트를 만들면 그 조각의 크기를 다시 어림해서 예산에 반영한다.
+ * EventBuffer의 전역 문자열 표는 조각끼리 공유하므로 예산에 넣지 않고, 조각을 제거해도 줄지 않는다.
+ */
+public class FragmentCache {
+
+    private static final FragmentCache instance = new FragmentCache();
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Hash> hashes = new ConcurrentHashMap<>();
+    // 비동기로 읽는 중인 조각 (같은 조각을 동시에 미리 읽으면 읽기 하나를 같이 기다린다)
+    private final Map<String, Pending> inFlight = new ConcurrentHashMap<>();
+    private volatile Entry[] bySymbol = new Entry[256];
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong libraryLoads = new AtomicLong();
+    private volatile FragmentLibrary library;
+    // true면 조각 파일을 트리 대신 FragmentReader로 스트리밍해서 읽음
+    private volatile boolean streamingParse = true;
+
+    // 메모리 예산 (0이면 제한 없음)과 제거하지 않을 조각 이름 (끝이 *이면 접두어)
+    private volatile long maxBytes;
+    private volatile List<String> pinned = new ArrayList<>();
+    private final AtomicLong residentBytes = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    // 고정하지 않은 조각의 사용 순서 (앞이 가장 오래 쓰지 않은 조각, this로 동기화)
+    private final LinkedHashMap<String, Entry> order = new LinkedHashMap<>(256, 0.75f, true);
+
+    private FragmentCache() {
+    }
+
+    /**
+     * 싱글톤 인스턴스 반환
+     */
+    public static FragmentCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * 조각 라이브러리 설정 (null이면 원본 파일만 사용)
+     */
+    public void setLibrary(FragmentLibrary library) {
+        this.library = library;
+    }
+
+    /**
+     * 조각 파일을 JsonParser로 스트리밍해서 읽을지 설정 (false면 파일 전체를 트리로 읽음)
+     */
+    public void setStreamingParse(boolean streamingParse) {
+        this.streamingParse = streamingParse;
+    }
+
+    /**
+     * 메모리 예산 설정 (maxBytes가 0 이하면 제한 없음)
+     *
+     * @param pinnedFragments 예산을 넘어도 제거하지 않을 조각 이름 (예: button_9, wait_*)
+     */
+    public void setBudget(long maxBytes, Collection<String> pinnedFragments) {
+        this.pinned = new ArrayList<>(pinnedFragments);
+        this.maxBytes = Math.max(maxBytes, 0);
+        if (this.maxBytes > 0) {
+            evict();
+        }
+    }
+
+    /**
+     * 조각을 캐시에서 가져오고, 없거나 파일이 변경되었으면 라이브러리나 원본 파일에서 다시 읽음
+     */
+    public Fragment get(String path) throws IOException {
+        File file = new File(path);
+        return lookup(path, file, file.lastModified(), file.length()).fragment;
+    }
+
+    /**
+     * 캐시에 있거나 라이브러리에서 꺼낼 수 있는 조각만 가져옴 (둘 다 아니면 파일을 읽지 않고 null)
+     */
+    public Fragment getIfLoaded(String path) throws IOException {
+        File file = new File(path);
+        long lastModified = file.lastModified();
+        long size = file.length();
+        Entry entry = entries.get(path);
+        if (entry != null && entry.lastModified == lastModified && entry.size == size) {
+            hits.incrementAndGet();
+            touch(entry);
+            return entry.fragment;
+        }
+        FragmentLibrary current = library;
+        if (current != null && current.contains(path, lastModified, size)) {
+            return lookup(path, file, lastModified, size).fragment;
+        }
+        return null;
+    }
+
+    /**
+     * FragmentSymbols ID로 조각 가져오기 (path는 ID의 조각 파일 경로)
+     */
+    public Fragment get(int symbol, String path) throws IOException {
+        File file = new File(path);
+        return get(symbol, path, file.lastModified(), file.length());
+    }
+
+    /**
+     * 파일의 수정 시각과 크기를 이미 알 때 (조각 목록에서 찾은 조각, 파일 상태를 다시 확인하지 않음)
+     */
+    public Fragment get(int symbol, String path, long lastModified, long size) throws IOException {
+        Entry[] table = bySymbol;
+        Entry entry = symbol < table.length ? table[symbol] : null;
+        if (entry != null && entry.lastModified == lastModified && entry.size == size) {
+            hits.incrementAndGet();
+            touch(entry);
+            return entry.fragment;
+        }
+
+        entry = lookup(path, new File(path), lastModified, size);
+        remember(symbol, entry);
+        return entry.fragment;
+    }
+
+    private Entry lookup(String path, File file, long lastModified, long size) throws IOException {
+        Entry entry = entries.get(path);
+        if (entry != null && entry.lastModified == lastModified && entry.size == size) {
+            hits.incrementAndGet();
+            touch(entry);
+            return entry;
+        }
+
+        misses.incrementAndGet();
+        FlightEvents.FragmentLoad event = new FlightEvents.FragmentLoad();
+        event.begin();
+        FragmentLibrary current = library;
+        Fragment fragment = current != null ? current.load(path, lastModified, size) : null;
+        String source;
+        if (fragment != null) {
+            libraryLoads.incrementAndGet();
+            source = "library";
+        } else if (streamingParse) {
+            fragment = FragmentReader.read(path, file);
+            source = "stream";
+        } else {
+            JsonNode root = mapper.readTree(file);
+            fragment = new Fragment(path, root);
+            source = "tree";
+        }
+        event.record(path, source, size);
+        return store(path, fragment, lastModified, size);
+    }
+
+    /**
+     * 읽은 조각을 보관하고 예산을 넘으면 제거
+     */
+    private Entry store(String path, Fragment fragment, long lastModified, long size) {
+        fragment.setSourceBytes(size);
+        Entry entry = new Entry(path, fragment, lastModified, size, fragment.estimatedBytes(size), isPinned(path));
+        synchronized (this) {
+            Entry previous = entries.put(path, entry);
+            if (previous != null) {
+                previous.evicted = true;
+                order.remove(path);
+            }
+            if (!entry.pinned) {
+                order.put(path, entry);
+            }
+            residentBytes.addAndGet(entry.weight - (previous != null ? previous.weight : 0));
+        }
+        fragment.setGrowthListener(() -> reweigh(entry));
+        // 콜백을 걸기 전에 늘어난 부분까지 반영하고 예산 확인
+        reweigh(entry);
+        return entry;
+    }
+
+    /**
+     * 보관 중인 조각이 트리나 렌더링 바이트를 새로 만들었을 때 크기를 다시 어림하고, 예산을 넘으면 제거
+     */
+    private void reweigh(Entry entry) {
+        long weight = entry.fragment.estimatedBytes(entry.size);
+        synchronized (this) {
+            if (entry.evicted) {
+                return;
+            }
+            residentBytes.addAndGet(weight - entry.weight);
+            entry.weight = weight;
+        }
+        if (maxBytes > 0 && residentBytes.get() > maxBytes) {
+            evict();
+        }
+    }
+
+    private boolean isPinned(String path) {
+        String name = new File(path).getName().replace(".json", "");
+        for (String pattern : pinned) {
+            if (pattern.endsWith("*")
+                ? name.startsWith(pattern.substring(0, pattern.length() - 1))
+                : name.equals(pattern)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 캐시에서 찾은 조각을 가장 최근에 쓴 것으로 표시 (예산이 없으면 순서를 갱신하지 않음)
+     */
+    private void touch(Entry entry) {
+        if (maxBytes <= 0 || entry.pinned) {
+            return;
+        }
+        synchronized (this) {
+            if (!entry.evicted) {
+                order.get(entry.path);
+            }
+        }
+    }
+
+    /**
+     * 예산 안으로 들어올 때까지 고정하지 않은 조각 중 가장 오래 쓰지 않은 것부터 제거
+     */
+    private synchronized void evict() {
+        Iterator<Entry> oldest = order.values().iterator();
+        while (maxBytes > 0 && residentBytes.get() > maxBytes && oldest.hasNext()) {
+            Entry victim = oldest.next();
+            oldest.remove();
+            entries.remove(victim.path, victim);
+            victim.evicted = true;
+            residentBytes.addAndGet(-victim.weight);
+            evictions.incrementAndGet();
+            Entry[] table = bySymbol;
+            if (victim.symbol >= 0 && victim.symbol < table.length && table[victim.symbol] == victim) {
+                table[victim.symbol] = null;
+            }
+        }
+    }
+
+    /**
+     * 조각을 미리 읽기 시작 (파이프라인 병합의 읽기 단계)
+     * 캐시에 있으면 바로 완료하고, 없으면 AsynchronousFileChannel로 읽어서 읽기 완료 스레드에서 파싱한다.
+     * 같은 조각을 이미 읽는 중이면 새로 읽지 않고 그 읽기의 결과를 돌려준다.
+     * 라이브러리가 설정되어 있거나 파일이 없으면 get과 같이 바로 찾는다.
+     */
+    public CompletableFuture<Fragment> prefetch(String path) {
+        return prefetch(-1, path);
+    }
+
+    /**
+     * FragmentSymbols ID로 조각을 미리 읽기 시작
+     */
+    public CompletableFuture<Fragment> prefetch(int symbol, String path) {
+        File file = new File(path);
+        return prefetch(symbol, path, file.lastModified(), file.length());
+    }
+
+    /**
+     * 수정 시각과 크기를 이미 아는 조각을 미리 읽기 시작
+     */
+    public CompletableFuture<Fragment> prefetch(int symbol, String path, long lastModified, long size) {
+        File file = new File(path);
+        Entry[] table = bySymbol;
+        Entry entry = symbol >= 0 && symbol < table.length ? table[symbol] : null;
+        if (entry == null || entry.lastModified != lastModified || entry.size != size) {
+            entry = entries.get(path);
+        }
+        if (entry != null && entry.lastModified == lastModified && entry.size == size) {
+            hits.incrementAndGet();
+            touch(entry);
+            if (symbol >= 0) {
+                remember(symbol, entry);
+            }
+            return CompletableFuture.completedFuture(entry.fragment);
+        }
+
+        if (library != null || !file.isFile()) {
+            try {
+                return CompletableFuture.completedFuture(symbol >= 0
+                    ? get(symbol, path, lastModified, size)
+                    : lookup(path, file, lastModified, size).fragment);
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+
+        Pending pending = new Pending(lastModified, size);
+        Pending running = inFlight.putIfAbsent(path, pending);
+        if (running != null) {
+            if (running.lastModified == lastModified && running.size == size) {
+                hits.incrementAndGet();
+                return running.future;
+            }
+            // 바뀌기 전 파일을 읽는 중이면 기다리지 않고 따로 읽음
+            pending = new Pending(lastModified, size);
+        }
+        CompletableFuture<Fragment> future = pending.future;
+        Pending started = pending;
+
+        misses.incrementAndGet();
+        // 읽기 시작부터 완료 스레드에서 파싱이 끝날 때까지
+        FlightEvents.FragmentLoad event = new FlightEvents.FragmentLoad();
+        event.begin();
+        AsynchronousFileChannel channel;
+        ByteBuffer buffer;
+        try {
+            channel = AsynchronousFileChannel.open(file.toPath(), StandardOpenOption.READ);
+        } catch (IOException e) {
+            inFlight.remove(path, started);
+            future.completeExceptionally(e);
+            return future;
+        }
+        try {
+            // 조각 목록을 만든 뒤 파일이 바뀌었을 수 있으므로 연 채널의 크기로 버퍼를 잡는다
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("조각 파일이 너무 큽니다: " + path + " (" + length + " bytes)");
+            }
+            buffer = ByteBuffer.allocate((int) length);
+        } catch (IOException e) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // 크기 확인 실패를 그대로 전달
+            }
+            inFlight.remove(path, started);
+            future.completeExceptionally(e);
+            return future;
+        }
+
+        channel.read(buffer, 0, null, new CompletionHandler<Integer, Void>() {
+            @Override
+            public void completed(Integer read, Void attachment) {
+                if (read >= 0 && buffer.hasRemaining()) {
+                    channel.read(buffer, buffer.position(), null, this);
+                    return;
+                }
+                try {
+                    channel.close();
+                    Fragment fragment = streamingParse
+                        ? FragmentReader.read(path, file, buffer.array(), buffer.position())
+                        : new Fragment(path, mapper.readTree(buffer.array(), 0, buffer.position()));
+                    event.record(path, "async", buffer.position());
+                    Entry loaded = store(path, fragment, lastModified, size);
+                    if (symbol >= 0) {
+                        remember(symbol, loaded);
+                    }
+                    inFlight.remove(path, started);
+                    future.complete(fragment);
+                } catch (IOException | RuntimeException e) {
+                    inFlight.remove(path, started);
+                    future.completeExceptionally(e);
+                }
+            }
+
+            @Override
+            public void failed(Throwable e, Void attachment) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // 읽기 실패를 그대로 전달
+                }
+                inFlight.remove(path, started);
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    private synchronized void remember(int symbol, Entry entry) {
+        if (entry.evicted) {
+            return;
+        }
+        Entry[] table = bySymbol;
+        if (symbol >= table.length) {
+            table = Arrays.copyOf(table, Math.max(table.length * 2, symbol + 1));
+        }
+        table[symbol] = entry;
+        entry.symbol = symbol;
+        bySymbol = table;
+    }
+
+    /**
+     * 파일 내용의 SHA-256 지문 (증분 생성용, 파일이 없으면 "missing")
+     * 수정 시각과 크기가 같으면 이전에 계산한 값을 재사용한다.
+     */
+    public String contentHash(String path) throws IOException {
+        File file = new File(path);
+        if (!file.isFile()) {
+            return "missing";
+        }
+        long lastModified = file.lastModified();
+        long size = file.length();
+
+        Hash hash = hashes.get(path);
+        if (hash != null && hash.lastModified == lastModified && hash.size == size) {
+            return hash.value;
+        }
+
+        String value = Fingerprint.of(Files.readAllBytes(file.toPath()));
+        hashes.put(path, new Hash(value, lastModified, size));
+        return value;
+    }
+
+    /**
+     * 캐시 비우기
+     */
+    public void clear() {
+        hashes.clear();
+        synchronized (this) {
+            for (Entry entry : entries.values()) {
+                entry.evicted = true;
+            }
+            entries.clear();
+            order.clear();
+            residentBytes.set(0);
+            bySymbol = new Entry[256];
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 보관 중인 조각의 메모리 어림값 합계
+     */
+    public long getResidentBytes() {
+        return residentBytes.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * 적중률 요약 문자열
+     */
+    public String summary() {
+        long h = hits.get();
+        long m = misses.get();
+        long total = h + m;
+        double ratio = total > 0 ? (h * 100.0 / total) : 0.0;
+        String summary = String.format("조각 캐시: hit %d / miss %d (적중률 %.1f%%, 보관 %d개)", h, m, ratio, entries.size());
+        if (library != null) {
+            summary += String.format(", 라이브러리에서 읽음 %d개", libraryLoads.get());
+        }
+        if (maxBytes > 0) {
+            summary += String.format(", 메모리 %,d / %,d KB, 제거 %d개",
+                residentBytes.get() / 1024, maxBytes / 1024, evictions.get());
+        }
+        return summary;
+    }
+
+    private static class Entry {
+        final String path;
+        final Fragment fragment;
+        final long lastModified;
+        final long size;
+        // 메모리 어림값 (reweigh에서 바뀜), 예산을 넘어도 제거하지 않는지
+        long weight;
+        final boolean pinned;
+        // ID 인덱스 배열에서의 위치 (넣지 않았으면 -1)
+        int symbol = -1;
+        // 제거되었거나 다시 읽은 조각으로 바뀌어 더 이상 예산에 들어 있지 않음
+        volatile boolean evicted;
+
+        Entry(String path, Fragment fragment, long lastModified, long size, long weight, boolean pinned) {
+            this.path = path;
+            this.fragment = fragment;
+            this.lastModified = lastModified;
+            this.size = size;
+            this.weight = weight;
+            this.pinned = pinned;
+        }
+    }
+
+    private static class Pending {
+        final long lastModified;
+        final long size;
+        final CompletableFuture<Fragment> future = new CompletableFuture<>();
+
+        Pending(long lastModified, long size) {
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+    }
+
+    private static class Hash {
+        final String value;
+        final long lastModified;
+        final long size;
+
+        Hash(String value, long lastModified, long size) {
+            this.value = value;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+    }
+}
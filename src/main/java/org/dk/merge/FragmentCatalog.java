@@ -0,0 +1,131 @@
+package org.dk.merge;
+
+import org.dk.script.FragmentSymbols;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * 조각 목록 (생성 실행마다 macro 폴더를 한 번 훑어서 만듦)
+ * 조각마다 파일 크기와 수정 시각만 FragmentSymbols ID 순서의 배열에 담고, 만들 때는 조각 파일을 읽지 않는다.
+ * 생성 전에 계획과 그룹의 조각 이름을 이 목록으로 확인하고, 실제로 쓰는 조각만 inspect로 훑어서 이벤트 수, 길이, 스크립트 종료 이벤트 여부를 기록한다.
+ * 병합할 때는 파일 상태를 다시 확인하지 않고 목록의 값으로 캐시를 찾는다.
+ */
+public class FragmentCatalog {
+
+    private final File macroDir;
+    private final Entry[] entries;
+    private final int count;
+
+    private FragmentCatalog(File macroDir, Entry[] entries, int count) {
+        this.macroDir = macroDir;
+        this.entries = entries;
+        this.count = count;
+    }
+
+    /**
+     * macroDir의 *.json 조각 파일 상태로 목록 생성
+     */
+    public static FragmentCatalog scan(File macroDir) throws IOException {
+        File[] files = macroDir.listFiles((dir, name) -> name.endsWith(".json"));
+        if (files == null) {
+            throw new IOException("macro 폴더를 찾을 수 없습니다: " + macroDir.getPath());
+        }
+        Arrays.sort(files);
+
+        Entry[] entries = new Entry[FragmentSymbols.size() + files.length];
+        for (File file : files) {
+            String name = file.getName().substring(0, file.getName().length() - ".json".length());
+            int symbol = FragmentSymbols.intern(name);
+            if (symbol >= entries.length) {
+                entries = Arrays.copyOf(entries, symbol + 1);
+            }
+            entries[symbol] = new Entry(file.lastModified(), file.length());
+        }
+        return new FragmentCatalog(macroDir, entries, files.length);
+    }
+
+    /**
+     * ID의 조각 (macro 폴더에 없으면 null)
+     */
+    public Entry get(int symbol) {
+        return symbol < entries.length ? entries[symbol] : null;
+    }
+
+    /**
+     * ID의 조각 파일을 훑어서 이벤트 수와 길이를 채운 항목 반환 (목록에 없으면 null, 이미 훑은 조각은 다시 읽지 않음)
+     * 조각 내용은 보관하지 않고, JSON이 깨졌으면 IOException
+     */
+    public Entry inspect(int symbol) throws IOException {
+        Entry entry = get(symbol);
+        if (entry != null && !entry.isInspected()) {
+            FragmentReader.scan(new File(macroDir, FragmentSymbols.name(symbol) + ".json"), entry);
+        }
+        return entry;
+    }
+
+    public boolean contains(int symbol) {
+        return get(symbol) != null;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * 목록의 조각 하나 (훑을 때의 파일 상태, inspect 뒤에는 내용 요약)
+     */
+    public static class Entry {
+        private final long lastModified;
+        private final long size;
+        // inspect 전에는 -1
+        private int eventCount = -1;
+        private long durationMs;
+        private boolean endMarker;
+
+        Entry(long lastModified, long size) {
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        void inspected(int eventCount, long durationMs, boolean endMarker) {
+            this.eventCount = eventCount;
+            this.durationMs = durationMs;
+            this.endMarker = endMarker;
+        }
+
+        public boolean isInspected() {
+            return eventCount >= 0;
+        }
+
+        /**
+         * 첫 레코드의 이벤트 수 (events가 없으면 0)
+         */
+        public int getEventCount() {
+            return eventCount;
+        }
+
+        /**
+         * 마지막 이벤트의 ms (조각의 실행 시간)
+         */
+        public long getDurationMs() {
+            return durationMs;
+        }
+
+        /**
+         * 스크립트 종료 이벤트가 있는지 여부
+         */
+        public boolean hasEndMarker() {
+            return endMarker;
+        }
+    }
+}
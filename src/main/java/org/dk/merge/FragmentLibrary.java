@@ -0,0 +1,224 @@
+package org.dk.merge;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 조각 라이브러리 (macro 폴더 전체를 묶은 파일 하나, JsonMergerMultiple compile-library로 생성)
+ * 조각마다 원본 JSON 바이트와 미리 변환한 이벤트 열(EventBuffer)을 담고, 실행할 때는 파일을 메모리 매핑해서 읽는다.
+ * 원본 파일의 수정 시각과 크기가 라이브러리를 만들 때와 다르면 그 조각은 원본 파일에서 읽는다.
+ *
+ * 형식: MAGIC, VERSION, 문자열 표, 목록(이름, 수정 시각, 크기, 위치, JSON 길이, 열 여부), 데이터
+ */
+public class FragmentLibrary {
+
+    public static final String DEFAULT_PATH = "src/main/resources/macro-library.pack";
+
+    private static final int MAGIC = 0x4D4C4942; // "MLIB"
+    private static final int VERSION = 1;
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final MappedByteBuffer buffer;
+    private final Map<String, Entry> entries;
+    private final int[] packStrings;
+
+    private FragmentLibrary(MappedByteBuffer buffer, Map<String, Entry> entries, int[] packStrings) {
+        this.buffer = buffer;
+        this.entries = entries;
+        this.packStrings = packStrings;
+    }
+
+    /**
+     * macroDir의 *.json 조각을 모두 묶어서 packFile로 저장하고 묶은 조각 수를 반환
+     * 목록의 이름은 makePath와 같은 형식(macroDir 경로 + "/" + 파일명)이다.
+     */
+    public static int compile(File macroDir, File packFile) throws IOException {
+        File[] files = macroDir.listFiles((dir, name) -> name.endsWith(".json"));
+        if (files == null) {
+            throw new IOException("macro 폴더를 찾을 수 없습니다: " + macroDir.getPath());
+        }
+        Arrays.sort(files);
+
+        List<String> strings = new ArrayList<>();
+        Map<Integer, Integer> packIds = new HashMap<>();
+        List<Entry> index = new ArrayList<>();
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        DataOutputStream dataOut = new DataOutputStream(data);
+
+        for (File file : files) {
+            byte[] json = Files.readAllBytes(file.toPath());
+            EventBuffer events = new Fragment(file.getPath(), mapper.readTree(json)).getEventBuffer();
+            boolean columnar = events != null && !events.hasIrregular();
+
+            String name = macroDir.getPath() + "/" + file.getName();
+            index.add(new Entry(name, file.lastModified(), file.length(), data.size(), json.length, columnar));
+            dataOut.write(json);
+            if (columnar) {
+                events.writeColumns(dataOut, id -> packIds.computeIfAbsent(id, key -> {
+                    strings.add(EventBuffer.lookup(key));
+                    return strings.size() - 1;
+                }));
+            }
+        }
+        dataOut.flush();
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(packFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            out.writeInt(strings.size());
+            for (String value : strings) {
+                writeString(out, value);
+            }
+
+            out.writeInt(index.size());
+            for (Entry entry : index) {
+                writeString(out, entry.name);
+                out.writeLong(entry.lastModified);
+                out.writeLong(entry.size);
+                out.writeLong(entry.offset);
+                out.writeInt(entry.jsonLength);
+                out.writeBoolean(entry.columnar);
+            }
+
+            data.writeTo(out);
+        }
+        return index.size();
+    }
+
+    /**
+     * 라이브러리 파일 열기 (없거나 형식이 맞지 않으면 null)
+     */
+    public static FragmentLibrary open(File packFile) {
+        if (!packFile.isFile()) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(packFile.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                System.out.println("조각 라이브러리 형식이 달라 사용하지 않습니다. (compile-library로 다시 생성)");
+                return null;
+            }
+
+            int[] packStrings = new int[buffer.getInt()];
+            for (int i = 0; i < packStrings.length; i++) {
+                packStrings[i] = EventBuffer.intern(readString(buffer));
+            }
+
+            int count = buffer.getInt();
+            Map<String, Entry> entries = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                Entry entry = new Entry(readString(buffer), buffer.getLong(), buffer.getLong(),
+                    buffer.getLong(), buffer.getInt(), buffer.get() != 0);
+                entries.put(entry.name, entry);
+            }
+
+            // 목록 뒤부터 데이터 (위치는 데이터 시작 기준)
+            int dataStart = buffer.position();
+            for (Entry entry : entries.values()) {
+                entry.offset += dataStart;
+            }
+            return new FragmentLibrary(buffer, entries, packStrings);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("조각 라이브러리 읽기 실패, 원본 파일을 사용합니다: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 라이브러리에서 조각 읽기
+     * 라이브러리에 없거나 원본 파일이 라이브러리를 만든 뒤 바뀌었으면 null (원본 파일에서 읽어야 함)
+     */
+    public Fragment load(String path, long lastModified, long size) throws IOException {
+        Entry entry = entries.get(path);
+        if (entry == null || entry.lastModified != lastModified || entry.size != size) {
+            return null;
+        }
+
+        if (!entry.columnar) {
+            return new Fragment(path, mapper.readTree(readJson(entry)));
+        }
+
+        ByteBuffer columns = buffer.duplicate();
+        columns.position((int) (entry.offset + entry.jsonLength));
+        EventBuffer events = EventBuffer.readColumns(columns, packStrings);
+        return new Fragment(path, events, () -> {
+            try {
+                return mapper.readTree(readJson(entry));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * 원본 파일이 라이브러리를 만들 때와 같은 조각이 들어 있는지 확인
+     */
+    public boolean contains(String path, long lastModified, long size) {
+        Entry entry = entries.get(path);
+        return entry != null && entry.lastModified == lastModified && entry.size == size;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private byte[] readJson(Entry entry) {
+        byte[] json = new byte[entry.jsonLength];
+        ByteBuffer slice = buffer.duplicate();
+        slice.position((int) entry.offset);
+        slice.get(json);
+        return json;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static class Entry {
+        final String name;
+        final long lastModified;
+        final long size;
+        long offset;
+        final int jsonLength;
+        final boolean columnar;
+
+        Entry(String name, long lastModified, long size, long offset, int jsonLength, boolean columnar) {
+            this.name = name;
+            this.lastModified = lastModified;
+            this.size = size;
+            this.offset = offset;
+            this.jsonLength = jsonLength;
+            this.columnar = columnar;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package org.dk.merge;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * 조각 파일 스트리밍 읽기 (generator.streamingParse)
+ * JsonParser로 records의 첫 레코드까지 내려가서 events 배열은 이벤트를 하나씩만 노드로 읽어 열 표현(EventBuffer)에 넣는다.
+ * 파일 전체 트리를 만들지 않으므로 이벤트가 많은 녹화 파일도 읽는 동안에는 이벤트 하나 크기의 노드만 만든다.
+ * events를 뺀 레코드는 메타데이터로 보관하고, 전체 트리는 요청할 때 파일을 다시 읽어서 만든다.
+ */
+public final class FragmentReader {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private FragmentReader() {
+    }
+
+    /**
+     * 파일에서 조각 읽기
+     */
+    public static Fragment read(String path, File file) throws IOException {
+        try (JsonParser parser = mapper.getFactory().createParser(file)) {
+            return read(path, file, parser);
+        }
+    }
+
+    /**
+     * 이미 읽어 둔 파일 내용으로 조각 만들기 (file은 전체 트리를 다시 읽을 때 사용)
+     */
+    public static Fragment read(String path, File file, byte[] content, int length) throws IOException {
+        try (JsonParser parser = mapper.getFactory().createParser(content, 0, length)) {
+            return read(path, file, parser);
+        }
+    }
+
+    private static Fragment read(String path, File file, JsonParser parser) throws IOException {
+        JsonNode metadata = null;
+        EventBuffer events = null;
+        int eventsIndex = -1;
+
+        if (parser.nextToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (!"records".equals(field) || value != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    continue;
+                }
+
+                // records의 첫 레코드만 읽고 나머지는 건너뜀
+                if (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    if (parser.nextToken() == JsonToken.START_OBJECT) {
+                        ObjectNode record = mapper.createObjectNode();
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String name = parser.getCurrentName();
+                            if (parser.nextToken() == JsonToken.START_ARRAY && "events".equals(name)) {
+                                eventsIndex = record.size();
+                                events = readEvents(parser);
+                            } else {
+                                record.set(name, mapper.readTree(parser));
+                            }
+                        }
+                        metadata = record;
+                    } else {
+                        metadata = mapper.readTree(parser);
+                    }
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        parser.nextToken();
+                        parser.skipChildren();
+                    }
+                }
+            }
+        }
+
+        return new Fragment(path, events, metadata, eventsIndex, () -> {
+            try {
+                return mapper.readTree(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * 파일을 훑어서 첫 레코드의 이벤트 수, 마지막 이벤트의 ms, 스크립트 종료 이벤트 여부를 목록 항목에 기록
+     * 이벤트를 노드로 읽지 않고 ms와 type 값만 본다. (JSON이 깨졌으면 IOException)
+     */
+    static void scan(File file, FragmentCatalog.Entry entry) throws IOException {
+        int count = 0;
+        long lastMs = 0;
+        boolean endMarker = false;
+
+        try (JsonParser parser = mapper.getFactory().createParser(file)) {
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    JsonToken value = parser.nextToken();
+                    if (!"records".equals(field) || value != JsonToken.START_OBJECT) {
+                        parser.skipChildren();
+                        continue;
+                    }
+
+                    // records의 첫 레코드만 보고 나머지는 건너뜀
+                    boolean first = true;
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        if (parser.nextToken() != JsonToken.START_OBJECT || !first) {
+                            parser.skipChildren();
+                            continue;
+                        }
+                        first = false;
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String name = parser.getCurrentName();
+                            if (parser.nextToken() != JsonToken.START_ARRAY || !"events".equals(name)) {
+                                parser.skipChildren();
+                                continue;
+                            }
+                            for (JsonToken event = parser.nextToken(); event != JsonToken.END_ARRAY; event = parser.nextToken()) {
+                                count++;
+                                if (event != JsonToken.START_OBJECT) {
+                                    parser.skipChildren();
+                                    continue;
+                                }
+                                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                                    String eventField = parser.getCurrentName();
+                                    parser.nextToken();
+                                    if ("ms".equals(eventField)) {
+                                        lastMs = parser.getValueAsLong(lastMs);
+                                    } else if ("type".equals(eventField)) {
+                                        endMarker |= Fragment.END_MARKER_TYPE.equals(parser.getValueAsString());
+                                    }
+                                    parser.skipChildren();
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        entry.inspected(count, lastMs, endMarker);
+    }
+
+    private static EventBuffer readEvents(JsonParser parser) throws IOException {
+        EventBuffer events = new EventBuffer(256);
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            events.add(mapper.readTree(parser));
+        }
+        return events;
+    }
+}
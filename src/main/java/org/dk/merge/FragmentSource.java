@@ -0,0 +1,10 @@
+package org.dk.merge;
+
+import java.io.IOException;
+
+/**
+ * FragmentSymbols ID로 조각을 읽는 함수
+ */
+public interface FragmentSource {
+    Fragment get(int symbol) throws IOException;
+}
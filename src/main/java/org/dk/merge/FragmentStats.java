@@ -0,0 +1,98 @@
+package org.dk.merge;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * 조각 하나의 병합 요약 (추가되는 이벤트 수, 누적 ms 증가량, 결과 파일에서 차지하는 바이트)
+ * 스크립트 종료 이벤트는 마지막 파일에서만 추가되므로 두 경우를 따로 보관한다.
+ * 바이트는 ms 값 자리를 뺀 크기이고, ms 자릿수는 bytes()에서 밀린 ms로 어림한다.
+ * 이벤트 열(EventBuffer)의 문자열 길이로 계산하고 조각 전체를 렌더링하지 않는다. (형식이 다른 이벤트만 하나씩 렌더링)
+ */
+public class FragmentStats {
+
+    // 문자열 값이 모두 빈 문자열인 이벤트 하나의 바이트 수 (ms 값 자리 제외, 들여쓰기와 필드 이름)
+    private static final long EVENT_BYTES = emptyEventBytes();
+
+    private final int[] events = new int[2];
+    private final long[] advanceMs = new long[2];
+    private final long[] fixedBytes = new long[2];
+    private final int[] msFields = new int[2];
+
+    private FragmentStats() {
+    }
+
+    /**
+     * 조각의 이벤트 열로 계산
+     */
+    public static FragmentStats of(Fragment fragment) {
+        FragmentStats stats = new FragmentStats();
+        EventBuffer events = fragment.getEventBuffer();
+        if (events == null) {
+            return stats;
+        }
+
+        for (int i = 0; i < events.size(); i++) {
+            long bytes = events.textBytes(i);
+            boolean hasMs = true;
+            if (bytes >= 0) {
+                bytes += EVENT_BYTES;
+            } else {
+                // 형식이 다른 이벤트는 필드 구성이 제각각이라 그 이벤트만 렌더링해서 잰다
+                SpliceTemplate single = SpliceTemplate.of(events, i, i + 1);
+                bytes = single.fixedBytes(0);
+                hasMs = single.hasMs(0);
+            }
+
+            // [0]: 중간 파일 (종료 이벤트 제외), [1]: 마지막 파일
+            for (int last = events.isEndMarker(i) ? 1 : 0; last < 2; last++) {
+                stats.events[last]++;
+                stats.advanceMs[last] = events.getMs(i);
+                stats.fixedBytes[last] += bytes;
+                if (hasMs) {
+                    stats.msFields[last]++;
+                }
+            }
+        }
+        return stats;
+    }
+
+    private static long emptyEventBytes() {
+        ObjectNode event = JsonNodeFactory.instance.objectNode();
+        ObjectNode position = event.putObject("position");
+        position.put("x", "");
+        position.put("y", "");
+        event.put("ms", "0");
+        event.put("type", "");
+        event.put("detail", "");
+        event.put("data", "");
+
+        EventBuffer sample = new EventBuffer(1);
+        sample.add(event);
+        return SpliceTemplate.of(sample).fixedBytes(0);
+    }
+
+    /**
+     * 병합할 때 추가되는 이벤트 수
+     */
+    public int events(boolean lastFile) {
+        return events[lastFile ? 1 : 0];
+    }
+
+    /**
+     * 누적 ms 증가량 (마지막으로 추가되는 이벤트의 원래 ms, 추가되는 이벤트가 없으면 0)
+     */
+    public long advanceMs(boolean lastFile) {
+        return advanceMs[lastFile ? 1 : 0];
+    }
+
+    /**
+     * 결과 파일에서 이 조각의 이벤트가 차지하는 바이트 어림값 (배열 구분자 제외)
+     *
+     * @param endMs 이 조각을 붙인 뒤의 누적 ms (ms 자릿수 계산용)
+     */
+    public long bytes(boolean lastFile, long endMs) {
+        int index = lastFile ? 1 : 0;
+        return fixedBytes[index] + (long) msFields[index] * String.valueOf(endMs).length();
+    }
+}
@@ -0,0 +1,47 @@
+package org.dk.merge;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 병렬 생성 모드에서 사용할 실행기 생성
+ * - forkjoin: 고정 크기 ForkJoinPool (threads가 0 이하면 CPU 코어 수)
+ * - virtual : 작업마다 가상 스레드 (JDK 21 이상, 그 이하에서는 forkjoin으로 대체)
+ */
+public class GenerationExecutors {
+
+    public static final String FORK_JOIN = "forkjoin";
+    public static final String VIRTUAL = "virtual";
+
+    private GenerationExecutors() {
+    }
+
+    public static ExecutorService create(String kind, int threads) {
+        if (VIRTUAL.equalsIgnoreCase(kind)) {
+            ExecutorService virtual = newVirtualThreadExecutor();
+            if (virtual != null) {
+                return virtual;
+            }
+            System.out.println("가상 스레드를 지원하지 않는 JDK입니다. forkjoin 실행기로 대체합니다.");
+        } else if (!FORK_JOIN.equalsIgnoreCase(kind)) {
+            System.out.println("알 수 없는 실행기 종류: " + kind + " (forkjoin 사용)");
+        }
+
+        int parallelism = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * JDK 17에서도 컴파일되도록 리플렉션으로 호출
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.dk.merge;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * generation_log.txt 기록기
+ * 생성 실행마다 파일을 한 번만 열고, 기록할 내용은 큐에 넣어 전용 스레드가 버퍼를 거쳐 쓴다.
+ * 여러 작업 스레드에서 동시에 호출해도 되고, 한 번 넣은 내용은 섞이지 않고 넣은 순서대로 써진다.
+ */
+public class GenerationLog implements Closeable {
+
+    /**
+     * 콘솔 출력 수준 (generator.logLevel)
+     * - debug: 조각마다 처리 중/완료, 삭제한 파일, 그룹에 넣은 레코드까지 출력
+     * - info : 매크로와 그룹 단위 진행, 요약 (기본)
+     * - warn : 경고와 오류만
+     */
+    public enum Level {
+        DEBUG, INFO, WARN;
+
+        /**
+         * 설정 값으로 수준 반환 (알 수 없는 값이면 INFO)
+         */
+        public static Level parse(String value) {
+            for (Level level : values()) {
+                if (level.name().equalsIgnoreCase(value)) {
+                    return level;
+                }
+            }
+            System.out.println("알 수 없는 로그 수준: " + value + " (info 사용)");
+            return INFO;
+        }
+
+        /**
+         * 이 수준으로 설정했을 때 level의 출력을 보여주는지 여부
+         */
+        public boolean shows(Level level) {
+            return level.compareTo(this) >= 0;
+        }
+    }
+
+    // 큐를 닫는 표시 (내용과 구분하려고 새 인스턴스 사용)
+    private static final String END = new String();
+
+    private final BlockingQueue<String> queue = new LinkedBlockingQueue<>();
+    private final Writer writer;
+    private final Thread thread;
+    private volatile boolean failed;
+
+    /**
+     * file 뒤에 이어서 기록 (없으면 생성)
+     */
+    public GenerationLog(File file) throws IOException {
+        this.writer = new BufferedWriter(new FileWriter(file, true));
+        this.thread = new Thread(this::drain, "generation-log");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 기록할 내용 추가 (기다리지 않음)
+     */
+    public void write(String content) {
+        if (content != null && !content.isEmpty()) {
+            queue.add(content);
+        }
+    }
+
+    private void drain() {
+        try {
+            for (String content = queue.take(); content != END; content = queue.take()) {
+                if (failed) {
+                    continue;
+                }
+                try {
+                    writer.write(content);
+                    // 밀린 내용이 없을 때만 파일로 내보냄
+                    if (queue.isEmpty()) {
+                        writer.flush();
+                    }
+                } catch (IOException e) {
+                    failed = true;
+                    System.err.println("로그 파일 쓰기 실패: " + e.getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 남은 내용을 모두 쓰고 파일을 닫는다.
+     */
+    @Override
+    public void close() throws IOException {
+        queue.add(END);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package org.dk.merge;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 증분 생성용 매니페스트 (src/result/manifest.json)
+ * 출력물(매크로, 그룹)마다 입력 지문을 저장하고, 매크로는 generation_log.txt 항목도 함께 저장해서
+ * 건너뛴 매크로의 로그를 다시 만들 수 있게 한다.
+ */
+public class GenerationManifest {
+
+    public static final String DEFAULT_PATH = "src/result/manifest.json";
+
+    // 지문 계산 방식이나 출력 형식이 바뀌면 올려서 기존 매니페스트를 무효화
+    public static final String FORMAT_VERSION = "1";
+
+    private final Map<String, Entry> macros = new ConcurrentHashMap<>();
+    private final Map<String, Entry> groups = new ConcurrentHashMap<>();
+
+    /**
+     * 매니페스트 로드 (파일이 없거나 형식이 맞지 않으면 빈 매니페스트)
+     */
+    public static GenerationManifest load(ObjectMapper mapper, File file) {
+        GenerationManifest manifest = new GenerationManifest();
+        if (!file.exists()) {
+            return manifest;
+        }
+
+        try {
+            JsonNode root = mapper.readTree(file);
+            if (!FORMAT_VERSION.equals(root.path("version").asText())) {
+                System.out.println("매니페스트 형식이 달라 전체를 다시 생성합니다.");
+                return manifest;
+            }
+            readEntries(root.path("macros"), manifest.macros);
+            readEntries(root.path("groups"), manifest.groups);
+        } catch (IOException e) {
+            System.err.println("매니페스트 읽기 실패, 전체를 다시 생성합니다: " + e.getMessage());
+        }
+        return manifest;
+    }
+
+    private static void readEntries(JsonNode node, Map<String, Entry> target) {
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode value = field.getValue();
+            String log = value.hasNonNull("log") ? value.get("log").asText() : null;
+            target.put(field.getKey(), new Entry(value.path("fingerprint").asText(), log));
+        }
+    }
+
+    /**
+     * 이름 순으로 정렬해서 저장 (실행마다 같은 순서)
+     */
+    public void save(ObjectMapper mapper, File file) throws IOException {
+        ObjectNode root = mapper.createObjectNode();
+        root.put("version", FORMAT_VERSION);
+        root.set("macros", writeEntries(mapper, macros));
+        root.set("groups", writeEntries(mapper, groups));
+        mapper.writerWithDefaultPrettyPrinter().writeValue(file, root);
+    }
+
+    private static ObjectNode writeEntries(ObjectMapper mapper, Map<String, Entry> entries) {
+        ObjectNode node = mapper.createObjectNode();
+        for (Map.Entry<String, Entry> entry : new TreeMap<>(entries).entrySet()) {
+            ObjectNode value = node.putObject(entry.getKey());
+            value.put("fingerprint", entry.getValue().fingerprint);
+            if (entry.getValue().log != null) {
+                value.put("log", entry.getValue().log);
+            }
+        }
+        return node;
+    }
+
+    public Entry getMacro(String name) {
+        return macros.get(name);
+    }
+
+    public void putMacro(String name, String fingerprint, String log) {
+        macros.put(name, new Entry(fingerprint, log));
+    }
+
+    public Entry getGroup(String name) {
+        return groups.get(name);
+    }
+
+    /**
+     * 지난 실행과 입력 지문이 같고 결과 파일과 로그가 남아 있어 매크로를 건너뛰어도 되는지 여부
+     */
+    public boolean isMacroUpToDate(String name, String fingerprint, File output) {
+        Entry entry = macros.get(name);
+        return entry != null && entry.matches(fingerprint) && entry.getLog() != null && output.exists();
+    }
+
+    /**
+     * 지난 실행과 입력 지문이 같고 결과 파일이 남아 있어 그룹을 건너뛰어도 되는지 여부
+     */
+    public boolean isGroupUpToDate(String name, String fingerprint, File output) {
+        Entry entry = groups.get(name);
+        return entry != null && entry.matches(fingerprint) && output.exists();
+    }
+
+    public void putGroup(String name, String fingerprint) {
+        groups.put(name, new Entry(fingerprint, null));
+    }
+
+    public Set<String> macroNames() {
+        return macros.keySet();
+    }
+
+    public Set<String> groupNames() {
+        return groups.keySet();
+    }
+
+    /**
+     * 출력물 하나의 지문과 로그
+     */
+    public static class Entry {
+        private final String fingerprint;
+        private final String log;
+
+        Entry(String fingerprint, String log) {
+            this.fingerprint = fingerprint;
+            this.log = log;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        public String getLog() {
+            return log;
+        }
+
+        public boolean matches(String fingerprint) {
+            return this.fingerprint != null && this.fingerprint.equals(fingerprint);
+        }
+    }
+}
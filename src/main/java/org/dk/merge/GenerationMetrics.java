@@ -0,0 +1,185 @@
+package org.dk.merge;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 생성 실행 하나의 측정값 (metrics.json, 설정하면 Prometheus textfile도)
+ * 단계별 실행 시간, 매크로별 병합 결과와 생성 시간, 캐시 적중 수를 모아서 실행이 끝날 때 파일로 쓴다.
+ * 매크로 측정값은 결과를 받는 쪽에서 정의 순서대로 추가한다. (병렬 생성에서도 순서가 같음)
+ */
+public class GenerationMetrics {
+
+    // 결과 폴더(src/result)는 생성 결과만 두도록 빌드 폴더에 씀
+    public static final String DEFAULT_PATH = "build/metrics/metrics.json";
+
+    private final long startNanos = System.nanoTime();
+    private final Map<String, Long> stages = new LinkedHashMap<>();
+    private final List<Macro> macros = new ArrayList<>();
+    private final Map<String, long[]> caches = new LinkedHashMap<>();
+
+    /**
+     * since부터 지금까지를 단계 하나의 실행 시간으로 기록하고 지금 시각(nanoTime) 반환
+     */
+    public synchronized long stage(String name, long since) {
+        long now = System.nanoTime();
+        stages.merge(name, now - since, Long::sum);
+        return now;
+    }
+
+    public synchronized void macro(Macro macro) {
+        macros.add(macro);
+    }
+
+    /**
+     * 이번 실행 동안의 캐시 적중/실패 수 기록
+     */
+    public synchronized void cache(String name, long hits, long misses) {
+        caches.put(name, new long[]{hits, misses});
+    }
+
+    /**
+     * metrics.json 쓰기 (단계와 매크로 생성 시간은 ms)
+     */
+    public synchronized void writeJson(ObjectMapper mapper, File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        ObjectNode root = mapper.createObjectNode();
+        root.put("totalMs", millis(System.nanoTime() - startNanos));
+
+        ObjectNode stageNode = root.putObject("stages");
+        for (Map.Entry<String, Long> stage : stages.entrySet()) {
+            stageNode.put(stage.getKey(), millis(stage.getValue()));
+        }
+
+        ArrayNode macroNode = root.putArray("macros");
+        for (Macro macro : macros) {
+            ObjectNode node = macroNode.addObject();
+            node.put("name", macro.name);
+            node.put("skipped", macro.skipped);
+            node.put("fragments", macro.fragments);
+            node.put("bytesRead", macro.bytesRead);
+            node.put("bytesWritten", macro.bytesWritten);
+            node.put("events", macro.events);
+            node.put("durationMs", macro.durationMs);
+            node.put("buildMs", millis(macro.buildNanos));
+        }
+
+        ObjectNode cacheNode = root.putObject("caches");
+        for (Map.Entry<String, long[]> cache : caches.entrySet()) {
+            long hits = cache.getValue()[0];
+            long misses = cache.getValue()[1];
+            ObjectNode node = cacheNode.putObject(cache.getKey());
+            node.put("hits", hits);
+            node.put("misses", misses);
+            node.put("hitRate", hits + misses > 0 ? (double) hits / (hits + misses) : 0.0);
+        }
+
+        mapper.writerWithDefaultPrettyPrinter().writeValue(file, root);
+    }
+
+    /**
+     * node_exporter textfile 형식으로 쓰기 (수집 중에 반쯤 쓴 파일을 읽지 않도록 임시 파일을 옮김)
+     */
+    public synchronized void writeTextfile(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        Path temp = new File(file.getPath() + ".tmp").toPath();
+        try (Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            header(out, "macro_generator_total_seconds", "Wall time of the whole generation run.");
+            out.write("macro_generator_total_seconds " + seconds(System.nanoTime() - startNanos) + "\n");
+
+            header(out, "macro_generator_stage_seconds", "Wall time of each generation stage.");
+            for (Map.Entry<String, Long> stage : stages.entrySet()) {
+                sample(out, "macro_generator_stage_seconds", "stage", stage.getKey(), seconds(stage.getValue()));
+            }
+
+            header(out, "macro_generator_macro_build_seconds", "Time spent generating each macro.");
+            for (Macro macro : macros) {
+                sample(out, "macro_generator_macro_build_seconds", "macro", macro.name, seconds(macro.buildNanos));
+            }
+            header(out, "macro_generator_macro_fragments", "Fragments merged into each macro.");
+            for (Macro macro : macros) {
+                sample(out, "macro_generator_macro_fragments", "macro", macro.name, String.valueOf(macro.fragments));
+            }
+            header(out, "macro_generator_macro_read_bytes", "Source bytes of the fragments merged into each macro.");
+            for (Macro macro : macros) {
+                sample(out, "macro_generator_macro_read_bytes", "macro", macro.name, String.valueOf(macro.bytesRead));
+            }
+            header(out, "macro_generator_macro_written_bytes", "Size of each macro output file.");
+            for (Macro macro : macros) {
+                sample(out, "macro_generator_macro_written_bytes", "macro", macro.name, String.valueOf(macro.bytesWritten));
+            }
+            header(out, "macro_generator_macro_events", "Events in each macro output.");
+            for (Macro macro : macros) {
+                sample(out, "macro_generator_macro_events", "macro", macro.name, String.valueOf(macro.events));
+            }
+            header(out, "macro_generator_macro_duration_seconds", "Playback duration of each macro.");
+            for (Macro macro : macros) {
+                sample(out, "macro_generator_macro_duration_seconds", "macro", macro.name,
+                    String.valueOf(macro.durationMs / 1000.0));
+            }
+
+            header(out, "macro_generator_cache_hits", "Cache hits during the run.");
+            for (Map.Entry<String, long[]> cache : caches.entrySet()) {
+                sample(out, "macro_generator_cache_hits", "cache", cache.getKey(), String.valueOf(cache.getValue()[0]));
+            }
+            header(out, "macro_generator_cache_misses", "Cache misses during the run.");
+            for (Map.Entry<String, long[]> cache : caches.entrySet()) {
+                sample(out, "macro_generator_cache_misses", "cache", cache.getKey(), String.valueOf(cache.getValue()[1]));
+            }
+        }
+        Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void header(Writer out, String metric, String help) throws IOException {
+        out.write("# HELP " + metric + " " + help + "\n");
+        out.write("# TYPE " + metric + " gauge\n");
+    }
+
+    private static void sample(Writer out, String metric, String label, String value, String sample) throws IOException {
+        String escaped = value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        out.write(metric + "{" + label + "=\"" + escaped + "\"} " + sample + "\n");
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+
+    private static String seconds(long nanos) {
+        return String.valueOf(nanos / 1_000_000_000.0);
+    }
+
+    /**
+     * 매크로 하나의 측정값 (건너뛴 매크로는 이름과 생성 시간만 채워짐)
+     */
+    public static class Macro {
+        public String name;
+        public boolean skipped;
+        public int fragments;
+        // 병합한 조각의 원본 파일 크기 합 (캐시에서 가져온 조각 포함, 메모리에서 만든 대기 조각은 0)
+        public long bytesRead;
+        public long bytesWritten;
+        public long events;
+        // 결과 매크로의 실행 시간 (마지막 이벤트의 ms)
+        public long durationMs;
+        public long buildNanos;
+    }
+}
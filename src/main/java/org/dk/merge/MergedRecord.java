@@ -0,0 +1,42 @@
+package org.dk.merge;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+
+/**
+ * 방금 생성한 매크로의 r8 레코드를 메모리로 넘기기 위한 표현
+ * 메타데이터와 병합된 이벤트 버퍼(EventBuffer)를 그대로 보관하며,
+ * 그룹 파일을 쓸 때 결과 파일을 다시 읽는 대신 이 버퍼를 기록한다.
+ */
+public class MergedRecord {
+
+    private final String name;
+    private final ObjectNode metadata;
+    private final EventBuffer events;
+
+    public MergedRecord(String name, ObjectNode metadata, EventBuffer events) {
+        this.name = name;
+        this.metadata = metadata;
+        this.events = events;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * r8 레코드 객체 전체를 현재 위치에 기록 (결과 파일의 r8과 동일한 내용)
+     */
+    public void writeTo(JsonGenerator gen) throws IOException {
+        gen.writeStartObject();
+        StreamingMacroWriter.writeFields(gen, metadata);
+
+        gen.writeFieldName("events");
+        gen.writeStartArray();
+        events.writeEvents(gen, 0);
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+}
@@ -0,0 +1,121 @@
+package org.dk.merge;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * 매크로 하나의 병렬 병합 (generator.parallelMerge)
+ * 조각의 시작 ms는 앞 조각들의 누적 ms 증가량(FragmentStats.advanceMs) 합이므로 Arrays.parallelPrefix로 먼저 구하고,
+ * 조각 목록을 묶음으로 나눠 묶음마다 이벤트를 밀어 붙이고 결과 파일 바이트로 렌더링한 뒤 순서대로 이어 붙인다.
+ * 스크립트 종료 이벤트는 마지막 조각에서만 유지한다. (순차 병합과 같은 규칙)
+ */
+public class ParallelMerge {
+
+    // 묶음 하나의 최소 조각 수
+    private static final int MIN_CHUNK = 32;
+
+    private final Fragment[] fragments;
+    // 조각별 시작 ms와 앞선 이벤트 수
+    private final long[] offsets;
+    private final int[] eventStarts;
+    private final long durationMs;
+    private final int eventCount;
+    private final int chunkSize;
+
+    public ParallelMerge(Fragment[] fragments) {
+        this.fragments = fragments;
+        int n = fragments.length;
+
+        long[] advance = new long[n];
+        int[] events = new int[n];
+        IntStream.range(0, n).parallel().forEach(i -> {
+            FragmentStats stats = fragments[i].getStats();
+            boolean lastFile = i == n - 1;
+            advance[i] = stats.advanceMs(lastFile);
+            events[i] = stats.events(lastFile);
+        });
+        Arrays.parallelPrefix(advance, Long::sum);
+        Arrays.parallelPrefix(events, Integer::sum);
+
+        this.offsets = new long[n];
+        this.eventStarts = new int[n];
+        for (int i = 1; i < n; i++) {
+            offsets[i] = advance[i - 1];
+            eventStarts[i] = events[i - 1];
+        }
+        this.durationMs = n > 0 ? advance[n - 1] : 0;
+        this.eventCount = n > 0 ? events[n - 1] : 0;
+
+        int chunks = Runtime.getRuntime().availableProcessors() * 4;
+        this.chunkSize = Math.max(MIN_CHUNK, (n + chunks - 1) / chunks);
+    }
+
+    /**
+     * 묶음들을 병렬로 병합 (render가 true면 결과 파일 바이트도 만든다)
+     */
+    public Chunk[] run(boolean render) {
+        Chunk[] chunks = new Chunk[(fragments.length + chunkSize - 1) / chunkSize];
+        IntStream.range(0, chunks.length).parallel().forEach(c -> {
+            int from = c * chunkSize;
+            chunks[c] = mergeChunk(from, Math.min(from + chunkSize, fragments.length), render);
+        });
+        return chunks;
+    }
+
+    private Chunk mergeChunk(int from, int to, boolean render) {
+        EventBuffer events = new EventBuffer(Math.max(16, (to - from) * 8));
+        ByteArrayOutputStream bytes = render ? new ByteArrayOutputStream() : null;
+        byte[] digits = new byte[20];
+        int eventIndex = eventStarts[from];
+
+        for (int i = from; i < to; i++) {
+            EventBuffer source = fragments[i].getEventBuffer();
+            if (source == null || source.size() == 0) {
+                continue;
+            }
+            boolean lastFile = i == fragments.length - 1;
+            events.appendShifted(source, offsets[i], lastFile);
+            if (render) {
+                try {
+                    eventIndex += StreamingMacroWriter.renderSpliced(bytes, fragments[i].getSpliceTemplate(),
+                        offsets[i], lastFile, eventIndex, digits);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+        return new Chunk(from, to, events, render ? bytes.toByteArray() : null);
+    }
+
+    /**
+     * 마지막 조각까지 병합한 뒤의 누적 ms
+     */
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public int getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * 조각 [from, to) 묶음의 병합 결과
+     */
+    public static class Chunk {
+        public final int from;
+        public final int to;
+        public final EventBuffer events;
+        // 결과 파일의 events 배열에 그대로 이어 쓸 바이트 (구분자 포함, 렌더링하지 않았으면 null)
+        public final byte[] bytes;
+
+        Chunk(int from, int to, EventBuffer events, byte[] bytes) {
+            this.from = from;
+            this.to = to;
+            this.events = events;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package org.dk.merge;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * 쓰기를 전용 스레드에서 하는 StreamingMacroWriter (generator.pipeline의 쓰기 단계)
+ * 병합 스레드는 쓰기 작업을 크기가 정해진 큐에 넣기만 하고, 큐가 차면 출력이 따라잡을 때까지 기다린다.
+ * 작업은 넣은 순서대로 실행되고, 쓰기 중 실패하면 다음 호출이나 finish에서 예외를 다시 던진다.
+ * 병합 버퍼를 쓰기 스레드와 공유하지 않도록 writeEvents는 호출한 스레드에서 바이트로 렌더링한 뒤 넣는다.
+ */
+public class PipelinedMacroWriter extends StreamingMacroWriter {
+
+    private static final Task STOP = () -> {
+    };
+
+    private final BlockingQueue<Task> queue;
+    private final Thread thread;
+    // 넣은 이벤트 수 (병합 스레드 쪽, 직접 렌더링할 때 배열 구분자 결정용)
+    private int submitted;
+    private final byte[] digits = new byte[20];
+    private volatile Exception failure;
+    private boolean stopped;
+
+    public PipelinedMacroWriter(ObjectMapper mapper, File outputFile, int capacity) throws IOException {
+        super(mapper, outputFile);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.thread = new Thread(this::drain, "macro-writer-" + outputFile.getName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void writeHeader(JsonNode metadata) throws IOException {
+        submit(() -> super.writeHeader(metadata));
+    }
+
+    /**
+     * 병합 버퍼는 다음 조각이 붙으면 바뀌므로 from부터 끝까지를 지금 렌더링해서 바이트로 넘긴다
+     */
+    @Override
+    public void writeEvents(EventBuffer events, int from) throws IOException {
+        checkFailure();
+        ByteArrayOutputStream rendered = new ByteArrayOutputStream();
+        int count = renderSpliced(rendered, SpliceTemplate.of(events, from, events.size()), 0, true, submitted, digits);
+        writeRendered(rendered.toByteArray(), count);
+    }
+
+    @Override
+    public void writeSpliced(SpliceTemplate template, long offset, boolean includeEndMarker) throws IOException {
+        for (int i = 0; i < template.size(); i++) {
+            if (includeEndMarker || !template.isEndMarker(i)) {
+                submitted++;
+            }
+        }
+        submit(() -> super.writeSpliced(template, offset, includeEndMarker));
+    }
+
+    @Override
+    public void writeRendered(byte[] bytes, int events) throws IOException {
+        submitted += events;
+        submit(() -> super.writeRendered(bytes, events));
+    }
+
+    /**
+     * 마무리 작업까지 넣고 쓰기 스레드가 모두 쓸 때까지 기다림
+     */
+    @Override
+    public void finish() throws IOException {
+        submit(super::finish);
+        stop();
+        checkFailure();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            stop();
+        } finally {
+            super.close();
+        }
+    }
+
+    private void submit(Task task) throws IOException {
+        checkFailure();
+        put(task);
+    }
+
+    private void put(Task task) throws IOException {
+        try {
+            queue.put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("결과 파일 쓰기 대기 중 중단되었습니다.", e);
+        }
+    }
+
+    private void stop() throws IOException {
+        if (stopped) {
+            return;
+        }
+        stopped = true;
+        put(STOP);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("결과 파일 쓰기 대기 중 중단되었습니다.", e);
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        Exception e = failure;
+        if (e instanceof IOException) {
+            throw (IOException) e;
+        }
+        if (e != null) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * 쓰기 스레드 본체 (실패한 뒤에는 STOP까지 남은 작업을 버려서 넣는 쪽이 막히지 않게 함)
+     */
+    private void drain() {
+        try {
+            while (true) {
+                Task task = queue.take();
+                if (task == STOP) {
+                    return;
+                }
+                if (failure == null) {
+                    try {
+                        task.run();
+                    } catch (Exception e) {
+                        failure = e;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private interface Task {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,141 @@
+package org.dk.merge;
+
+import org.dk.script.FragmentSymbols;
+import org.dk.script.ScriptPlan;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 스크립트 계획 최적화 (계획 생성과 병합 사이, generator.optimizePlan)
+ * 1. 연속된 대기 조각(wait_*)을 길이를 더한 대기 조각 하나로 합친다. (실행 시간은 같고 이벤트만 줄어듦)
+ * 2. idempotentFragments에 지정한 조각이 대기만 사이에 두고 다시 나오면 뒤의 것을 뺀다. (뺀 조각의 시간만큼 짧아짐)
+ */
+public class PlanOptimizer {
+
+    // 합친 대기 이름이 녹화 파일과 겹치는지 확인할 폴더
+    private static final File MACRO_DIR = new File(FragmentSymbols.MACRO_DIR);
+
+    // 뺀 조각의 이벤트 수와 길이 계산용
+    private final FragmentSource fragments;
+    private final boolean coalesceWaits;
+    private final Set<Integer> idempotent = new HashSet<>();
+
+    private final AtomicLong mergedWaits = new AtomicLong();
+    private final AtomicLong removedDuplicates = new AtomicLong();
+    private final AtomicLong savedEvents = new AtomicLong();
+    private final AtomicLong savedMs = new AtomicLong();
+
+    /**
+     * @param coalesceWaits 대기 조각을 메모리에서 만들 수 있을 때만 true (합친 대기는 녹화 파일이 없음)
+     */
+    public PlanOptimizer(FragmentSource fragments, boolean coalesceWaits, Collection<String> idempotentFragments) {
+        this.fragments = fragments;
+        this.coalesceWaits = coalesceWaits;
+        for (String name : idempotentFragments) {
+            idempotent.add(FragmentSymbols.intern(name));
+        }
+    }
+
+    /**
+     * 계획 하나를 최적화한 새 계획과 줄어든 양 반환
+     */
+    public Result optimize(ScriptPlan plan) throws IOException {
+        Result result = new Result(new ScriptPlan(plan.size()));
+
+        long pendingMs = 0;
+        int pendingCount = 0;
+        int pendingFirst = -1;
+        int lastAction = -1;
+
+        for (int i = 0; i < plan.size(); i++) {
+            int id = plan.id(i);
+            String name = FragmentSymbols.name(id);
+            long waitMs = WaitFragments.durationMs(name);
+
+            if (waitMs >= 0) {
+                // 대기는 중복 판단에서 건너뛰고, 메모리에서 만드는 대기만 모아서 합침
+                if (!coalesceWaits || WaitFragments.get(name, FragmentSymbols.path(id)) == null) {
+                    flushWait(result, pendingFirst, pendingCount, pendingMs);
+                    pendingMs = 0;
+                    pendingCount = 0;
+                    result.plan.add(id);
+                    continue;
+                }
+                if (pendingCount == 0) {
+                    pendingFirst = id;
+                }
+                pendingMs += waitMs;
+                pendingCount++;
+                continue;
+            }
+
+            if (id == lastAction && idempotent.contains(id)) {
+                FragmentStats stats = fragments.get(id).getStats();
+                result.removedDuplicates++;
+                result.savedEvents += stats.events(false);
+                result.savedMs += stats.advanceMs(false);
+                continue;
+            }
+
+            flushWait(result, pendingFirst, pendingCount, pendingMs);
+            pendingMs = 0;
+            pendingCount = 0;
+            result.plan.add(id);
+            lastAction = id;
+        }
+        flushWait(result, pendingFirst, pendingCount, pendingMs);
+
+        mergedWaits.addAndGet(result.mergedWaits);
+        removedDuplicates.addAndGet(result.removedDuplicates);
+        savedEvents.addAndGet(result.savedEvents);
+        savedMs.addAndGet(result.savedMs);
+        return result;
+    }
+
+    private static void flushWait(Result result, int first, int count, long ms) {
+        if (count == 0) {
+            return;
+        }
+        if (count == 1) {
+            result.plan.add(first);
+            return;
+        }
+        result.plan.add(FragmentSymbols.intern(WaitFragments.syntheticName(ms, MACRO_DIR)));
+        result.mergedWaits += count - 1;
+        result.savedEvents += (long) WaitFragments.EVENT_COUNT * (count - 1);
+    }
+
+    /**
+     * 이번 실행 전체 요약 문자열
+     */
+    public String summary() {
+        return String.format("계획 최적화: 대기 %d개 합침, 중복 %d개 제거, 이벤트 %d개 감소, 실행 시간 %d ms 단축",
+            mergedWaits.get(), removedDuplicates.get(), savedEvents.get(), savedMs.get());
+    }
+
+    /**
+     * 계획 하나의 최적화 결과
+     */
+    public static class Result {
+        public final ScriptPlan plan;
+        public int mergedWaits;
+        public int removedDuplicates;
+        public long savedEvents;
+        public long savedMs;
+
+        Result(ScriptPlan plan) {
+            this.plan = plan;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("대기 %d개 합침, 중복 %d개 제거, 이벤트 %d개 감소, %d ms 단축",
+                mergedWaits, removedDuplicates, savedEvents, savedMs);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package org.dk.merge;
+
+import org.dk.script.ScriptPlan;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 미리 합쳐 둔 구간 캐시 (generator.segmentCache)
+ * ScriptPlan의 구간(script* 블록)을 처음 만날 때 0 ms 기준으로 한 번 합쳐 두고,
+ * 같은 조각 순서의 구간이 다시 나오면 조각마다 병합하지 않고 묶음 전체를 누적 ms만큼 밀어서 붙인다.
+ * 구간은 마지막 파일이 아니므로 스크립트 종료 이벤트는 포함하지 않는다.
+ * 조각 캐시와 달리 파일 변경을 확인하지 않으므로 생성 실행마다 새로 만든다.
+ */
+public class SegmentCache {
+
+    private final FragmentSource fragments;
+    private final Map<Key, Segment> segments = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public SegmentCache(FragmentSource fragments) {
+        this.fragments = fragments;
+    }
+
+    /**
+     * plan의 [from, to) 구간 반환 (없으면 합쳐서 보관)
+     */
+    public Segment get(ScriptPlan plan, int from, int to) throws IOException {
+        int[] ids = new int[to - from];
+        for (int i = from; i < to; i++) {
+            ids[i - from] = plan.id(i);
+        }
+        Key key = new Key(ids);
+
+        Segment segment = segments.get(key);
+        if (segment != null) {
+            hits.incrementAndGet();
+            return segment;
+        }
+
+        misses.incrementAndGet();
+        EventBuffer events = new EventBuffer(ids.length * 16);
+        long cumulativeMs = 0;
+        long sourceBytes = 0;
+        for (int id : ids) {
+            Fragment fragment = fragments.get(id);
+            sourceBytes += fragment.getSourceBytes();
+            EventBuffer source = fragment.getEventBuffer();
+            if (source == null || source.size() == 0) {
+                continue;
+            }
+            if (events.appendShifted(source, cumulativeMs, false) > 0) {
+                cumulativeMs = events.getMs(events.size() - 1);
+            }
+        }
+        Segment created = new Segment(events, sourceBytes);
+        Segment existing = segments.putIfAbsent(key, created);
+        return existing != null ? existing : created;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * 적중률 요약 문자열
+     */
+    public String summary() {
+        return String.format("구간 캐시: hit %d / miss %d (보관 %d개)", hits.get(), misses.get(), segments.size());
+    }
+
+    /**
+     * 0 ms 기준으로 합친 구간 하나
+     */
+    public static class Segment {
+        private final EventBuffer events;
+        private final long sourceBytes;
+        private SpliceTemplate spliceTemplate;
+
+        Segment(EventBuffer events, long sourceBytes) {
+            this.events = events;
+            this.sourceBytes = sourceBytes;
+        }
+
+        public EventBuffer getEvents() {
+            return events;
+        }
+
+        /**
+         * 구간에 들어간 조각의 원본 파일 크기 합
+         */
+        public long getSourceBytes() {
+            return sourceBytes;
+        }
+
+        /**
+         * 결과 파일 형식으로 렌더링한 구간 바이트 (처음 요청할 때 만든다)
+         */
+        public synchronized SpliceTemplate getSpliceTemplate() {
+            if (spliceTemplate == null) {
+                spliceTemplate = SpliceTemplate.of(events);
+            }
+            return spliceTemplate;
+        }
+    }
+
+    private static final class Key {
+        private final int[] ids;
+        private final int hash;
+
+        Key(int[] ids) {
+            this.ids = ids;
+            this.hash = Arrays.hashCode(ids);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && Arrays.equals(ids, ((Key) o).ids);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package org.dk.merge;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 조각의 이벤트를 결과 파일 형식(기본 PrettyPrinter, events 배열 깊이)으로 한 번 렌더링해 둔 바이트
+ * 병합할 때는 이벤트마다 ms 값 자리만 바꿔 쓰고 나머지 바이트는 그대로 복사한다.
+ * 조각 파일 원본은 들여쓰기와 줄바꿈이 결과와 달라서 원본 바이트 대신 렌더링한 바이트를 쓴다.
+ */
+public class SpliceTemplate {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    // 렌더링할 때 ms 자리에 넣는 값 (바이트에서 위치를 찾는 데만 사용)
+    private static final long MS_PLACEHOLDER = Long.MIN_VALUE;
+    private static final byte[] MS_TOKEN = ("\"" + MS_PLACEHOLDER + "\"").getBytes(StandardCharsets.UTF_8);
+
+    private final byte[] bytes;
+    private final int size;
+    private final int[] start;    // 이벤트의 '{' 위치
+    private final int[] msStart;  // ms 값(따옴표 안) 시작, ms 필드가 없으면 -1
+    private final int[] msEnd;    // ms 값 끝 (닫는 따옴표 위치)
+    private final int[] end;      // '}' 다음 위치
+    private final long[] ms;
+    private final boolean[] endMarker;
+
+    private SpliceTemplate(byte[] bytes, int size) {
+        this.bytes = bytes;
+        this.size = size;
+        this.start = new int[size];
+        this.msStart = new int[size];
+        this.msEnd = new int[size];
+        this.end = new int[size];
+        this.ms = new long[size];
+        this.endMarker = new boolean[size];
+    }
+
+    /**
+     * 이벤트 버퍼 전체를 렌더링
+     */
+    public static SpliceTemplate of(EventBuffer events) {
+        return of(events, 0, events.size());
+    }
+
+    /**
+     * 이벤트 버퍼의 [from, to) 구간을 렌더링
+     */
+    public static SpliceTemplate of(EventBuffer events, int from, int to) {
+        int count = to - from;
+        int[] before = new int[count];
+        int[] after = new int[count];
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(count, 1) * 256);
+
+        try (JsonGenerator gen = mapper.writerWithDefaultPrettyPrinter().createGenerator(buffer, JsonEncoding.UTF8)) {
+            // 결과 파일의 events 배열과 같은 깊이에서 렌더링해야 들여쓰기가 같다
+            gen.writeStartObject();
+            gen.writeFieldName("records");
+            gen.writeStartObject();
+            gen.writeFieldName("r8");
+            gen.writeStartObject();
+            gen.writeFieldName("events");
+            gen.writeStartArray();
+
+            for (int i = 0; i < count; i++) {
+                gen.flush();
+                before[i] = buffer.size();
+                events.writeEvent(gen, from + i, MS_PLACEHOLDER);
+                gen.flush();
+                after[i] = buffer.size();
+            }
+        } catch (IOException e) {
+            // 메모리에 쓰므로 실제로는 일어나지 않음
+            throw new UncheckedIOException(e);
+        }
+
+        SpliceTemplate template = new SpliceTemplate(buffer.toByteArray(), count);
+        for (int i = 0; i < count; i++) {
+            // 배열 구분자(" " 또는 ", ")는 빼고 '{'부터 보관
+            int eventStart = indexOf(template.bytes, (byte) '{', before[i], after[i]);
+            int token = indexOf(template.bytes, MS_TOKEN, eventStart, after[i]);
+            template.start[i] = eventStart;
+            template.end[i] = after[i];
+            template.msStart[i] = token >= 0 ? token + 1 : -1;
+            template.msEnd[i] = token >= 0 ? token + MS_TOKEN.length - 1 : -1;
+            template.ms[i] = events.getMs(from + i);
+            template.endMarker[i] = events.isEndMarker(from + i);
+        }
+        return template;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 렌더링한 바이트와 위치 배열이 차지하는 대략적인 바이트 수 (조각 캐시 예산용)
+     */
+    public long retainedBytes() {
+        return bytes.length + (long) size * (4 * Integer.BYTES + Long.BYTES + 1);
+    }
+
+    public long getMs(int index) {
+        return ms[index];
+    }
+
+    public boolean isEndMarker(int index) {
+        return endMarker[index];
+    }
+
+    public boolean hasMs(int index) {
+        return msStart[index] >= 0;
+    }
+
+    /**
+     * 이벤트 하나의 바이트 수 (ms 값 자리 제외)
+     */
+    public int fixedBytes(int index) {
+        int length = end[index] - start[index];
+        return msStart[index] < 0 ? length : length - (msEnd[index] - msStart[index]);
+    }
+
+    /**
+     * 이벤트 하나를 ms만 offset만큼 밀어서 out에 기록
+     *
+     * @param digits 숫자 변환용 작업 배열 (20바이트 이상)
+     */
+    public void writeEvent(OutputStream out, int index, long offset, byte[] digits) throws IOException {
+        if (msStart[index] < 0) {
+            out.write(bytes, start[index], end[index] - start[index]);
+            return;
+        }
+        out.write(bytes, start[index], msStart[index] - start[index]);
+        writeDecimal(out, ms[index] + offset, digits);
+        out.write(bytes, msEnd[index], end[index] - msEnd[index]);
+    }
+
+    private static void writeDecimal(OutputStream out, long value, byte[] digits) throws IOException {
+        if (value < 0) {
+            out.write(String.valueOf(value).getBytes(StandardCharsets.US_ASCII));
+            return;
+        }
+        int pos = digits.length;
+        do {
+            digits[--pos] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value > 0);
+        out.write(digits, pos, digits.length - pos);
+    }
+
+    private static int indexOf(byte[] bytes, byte target, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(byte[] bytes, byte[] target, int from, int to) {
+        outer:
+        for (int i = from; i <= to - target.length; i++) {
+            for (int j = 0; j < target.length; j++) {
+                if (bytes[i + j] != target[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+}
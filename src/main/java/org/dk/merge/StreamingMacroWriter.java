@@ -0,0 +1,168 @@
+package org.dk.merge;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * 병합 결과를 JsonGenerator로 바로 써 내려가는 출력기
+ * records.r8 메타데이터를 먼저 쓰고, 이벤트는 조각이 병합 버퍼에 붙는 즉시 기록한다.
+ * 기본 PrettyPrinter를 그대로 사용하므로 트리 방식(writerWithDefaultPrettyPrinter)과 바이트 단위로 동일하다.
+ *
+ * 이벤트는 JsonGenerator로 쓰거나(writeEvents) 미리 렌더링한 바이트를 ms만 바꿔 복사할 수 있다(writeSpliced).
+ * 배열 구분자를 따로 관리하므로 한 출력기에서 두 방식을 섞어 쓰면 안 된다.
+ */
+public class StreamingMacroWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte[] FIRST_SEPARATOR = " ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SEPARATOR = ", ".getBytes(StandardCharsets.US_ASCII);
+
+    private final OutputStream out;
+    private final JsonGenerator gen;
+    private final byte[] digits = new byte[20];
+    private int eventCount;
+    private boolean finished;
+
+    public StreamingMacroWriter(ObjectMapper mapper, File outputFile) throws IOException {
+        this.out = new BufferedOutputStream(new FileOutputStream(outputFile), BUFFER_SIZE);
+        try {
+            this.gen = mapper.writerWithDefaultPrettyPrinter().createGenerator(out, JsonEncoding.UTF8);
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+        // 바이트를 직접 쓰기 전 flush가 파일까지 내려가지 않도록
+        gen.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+    }
+
+    /**
+     * records / r8 껍데기와 메타데이터를 쓰고 events 배열을 연다
+     */
+    public void writeHeader(JsonNode metadata) throws IOException {
+        gen.writeStartObject();
+        gen.writeFieldName("records");
+        gen.writeStartObject();
+        gen.writeFieldName("r8");
+        gen.writeStartObject();
+
+        writeFields(gen, metadata);
+
+        gen.writeFieldName("events");
+        gen.writeStartArray();
+    }
+
+    /**
+     * 병합 버퍼의 from부터 끝까지의 이벤트를 기록 (조각 하나를 붙일 때마다 새로 붙은 부분만)
+     */
+    public void writeEvents(EventBuffer events, int from) throws IOException {
+        events.writeEvents(gen, from);
+        eventCount += events.size() - from;
+    }
+
+    /**
+     * 렌더링해 둔 조각 이벤트를 ms만 offset만큼 밀어서 그대로 복사
+     *
+     * @param includeEndMarker false면 스크립트 종료 이벤트는 건너뜀 (마지막 파일만 true)
+     */
+    public void writeSpliced(SpliceTemplate template, long offset, boolean includeEndMarker) throws IOException {
+        // 생성기에 남은 바이트(헤더 등)를 먼저 내보내야 순서가 맞는다
+        gen.flush();
+        eventCount += renderSpliced(out, template, offset, includeEndMarker, eventCount, digits);
+    }
+
+    /**
+     * renderSpliced로 따로 렌더링해 둔 이벤트 바이트를 그대로 이어 씀
+     *
+     * @param events bytes에 들어 있는 이벤트 수
+     */
+    public void writeRendered(byte[] bytes, int events) throws IOException {
+        gen.flush();
+        out.write(bytes);
+        eventCount += events;
+    }
+
+    /**
+     * 조각 이벤트를 배열 구분자와 함께 target에 렌더링하고 쓴 이벤트 수 반환
+     *
+     * @param eventIndex events 배열에서 첫 이벤트가 들어갈 위치 (구분자 결정용)
+     */
+    public static int renderSpliced(OutputStream target, SpliceTemplate template, long offset, boolean includeEndMarker,
+                                    int eventIndex, byte[] digits) throws IOException {
+        int written = 0;
+        for (int i = 0; i < template.size(); i++) {
+            if (!includeEndMarker && template.isEndMarker(i)) {
+                continue;
+            }
+            target.write(eventIndex + written == 0 ? FIRST_SEPARATOR : SEPARATOR);
+            template.writeEvent(target, i, offset, digits);
+            written++;
+        }
+        return written;
+    }
+
+    /**
+     * 객체의 필드들을 현재 위치에 그대로 기록
+     */
+    public static void writeFields(JsonGenerator gen, JsonNode node) throws IOException {
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            gen.writeFieldName(field.getKey());
+            gen.writeTree(field.getValue());
+        }
+    }
+
+    /**
+     * 이벤트 객체를 ms만 adjustedMs로 바꿔서 기록
+     */
+    public static void writeShiftedEvent(JsonGenerator gen, JsonNode event, long adjustedMs) throws IOException {
+        gen.writeStartObject();
+        Iterator<Map.Entry<String, JsonNode>> fields = event.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if ("ms".equals(field.getKey())) {
+                gen.writeStringField("ms", String.valueOf(adjustedMs));
+            } else {
+                gen.writeFieldName(field.getKey());
+                gen.writeTree(field.getValue());
+            }
+        }
+        gen.writeEndObject();
+    }
+
+    /**
+     * events 배열과 r8 / records / 최상위 객체를 닫는다
+     */
+    public void finish() throws IOException {
+        gen.writeEndArray();
+        gen.writeEndObject();
+        gen.writeEndObject();
+        gen.writeEndObject();
+        finished = true;
+    }
+
+    public int getEventCount() {
+        return eventCount;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    @Override
+    public void close() throws IOException {
+        gen.close();
+    }
+}
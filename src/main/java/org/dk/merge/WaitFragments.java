@@ -0,0 +1,301 @@
+package org.dk.merge;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.dk.script.FragmentSymbols;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 대기 조각 생성기
+ * wait_sec_N, wait_min_N, wait_hour_N(소수 가능) 이름의 대기 조각을 파일을 읽지 않고 메모리에서 만든다.
+ * 녹화한 대기 조각은 모두 같은 형태(type 27 이벤트 4개가 D-600, D-500, D-100, D ms)라서 길이 D만 알면 된다.
+ *
+ * 녹화 파일이 있는 표준 대기는 녹화 파일의 길이(여유 시간 포함)를 그대로 쓰고, verify로 파일과 같은지 확인한다.
+ * 표준 대기의 녹화 파일을 다시 녹화해서 생성기 결과와 달라지면 그 대기는 파일에서 읽는다. (checkRecordings)
+ * 표준이 아닌 이름(예: wait_min_45)은 파일이 없을 때만 이름의 길이로 만든다.
+ */
+public final class WaitFragments {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final Pattern NAME = Pattern.compile("wait_(sec|min|hour)_(\\d+(?:\\.\\d+)?)");
+
+    /**
+     * 대기 조각 하나의 이벤트 수
+     */
+    public static final int EVENT_COUNT = 4;
+
+    // 이벤트 ms 오프셋(끝 기준)과 detail (키 누름/뗌)
+    private static final long[] OFFSETS = {600, 500, 100, 0};
+    private static final String[] DETAILS = {"65537", "3221291009", "65537", "3221291009"};
+
+    // 녹화 파일의 대기 길이 (ms)
+    private static final Map<String, Long> RECORDED = Map.ofEntries(
+        Map.entry("wait_sec_2", 2000L),
+        Map.entry("wait_sec_5", 5000L),
+        Map.entry("wait_sec_10", 10000L),
+        Map.entry("wait_sec_30", 30000L),
+        Map.entry("wait_min_3", 180000L),
+        Map.entry("wait_min_10", 620000L),
+        Map.entry("wait_min_20", 1220000L),
+        Map.entry("wait_min_30", 1820000L),
+        Map.entry("wait_min_40", 2420000L),
+        Map.entry("wait_hour_1", 3620000L),
+        Map.entry("wait_hour_2", 7220000L),
+        Map.entry("wait_hour_2.5", 9060000L),
+        Map.entry("wait_hour_4", 14460000L),
+        Map.entry("wait_hour_4_4", 16800000L),
+        Map.entry("wait_hour_5", 18060000L),
+        Map.entry("wait_group_A", 60000L),
+        Map.entry("wait_group_B", 1200000L)
+    );
+
+    private static final Map<String, Fragment> fragments = new ConcurrentHashMap<>();
+
+    // 표준 대기의 녹화 파일 경로 -> 마지막으로 확인한 파일 상태와 생성기 결과와 같은지 여부
+    private static final Map<String, Recording> recordings = new ConcurrentHashMap<>();
+
+    private WaitFragments() {
+    }
+
+    /**
+     * 대기 조각 이름의 길이 (ms, 대기 조각 이름이 아니면 -1)
+     */
+    public static long durationMs(String name) {
+        Long recorded = RECORDED.get(name);
+        if (recorded != null) {
+            return recorded;
+        }
+
+        Matcher matcher = NAME.matcher(name);
+        if (!matcher.matches()) {
+            return -1;
+        }
+        long unit;
+        switch (matcher.group(1)) {
+            case "sec":
+                unit = 1000L;
+                break;
+            case "min":
+                unit = 60_000L;
+                break;
+            default:
+                unit = 3_600_000L;
+                break;
+        }
+        long ms = new BigDecimal(matcher.group(2)).multiply(BigDecimal.valueOf(unit)).longValue();
+        // 첫 이벤트가 D-600이므로 그보다 짧은 대기는 만들지 않음
+        return ms >= OFFSETS[0] ? ms : -1;
+    }
+
+    /**
+     * 길이 ms인 대기 조각 이름 (초 단위, 예: 12000 -> wait_sec_12, 12500 -> wait_sec_12.5)
+     */
+    public static String nameFor(long ms) {
+        return "wait_sec_" + BigDecimal.valueOf(ms, 3).stripTrailingZeros().toPlainString();
+    }
+
+    /**
+     * 길이 ms인 대기 조각 중 macroDir의 파일과 겹치지 않아 get으로 만들 수 있는 이름 (계획 최적화에서 합친 대기용)
+     * nameFor의 이름으로 표준이 아닌 녹화 파일이 있으면 소수 자리에 0을 붙인 같은 길이의 이름을 쓴다. (wait_sec_12 -> wait_sec_12.0)
+     */
+    public static String syntheticName(long ms, File macroDir) {
+        String name = nameFor(ms);
+        while (!RECORDED.containsKey(name) && new File(macroDir, name + ".json").isFile()) {
+            name += name.indexOf('.') < 0 ? ".0" : "0";
+        }
+        return name;
+    }
+
+    /**
+     * 대기 조각 반환 (만들 수 없거나 생성기 결과와 다른 녹화 파일이 있으면 null, 이 경우 파일에서 읽어야 함)
+     *
+     * @param path 조각 파일 경로 (녹화 파일 확인과 오류 메시지용)
+     */
+    public static Fragment get(String name, String path) {
+        // 표준이 아닌 이름의 파일은 길이가 이름과 다를 수 있으므로 항상 파일을 우선한다.
+        // null을 받은 쪽은 파일에서 읽고, 합친 대기는 syntheticName으로 파일과 겹치지 않는 이름을 받으므로 여기에 걸리지 않는다.
+        if (RECORDED.containsKey(name)) {
+            if (!matchesRecording(name, path)) {
+                return null;
+            }
+        } else if (new File(path).isFile()) {
+            return null;
+        }
+        Fragment fragment = fragments.get(name);
+        if (fragment != null) {
+            return fragment;
+        }
+
+        long duration = durationMs(name);
+        if (duration < 0) {
+            return null;
+        }
+        return fragments.computeIfAbsent(name, key -> new Fragment(path, build(key, duration)));
+    }
+
+    /**
+     * 표준 대기의 녹화 파일이 생성기 결과와 같은지 확인하고, 다른 대기 이름을 반환 (생성 실행마다 조각 목록을 만든 뒤 한 번)
+     * 목록의 수정 시각과 크기가 지난 확인과 같으면 파일을 다시 읽지 않는다.
+     * 다른 대기와 읽을 수 없는 녹화 파일은 get에서 null을 반환하므로 병합할 때 파일에서 읽는다. (읽기 오류도 그때 드러남)
+     */
+    public static List<String> checkRecordings(File macroDir, FragmentCatalog catalog) {
+        List<String> changed = new ArrayList<>();
+        for (String name : new TreeMap<>(RECORDED).keySet()) {
+            String path = new File(macroDir, name + ".json").getPath();
+            FragmentCatalog.Entry entry = catalog.get(FragmentSymbols.intern(name));
+            Recording recording = entry == null
+                ? check(name, path, 0, 0)
+                : check(name, path, entry.getLastModified(), entry.getSize());
+            if (!recording.matches) {
+                changed.add(name);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * 녹화 파일이 없거나 생성기 결과와 같은지 (확인한 적이 없으면 파일 상태를 보고 확인)
+     */
+    private static boolean matchesRecording(String name, String path) {
+        Recording recording = recordings.get(path);
+        if (recording == null) {
+            File file = new File(path);
+            recording = check(name, path, file.lastModified(), file.length());
+        }
+        return recording.matches;
+    }
+
+    /**
+     * 파일 상태가 지난 확인과 다를 때만 녹화 파일을 읽어서 비교 (lastModified가 0이면 파일 없음)
+     */
+    private static Recording check(String name, String path, long lastModified, long size) {
+        Recording recording = recordings.get(path);
+        if (recording != null && recording.lastModified == lastModified && recording.size == size) {
+            return recording;
+        }
+
+        boolean matches = true;
+        if (lastModified != 0) {
+            try {
+                matches = sameAsBuilt(name, mapper.readTree(new File(path)));
+            } catch (IOException e) {
+                matches = false;
+            }
+        }
+        recording = new Recording(lastModified, size, matches);
+        recordings.put(path, recording);
+        return recording;
+    }
+
+    private static boolean sameAsBuilt(String name, JsonNode recorded) {
+        JsonNode generated = build(name, RECORDED.get(name)).path("records").path("r8");
+        return withoutTitle(recorded.path("records").path("r8")).equals(withoutTitle(generated));
+    }
+
+    /**
+     * 녹화 파일이 있는 표준 대기 조각을 생성기 결과와 비교 (title 제외)
+     * 다른 조각 수를 반환하고, 결과는 out으로 출력한다.
+     */
+    public static int verify(File macroDir, PrintStream out) throws IOException {
+        int mismatches = 0;
+        for (Map.Entry<String, Long> entry : new TreeMap<>(RECORDED).entrySet()) {
+            String name = entry.getKey();
+            File file = new File(macroDir, name + ".json");
+            if (!file.isFile()) {
+                out.println("  " + name + ": 파일 없음 (생성기로만 사용)");
+                continue;
+            }
+
+            if (sameAsBuilt(name, mapper.readTree(file))) {
+                out.println("  " + name + ": 일치 (" + entry.getValue() + " ms)");
+            } else {
+                out.println("  " + name + ": 불일치");
+                mismatches++;
+            }
+        }
+        return mismatches;
+    }
+
+    private static JsonNode withoutTitle(JsonNode r8) {
+        if (!r8.isObject()) {
+            return r8;
+        }
+        ObjectNode copy = ((ObjectNode) r8).deepCopy();
+        copy.remove("title");
+        return copy;
+    }
+
+    /**
+     * 녹화 파일과 같은 형식의 조각 트리 생성
+     */
+    private static ObjectNode build(String name, long duration) {
+        ObjectNode root = mapper.createObjectNode();
+        ObjectNode r8 = root.putObject("records").putObject("r8");
+        r8.put("version", "1.1");
+        ObjectNode repeat = r8.putObject("repeat");
+        repeat.put("count", "3");
+        repeat.put("duration", "0");
+        repeat.put("sel", "count");
+        r8.put("timestamp", "1754312569333");
+        r8.put("interval", "0");
+        r8.put("speed", "1");
+        r8.put("title", title(name, duration));
+
+        ArrayNode events = r8.putArray("events");
+        for (int i = 0; i < OFFSETS.length; i++) {
+            ObjectNode event = events.addObject();
+            ObjectNode position = event.putObject("position");
+            position.put("x", "0");
+            position.put("y", "0");
+            event.put("ms", String.valueOf(duration - OFFSETS[i]));
+            event.put("type", "27");
+            event.put("detail", DETAILS[i]);
+            event.put("data", "0");
+        }
+        return root;
+    }
+
+    private static String title(String name, long duration) {
+        if (name.startsWith("wait_group_")) {
+            return name.substring("wait_group_".length()) + "그룹대기시간";
+        }
+        long seconds = duration / 1000;
+        if (seconds < 60) {
+            return seconds + "초대기";
+        }
+        long hours = seconds / 3600;
+        long minutes = seconds % 3600 / 60;
+        if (hours == 0) {
+            return minutes + "분대기";
+        }
+        return hours + "시간" + (minutes > 0 ? minutes + "분" : "") + "대기";
+    }
+
+    /**
+     * 확인한 녹화 파일 상태
+     */
+    private static class Recording {
+        final long lastModified;
+        final long size;
+        final boolean matches;
+
+        Recording(long lastModified, long size, boolean matches) {
+            this.lastModified = lastModified;
+            this.size = size;
+            this.matches = matches;
+        }
+    }
+}
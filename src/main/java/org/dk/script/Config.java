@@ -350,4 +350,26 @@ public class Config
 	public void setDragonKey(String dragonKey) {
 		this.dragonKey = dragonKey;
 	}
+
+	// === 설정 요약 (증분 생성 지문 계산용) ===
+
+	@Override
+	public String toString() {
+		return "Config{" +
+			"character=" + character +
+			", group=" + group +
+			", scheduleTime=" + scheduleTime +
+			", sidunEvent=" + sidunEvent +
+			", returnHomeKey=" + returnHomeKey +
+			", returnKey=" + returnKey +
+			", dragonKey=" + dragonKey +
+			", scheduleOnly=" + scheduleOnly +
+			", mainCharRepeat=" + mainCharRepeat +
+			", eventDungeon=" + eventDungeon +
+			", isSubCharacter=" + isSubCharacter +
+			", waitTime=" + waitTime +
+			", potionEvent=" + potionEvent +
+			", worldDungeon=" + worldDungeon +
+			'}';
+	}
 }
@@ -0,0 +1,66 @@
+package org.dk.script;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 조각 이름 심볼 표 (프로세스 전역)
+ * 조각 이름마다 0부터 시작하는 정수 ID를 붙이고, ID로 이름과 조각 파일 경로를 바로 찾는다.
+ * 한 번 붙인 ID는 바뀌지 않으므로 ID를 배열 인덱스로 써도 된다.
+ */
+public final class FragmentSymbols {
+
+    public static final String MACRO_DIR = "src/main/resources/macro/";
+
+    private static final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[256];
+    private static volatile String[] paths = new String[256];
+    private static int count;
+
+    private FragmentSymbols() {
+    }
+
+    /**
+     * 이름의 ID 반환 (처음 보는 이름이면 새 ID를 붙임)
+     */
+    public static int intern(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        synchronized (FragmentSymbols.class) {
+            id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+            String[] nameTable = names;
+            String[] pathTable = paths;
+            if (count == nameTable.length) {
+                nameTable = Arrays.copyOf(nameTable, nameTable.length * 2);
+                pathTable = Arrays.copyOf(pathTable, pathTable.length * 2);
+            }
+            nameTable[count] = name;
+            pathTable[count] = MACRO_DIR + name + ".json";
+            paths = pathTable;
+            names = nameTable;
+            ids.put(name, count);
+            return count++;
+        }
+    }
+
+    public static String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * 조각 파일 경로 (JsonMergerMultiple.makePath와 같은 형식)
+     */
+    public static String path(int id) {
+        return paths[id];
+    }
+
+    public static int size() {
+        return ids.size();
+    }
+}
@@ -15,6 +15,8 @@ import java.util.List;
 public class MacroConfig {
 
     private static final String CONFIG_PATH = "src/main/resources/macro-config.json";
+    // 모든 계획에 나오는 작은 조각 (귀환 키, 대기, 스크립트 종료)
+    private static final List<String> DEFAULT_PINNED_FRAGMENTS = List.of("button_*", "wait_*", "script_end");
     private static MacroConfig instance;
 
     private String currentSidunEvent;
@@ -22,6 +24,29 @@ public class MacroConfig {
     private List<String> availableSidunEvents;
     private List<String> availableDungeonEvents;
 
+    // 생성기 동작 옵션 (generator 항목)
+    private boolean streamingWriter;
+    private boolean spliceWriter;
+    private boolean parallel;
+    private String executor;
+    private int threads;
+    private boolean incremental;
+    private long watchDebounceMs;
+    private boolean fragmentLibrary;
+    private boolean syntheticWaits;
+    private boolean optimizePlan;
+    private List<String> idempotentFragments;
+    private boolean segmentCache;
+    private boolean streamingPlan;
+    private boolean pipeline;
+    private boolean parallelMerge;
+    private int fragmentCacheMb;
+    private List<String> pinnedFragments;
+    private boolean streamingParse;
+    private String logLevel;
+    private boolean metrics;
+    private String metricsTextfile;
+
     private MacroConfig() {
         loadConfig();
     }
@@ -66,6 +91,40 @@ public class MacroConfig {
                 availableDungeonEvents.add(event.asText());
             }
 
+            // 생성기 옵션 (없으면 기본값)
+            JsonNode generator = root.path("generator");
+            this.streamingWriter = generator.path("streamingWriter").asBoolean(true);
+            this.spliceWriter = generator.path("spliceWriter").asBoolean(true);
+            this.parallel = generator.path("parallel").asBoolean(false);
+            this.executor = generator.path("executor").asText("forkjoin");
+            this.threads = generator.path("threads").asInt(0);
+            this.incremental = generator.path("incremental").asBoolean(false);
+            this.watchDebounceMs = generator.path("watchDebounceMs").asLong(300);
+            this.fragmentLibrary = generator.path("fragmentLibrary").asBoolean(true);
+            this.syntheticWaits = generator.path("syntheticWaits").asBoolean(true);
+            this.optimizePlan = generator.path("optimizePlan").asBoolean(false);
+            this.idempotentFragments = new ArrayList<>();
+            for (JsonNode name : generator.path("idempotentFragments")) {
+                idempotentFragments.add(name.asText());
+            }
+            this.segmentCache = generator.path("segmentCache").asBoolean(true);
+            this.streamingPlan = generator.path("streamingPlan").asBoolean(true);
+            this.pipeline = generator.path("pipeline").asBoolean(false);
+            this.parallelMerge = generator.path("parallelMerge").asBoolean(false);
+            this.fragmentCacheMb = generator.path("fragmentCacheMb").asInt(0);
+            this.streamingParse = generator.path("streamingParse").asBoolean(true);
+            this.logLevel = generator.path("logLevel").asText("info");
+            this.metrics = generator.path("metrics").asBoolean(true);
+            this.metricsTextfile = generator.path("metricsTextfile").asText("");
+            this.pinnedFragments = new ArrayList<>();
+            if (generator.has("pinnedFragments")) {
+                for (JsonNode name : generator.path("pinnedFragments")) {
+                    pinnedFragments.add(name.asText());
+                }
+            } else {
+                pinnedFragments.addAll(DEFAULT_PINNED_FRAGMENTS);
+            }
+
             System.out.println("[MacroConfig] 설정 로드 완료");
             System.out.println("  - 현재 시던 이벤트: " + currentSidunEvent);
             System.out.println("  - 현재 던전 이벤트: " + currentDungeonEvent);
@@ -77,6 +136,27 @@ public class MacroConfig {
             this.currentDungeonEvent = "nospecialdugeon";
             this.availableSidunEvents = new ArrayList<>();
             this.availableDungeonEvents = new ArrayList<>();
+            this.streamingWriter = true;
+            this.spliceWriter = true;
+            this.parallel = false;
+            this.executor = "forkjoin";
+            this.threads = 0;
+            this.incremental = false;
+            this.watchDebounceMs = 300;
+            this.fragmentLibrary = true;
+            this.syntheticWaits = true;
+            this.optimizePlan = false;
+            this.idempotentFragments = new ArrayList<>();
+            this.segmentCache = true;
+            this.streamingPlan = true;
+            this.pipeline = false;
+            this.parallelMerge = false;
+            this.fragmentCacheMb = 0;
+            this.streamingParse = true;
+            this.logLevel = "info";
+            this.metrics = true;
+            this.metricsTextfile = "";
+            this.pinnedFragments = new ArrayList<>(DEFAULT_PINNED_FRAGMENTS);
         }
     }
 
@@ -97,6 +177,153 @@ public class MacroConfig {
         return availableDungeonEvents;
     }
 
+    /**
+     * 병합 결과를 JsonGenerator로 바로 쓸지 여부 (false면 트리를 만든 뒤 한 번에 기록)
+     */
+    public boolean isStreamingWriter() {
+        return streamingWriter;
+    }
+
+    /**
+     * 스트리밍 출력에서 미리 렌더링한 조각 바이트를 ms만 바꿔 복사할지 여부 (false면 이벤트마다 JsonGenerator로 기록)
+     */
+    public boolean isSpliceWriter() {
+        return spliceWriter;
+    }
+
+    /**
+     * 매크로 정의를 병렬로 생성할지 여부
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * 병렬 생성에 사용할 실행기 종류 (forkjoin, virtual)
+     */
+    public String getExecutor() {
+        return executor;
+    }
+
+    /**
+     * forkjoin 실행기의 스레드 수 (0 이하면 CPU 코어 수)
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * 입력이 바뀐 매크로와 그룹만 다시 생성할지 여부 (src/result/manifest.json 사용)
+     */
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * 감시 모드에서 마지막 변경 후 다시 생성하기까지 기다리는 시간 (ms)
+     */
+    public long getWatchDebounceMs() {
+        return watchDebounceMs;
+    }
+
+    /**
+     * 조각 라이브러리 파일(macro-library.pack)이 있으면 사용할지 여부
+     */
+    public boolean isFragmentLibrary() {
+        return fragmentLibrary;
+    }
+
+    /**
+     * wait_sec_N / wait_min_N / wait_hour_N 대기 조각을 파일 대신 메모리에서 만들지 여부
+     */
+    public boolean isSyntheticWaits() {
+        return syntheticWaits;
+    }
+
+    /**
+     * 병합 전에 연속 대기를 합치고 중복 조각을 뺄지 여부
+     */
+    public boolean isOptimizePlan() {
+        return optimizePlan;
+    }
+
+    /**
+     * 대기만 사이에 두고 연속으로 나오면 한 번만 실행해도 되는 조각 이름 목록
+     */
+    public List<String> getIdempotentFragments() {
+        return idempotentFragments;
+    }
+
+    /**
+     * 반복되는 script* 구간을 한 번만 합쳐 두고 재사용할지 여부
+     */
+    public boolean isSegmentCache() {
+        return segmentCache;
+    }
+
+    /**
+     * 계획 전체를 만들지 않고 ScriptBuilder가 만드는 대로 병합할지 여부
+     */
+    public boolean isStreamingPlan() {
+        return streamingPlan;
+    }
+
+    /**
+     * 조각 읽기, 이어 붙이기, 결과 쓰기를 겹쳐서 실행할지 여부
+     */
+    public boolean isPipeline() {
+        return pipeline;
+    }
+
+    /**
+     * 매크로 하나를 조각 묶음으로 나눠 병렬로 병합할지 여부
+     */
+    public boolean isParallelMerge() {
+        return parallelMerge;
+    }
+
+    /**
+     * 조각 캐시 메모리 예산 (MB, 0이면 제한 없음)
+     */
+    public int getFragmentCacheMb() {
+        return fragmentCacheMb;
+    }
+
+    /**
+     * 조각 캐시 예산을 넘어도 제거하지 않을 조각 이름 목록 (끝이 *이면 접두어)
+     */
+    public List<String> getPinnedFragments() {
+        return pinnedFragments;
+    }
+
+    /**
+     * 조각 파일을 트리 없이 스트리밍해서 읽을지 여부
+     */
+    public boolean isStreamingParse() {
+        return streamingParse;
+    }
+
+    /**
+     * 생성 중 콘솔 출력 수준 (debug, info, warn)
+     */
+    public String getLogLevel() {
+        return logLevel;
+    }
+
+    /**
+     * 생성할 때마다 metrics.json을 쓸지 여부 (기본 true, 결과 폴더가 아닌 build/metrics에 씀)
+     */
+    public boolean isMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Prometheus textfile 경로 (비어 있으면 쓰지 않음)
+     */
+    public String getMetricsTextfile() {
+        return metricsTextfile;
+    }
+
     /**
      * 이벤트가 활성화되어 있는지 확인
      */
@@ -0,0 +1,24 @@
+package org.dk.script;
+
+/**
+ * 스크립트 계획을 받는 쪽 (ScriptPlan에 모으거나 병합기로 바로 넘김)
+ * ScriptBuilder는 조각 ID를 만드는 대로 add로 넘기고, script* 블록은 beginSegment/endSegment로 감싼다.
+ */
+public interface PlanSink {
+
+    PlanSink add(int id);
+
+    default PlanSink add(String name) {
+        return add(FragmentSymbols.intern(name));
+    }
+
+    /**
+     * 구간 시작 (중첩될 수 있음)
+     */
+    void beginSegment();
+
+    /**
+     * 구간 끝
+     */
+    void endSegment();
+}
@@ -1,19 +1,87 @@
 package org.dk.script;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-
 /**
  * 스크립트 생성 통합 클래스
  * mainCharacter, subCharacter, scheduleOnly, weekend_all, weekend_hunt 기능을 통합
+ * 스크립트는 조각 이름 대신 FragmentSymbols ID로 PlanSink(ScriptPlan 또는 병합기)에 넘긴다.
  */
 public class ScriptBuilder {
 
+    // 고정 조각 ID
+    private static final int WAIT_SEC_2 = FragmentSymbols.intern("wait_sec_2");
+    private static final int WAIT_SEC_5 = FragmentSymbols.intern("wait_sec_5");
+    private static final int WAIT_SEC_10 = FragmentSymbols.intern("wait_sec_10");
+    private static final int WAIT_SEC_30 = FragmentSymbols.intern("wait_sec_30");
+    private static final int WAIT_HOUR_1 = FragmentSymbols.intern("wait_hour_1");
+    private static final int WAIT_HOUR_2 = FragmentSymbols.intern("wait_hour_2");
+    private static final int WAIT_HOUR_4 = FragmentSymbols.intern("wait_hour_4");
+    private static final int WAIT_HOUR_4_4 = FragmentSymbols.intern("wait_hour_4_4");
+    private static final int WAIT_HOUR_5 = FragmentSymbols.intern("wait_hour_5");
+    private static final int POWER_SAVE_ON = FragmentSymbols.intern("power_save_on");
+    private static final int POWER_SAVE_OFF = FragmentSymbols.intern("power_save_off");
+    private static final int RUN_SCHEDULE = FragmentSymbols.intern("run_schedule");
+    private static final int DAILY_CHECK = FragmentSymbols.intern("daily_check");
+    private static final int BUY_ALL = FragmentSymbols.intern("buy_all");
+    private static final int SIDUN_TURN = FragmentSymbols.intern("sidun_turn");
+    private static final int SIDUN_MIMIC = FragmentSymbols.intern("sidun_mimic");
+    private static final int SIDUN_TURNEVENT = FragmentSymbols.intern("sidun_turnevent");
+    private static final int SIDUN_MIMICEVENT = FragmentSymbols.intern("sidun_mimicevent");
+    private static final int PARTY_DEATH = FragmentSymbols.intern("party_death");
+    private static final int PARTY_ORIM = FragmentSymbols.intern("party_orim");
+    private static final int MAKE_FAVORITE = FragmentSymbols.intern("make_favorite");
+    private static final int DONATE_5_CLICK = FragmentSymbols.intern("donate_5_click");
+    private static final int DONATE_1_CLICK = FragmentSymbols.intern("donate_1_click");
+    private static final int POTION_STORAGE = FragmentSymbols.intern("potion_storage");
+    private static final int GET_ITEM_GREEN = FragmentSymbols.intern("get_item_green");
+    private static final int GET_ITEM_WHITE = FragmentSymbols.intern("get_item_white");
+    private static final int GET_QUEST = FragmentSymbols.intern("get_quest");
+    private static final int GET_MAIL = FragmentSymbols.intern("get_mail");
+    private static final int ITEM_CHANGE_MOVE_KENMAL = FragmentSymbols.intern("item_change_move_kenmal");
+    private static final int ITEM_CHANGE_FIND = FragmentSymbols.intern("item_change_find");
+    private static final int ITEM_CHANGE_CHOOSE_1 = FragmentSymbols.intern("item_change_choose_1");
+    private static final int ITEM_CHANGE_CHOOSE_3 = FragmentSymbols.intern("item_change_choose_3");
+    private static final int ITEM_CHANGE_SAVE = FragmentSymbols.intern("item_change_save");
+    private static final int DUNGEON_GIRAN = FragmentSymbols.intern("dungeon_giran");
+    private static final int PREVSTORY_GISA = FragmentSymbols.intern("prevstory_gisa");
+    private static final int WORLD_2_MOVE = FragmentSymbols.intern("world_2_move");
+    private static final int WORLD_2_POTION = FragmentSymbols.intern("world_2_potion");
+    private static final int WORLD_WIND = FragmentSymbols.intern("world_wind");
+    private static final int WORLD_BUY_POTION_HALF = FragmentSymbols.intern("world_buy_potion_half");
+    private static final int WORLD_BUY_POTION_HALF_EVENT = FragmentSymbols.intern("world_buy_potion_half_event");
+    private static final int BUTTON_8 = FragmentSymbols.intern("button_8");
+    private static final int OMAN = FragmentSymbols.intern("oman");
+
+    // changeChar_N_integration ID (인덱스 = 캐릭터 번호)
+    private static final int[] CHANGE_CHAR = new int[14];
+
+    static {
+        for (int i = 1; i < CHANGE_CHAR.length; i++) {
+            CHANGE_CHAR[i] = FragmentSymbols.intern("changeChar_" + i + "_integration");
+        }
+    }
+
     private final Config config;
 
+    // 설정에서 정해지는 조각 ID (설정에 없으면 -1)
+    private final int returnHome;
+    private final int returnKey;
+    private final int dragonKey;
+    private final int ainKey;
+    private final int eventDungeon;
+    private final int sidunEvent;
+
+    // 그룹, 스케줄 시간은 값이 없으면 getter가 실패하므로 처음 쓸 때 찾음
+    private int group = -1;
+    private int scheduleTime = -1;
+
     public ScriptBuilder(Config config) {
         this.config = config;
+        this.returnHome = FragmentSymbols.intern(config.getReturnHomeKey());
+        this.returnKey = FragmentSymbols.intern(config.getReturnKey());
+        this.dragonKey = FragmentSymbols.intern(config.getDragonKey());
+        this.ainKey = FragmentSymbols.intern(config.getAinKey());
+        this.eventDungeon = config.hasEventDungeon() ? FragmentSymbols.intern(config.getEventDungeon()) : -1;
+        this.sidunEvent = config.hasSidunEvent() ? FragmentSymbols.intern(config.getSidunEvent()) : -1;
     }
 
     // ================================
@@ -23,154 +91,146 @@ public class ScriptBuilder {
     /**
      * 메인 캐릭터 스크립트 생성 구버전
      */
-    public String[] buildMainCharacter() {
-        ArrayList<String> scripts = new ArrayList<>();
-
-        scripts.addAll(Arrays.asList(scriptInit()));
+    public <S extends PlanSink> S buildMainCharacter(S plan) {
+        scriptInit(plan);
 
         int startNum = getStartNum();
         int maxNum = config.getMainCharRepeat();
         int numIterations = maxNum - startNum + 1;
 
         if (getStartNum() == 1) {
-            scripts.addAll(Arrays.asList(scriptDailyCheck()));
-            scripts.addAll(Arrays.asList(scriptBuyAll()));
+            scriptDailyCheck(plan);
+            scriptBuyAll(plan);
         }
 
         for (int i = 1; i <= numIterations; i++) {
 
             //통합버전제외
-            //scripts.addAll(Arrays.asList(scriptSidunPadun()));
+            //scriptSidunPadun(plan);
 
-            scripts.addAll(Arrays.asList(scriptSidun()));
-            scripts.addAll(Arrays.asList(scriptPadun()));
-            scripts.addAll(Arrays.asList(scriptEventDungeon()));
-            scripts.addAll(Arrays.asList(scriptEventSidun()));
-            scripts.addAll(Arrays.asList(scriptMakeFavorite()));
-            scripts.addAll(Arrays.asList(scriptDonate()));
-            scripts.addAll(Arrays.asList(scriptDragonKey()));
-            scripts.addAll(Arrays.asList(scriptPotionStorage()));
+            scriptSidun(plan);
+            scriptPadun(plan);
+            scriptEventDungeon(plan);
+            scriptEventSidun(plan);
+            scriptMakeFavorite(plan);
+            scriptDonate(plan);
+            scriptDragonKey(plan);
+            scriptPotionStorage(plan);
 
             if (config.hasScheduleTime()) {
-                scripts.addAll(Arrays.asList(scriptScheduleHunting()));
+                scriptScheduleHunting(plan);
             }
 
             // 캐릭터 변경
             int nextChar = getNextMainCharacterNumber(i);
-            scripts.addAll(Arrays.asList(scriptCharChange(nextChar)));
+            scriptCharChange(plan, nextChar);
         }
 
-        scripts.addAll(Arrays.asList(scriptFinish()));
-        return scripts.toArray(new String[0]);
+        scriptFinish(plan);
+        return plan;
     }
 
     /**
      * 메인 캐릭터 스크립트 생성 구버전
      */
-    public String[] buildMainCharacterNew() {
-        ArrayList<String> scripts = new ArrayList<>();
-
-        scripts.addAll(Arrays.asList(scriptInit()));
+    public <S extends PlanSink> S buildMainCharacterNew(S plan) {
+        scriptInit(plan);
 
         int startNum = getStartNum();
         int maxNum = config.getMainCharRepeat();
         int numIterations = maxNum - startNum + 1;
 
         if (getStartNum() == 1) {
-            scripts.addAll(Arrays.asList(scriptDailyCheck()));
-            scripts.addAll(Arrays.asList(scriptBuyAll()));
+            scriptDailyCheck(plan);
+            scriptBuyAll(plan);
         }
 
         for (int i = 1; i <= numIterations; i++) {
 
             //통합버전제외
-            //scripts.addAll(Arrays.asList(scriptSidunPadun()));
+            //scriptSidunPadun(plan);
 
-            scripts.addAll(Arrays.asList(scriptSidun()));
+            scriptSidun(plan);
 
             //7번부터 파던 진행
             if( i > 7-getStartNum() )
-                scripts.addAll(Arrays.asList(scriptPadunDeath()));
+                scriptPadunDeath(plan);
 
-            scripts.addAll(Arrays.asList(scriptPadunOrim()));
+            scriptPadunOrim(plan);
 
-            scripts.addAll(Arrays.asList(scriptEventDungeon()));
-            scripts.addAll(Arrays.asList(scriptEventSidun()));
-            scripts.addAll(Arrays.asList(scriptMakeFavorite()));
+            scriptEventDungeon(plan);
+            scriptEventSidun(plan);
+            scriptMakeFavorite(plan);
 
             //1번만 5회 나머지 1회
             if( getStartNum() == 1 && i == 1 )
-                scripts.addAll(Arrays.asList(scriptDonate()));
+                scriptDonate(plan);
             else
-                scripts.addAll(Arrays.asList(scriptDonateOnes()));
+                scriptDonateOnes(plan);
 
-            scripts.addAll(Arrays.asList(scriptDragonKey()));
-            scripts.addAll(Arrays.asList(scriptPotionStorage()));
+            scriptDragonKey(plan);
+            scriptPotionStorage(plan);
 
             if (config.hasScheduleTime()) {
-                scripts.addAll(Arrays.asList(scriptScheduleHunting()));
+                scriptScheduleHunting(plan);
             }
 
             // 캐릭터 변경
             int nextChar = getNextMainCharacterNumber(i);
-            scripts.addAll(Arrays.asList(scriptCharChange(nextChar)));
+            scriptCharChange(plan, nextChar);
         }
 
-        scripts.addAll(Arrays.asList(scriptFinish()));
-        return scripts.toArray(new String[0]);
+        scriptFinish(plan);
+        return plan;
     }
 
-    public String[] buildYoonMainCharacter() {
-        ArrayList<String> scripts = new ArrayList<>();
-
-        scripts.addAll(Arrays.asList(scriptInit()));
+    public <S extends PlanSink> S buildYoonMainCharacter(S plan) {
+        scriptInit(plan);
 
         int startNum = getStartNum();
         int maxNum = config.getMainCharRepeat();
         int numIterations = maxNum - startNum + 1;
 
         if (getStartNum() == 1) {
-            scripts.addAll(Arrays.asList(scriptDailyCheck()));
-            scripts.addAll(Arrays.asList(scriptBuyAll()));
+            scriptDailyCheck(plan);
+            scriptBuyAll(plan);
         }
 
         for (int i = 1; i <= numIterations; i++) {
 
             //통합버전제외
-            //scripts.addAll(Arrays.asList(scriptSidunPadun()));
+            //scriptSidunPadun(plan);
 
-            scripts.addAll(Arrays.asList(scriptSidun()));
-            scripts.addAll(Arrays.asList(scriptPadun()));
-            scripts.addAll(Arrays.asList(scriptEventDungeon()));
-            scripts.addAll(Arrays.asList(scriptEventSidun()));
-            scripts.addAll(Arrays.asList(scriptMakeFavorite()));
-            scripts.addAll(Arrays.asList(scriptDonate()));
-            scripts.addAll(Arrays.asList(scriptDragonKey()));
-            scripts.addAll(Arrays.asList(scriptPotionStorage()));
+            scriptSidun(plan);
+            scriptPadun(plan);
+            scriptEventDungeon(plan);
+            scriptEventSidun(plan);
+            scriptMakeFavorite(plan);
+            scriptDonate(plan);
+            scriptDragonKey(plan);
+            scriptPotionStorage(plan);
 
             if (config.hasScheduleTime()) {
-                scripts.addAll(Arrays.asList(scriptScheduleHunting()));
+                scriptScheduleHunting(plan);
             }
 
             // 캐릭터 변경
             int nextChar = getNextMainCharacterNumber(i);
-            scripts.addAll(Arrays.asList(scriptCharChange(nextChar)));
+            scriptCharChange(plan, nextChar);
         }
 
-        scripts.addAll(Arrays.asList(scriptFinish()));
-        return scripts.toArray(new String[0]);
+        scriptFinish(plan);
+        return plan;
     }
 
     /**
     * 메인 캐릭터 순차 스크립트 생성
     */
-    public String[] buildMainCharacterSeq() {
-        ArrayList<String> scripts = new ArrayList<>();
-
-        scripts.addAll(Arrays.asList(scriptInit()));
+    public <S extends PlanSink> S buildMainCharacterSeq(S plan) {
+        scriptInit(plan);
 
-        scripts.addAll(Arrays.asList(scriptDailyCheck()));
-        scripts.addAll(Arrays.asList(scriptBuyAll()));
+        scriptDailyCheck(plan);
+        scriptBuyAll(plan);
 
         int startNum = getStartNum();
         int maxNum = config.getMainCharRepeat();
@@ -178,84 +238,81 @@ public class ScriptBuilder {
 
         for (int i = 1; i <= numIterations; i++) {
 
-            scripts.addAll(Arrays.asList(scriptEventDungeon()));
-            scripts.addAll(Arrays.asList(scriptSidunPadun()));
-            scripts.addAll(Arrays.asList(scriptEventSidun()));
+            scriptEventDungeon(plan);
+            scriptSidunPadun(plan);
+            scriptEventSidun(plan);
 
             if (config.hasScheduleTime()) {
-                scripts.addAll(Arrays.asList(scriptScheduleHunting()));
+                scriptScheduleHunting(plan);
             }
 
             int nextChar = getNextMainCharacterNumber(i);
-            scripts.addAll(Arrays.asList(scriptCharChange(nextChar)));
+            scriptCharChange(plan, nextChar);
         }
 
-        scripts.addAll(Arrays.asList(scriptFinish()));
-        return scripts.toArray(new String[0]);
+        scriptFinish(plan);
+        return plan;
     }
 
     /**
      * 스케쥴 전용 스크립트 생성
      */
-    public String[] buildScheduleOnly() {
-        ArrayList<String> scripts = new ArrayList<>();
-        scripts.addAll(Arrays.asList(scriptInit()));
+    public <S extends PlanSink> S buildScheduleOnly(S plan) {
+        scriptInit(plan);
 
         int startNum = getStartNum();
         int maxNum = config.getMainCharRepeat();
         int numIterations = maxNum - startNum + 1;
 
         for (int i = 1; i <= numIterations; i++) {
-            scripts.addAll(Arrays.asList(scriptItemFind()));
-            scripts.addAll(Arrays.asList(scriptScheduleHunting()));
-            //scripts.addAll(Arrays.asList(scriptScheduleHuntingItemChange()));
-            scripts.addAll(Arrays.asList(scriptItemSave()));
+            scriptItemFind(plan);
+            scriptScheduleHunting(plan);
+            //scriptScheduleHuntingItemChange(plan);
+            scriptItemSave(plan);
 
             int nextChar = getNextMainCharacterNumber(i);
-            scripts.addAll(Arrays.asList(scriptCharChange(nextChar)));
+            scriptCharChange(plan, nextChar);
         }
 
-        scripts.addAll(Arrays.asList(scriptItemFind()));
-        scripts.addAll(Arrays.asList(scriptFinish()));
-        return scripts.toArray(new String[0]);
+        scriptItemFind(plan);
+        scriptFinish(plan);
+        return plan;
     }
 
     /**
      * 스케쥴 전용 스크립트 생성
      */
-    public String[] buildScheduleOnlyPass() {
-        ArrayList<String> scripts = new ArrayList<>();
-        scripts.addAll(Arrays.asList(scriptInit()));
+    public <S extends PlanSink> S buildScheduleOnlyPass(S plan) {
+        scriptInit(plan);
 
         int startNum = getStartNum();
         int maxNum = config.getMainCharRepeat();
         int numIterations = maxNum - startNum + 1;
 
         for (int i = 1; i <= numIterations; i++) {
-            scripts.addAll(Arrays.asList(scriptItemFind()));
-            scripts.addAll(Arrays.asList(scriptScheduleHunting()));
-            //scripts.addAll(Arrays.asList(scriptScheduleHuntingItemChange()));
-            scripts.addAll(Arrays.asList(scriptItemSave()));
+            scriptItemFind(plan);
+            scriptScheduleHunting(plan);
+            //scriptScheduleHuntingItemChange(plan);
+            scriptItemSave(plan);
 
             if(startNum == 1 && i == 1)
             {
                 i=5;
             }
             int nextChar = getNextMainCharacterNumber(i);
-            scripts.addAll(Arrays.asList(scriptCharChange(nextChar)));
+            scriptCharChange(plan, nextChar);
         }
 
-        scripts.addAll(Arrays.asList(scriptItemFind()));
-        scripts.addAll(Arrays.asList(scriptFinish()));
-        return scripts.toArray(new String[0]);
+        scriptItemFind(plan);
+        scriptFinish(plan);
+        return plan;
     }
 
     /**
      * 보조 캐릭터 스크립트 생성
      */
-    public String[] buildSubCharacter() {
-        ArrayList<String> scripts = new ArrayList<>();
-        scripts.addAll(Arrays.asList(scriptInit()));
+    public <S extends PlanSink> S buildSubCharacter(S plan) {
+        scriptInit(plan);
 
         int startNum = getStartNum();
         // 1->3회(1,2,3), 2->2회(2,3), 3->1회(3)
@@ -265,56 +322,55 @@ public class ScriptBuilder {
             // 캐릭터 전환을 처음으로 이동
             int nextChar = getNextSubCharacterNumber(i,3);
             //if (getStartNum() != 1 || i != 1) {
-                scripts.addAll(Arrays.asList(scriptCharChange(nextChar)));
+                scriptCharChange(plan, nextChar);
             //}
 
             // 첫 번째 반복에서 그룹 대기 수행
             if (!config.checkFirstGroup() && i==1) {
-                scripts.addAll(Arrays.asList(scriptGroupDelay()));
+                scriptGroupDelay(plan);
             }
 
             if(getStartNum() == 1 && i ==1 ) {
-                scripts.addAll(Arrays.asList(scriptDailyCheck()));
-                scripts.addAll(Arrays.asList(scriptBuyAll()));
+                scriptDailyCheck(plan);
+                scriptBuyAll(plan);
             }
 
 
 
             // 통합버전제외
-            //scripts.addAll(Arrays.asList(scriptSidunPadun()));
-            scripts.addAll(Arrays.asList(scriptSidun()));
-            scripts.addAll(Arrays.asList(scriptPadun()));
-            scripts.addAll(Arrays.asList(scriptEventDungeon()));
+            //scriptSidunPadun(plan);
+            scriptSidun(plan);
+            scriptPadun(plan);
+            scriptEventDungeon(plan);
             // 이벤트시던, 시던파던
-            scripts.addAll(Arrays.asList(scriptEventSidun()));
-            scripts.addAll(Arrays.asList(scriptMakeFavorite()));
-            scripts.addAll(Arrays.asList(scriptDonateOnes()));
-            scripts.addAll(Arrays.asList(scriptDragonKey()));
-            scripts.addAll(Arrays.asList(scriptPotionStorage()));
+            scriptEventSidun(plan);
+            scriptMakeFavorite(plan);
+            scriptDonateOnes(plan);
+            scriptDragonKey(plan);
+            scriptPotionStorage(plan);
 
             if (config.hasScheduleTime()) {
-                scripts.addAll(Arrays.asList(scriptScheduleHunting()));
+                scriptScheduleHunting(plan);
             }
-            scripts.addAll(Arrays.asList(scriptItemGreen()));
+            scriptItemGreen(plan);
             // 기란던전
-            scripts.addAll(Arrays.asList(scriptGiran("wait_hour_5")));
+            scriptGiran(plan, WAIT_HOUR_5);
         }
 
         // 모든 반복 종료 후 1번 캐릭터로 전환
-        scripts.addAll(Arrays.asList(scriptCharChange(1)));
+        scriptCharChange(plan, 1);
 
-        scripts.addAll(Arrays.asList(scriptStoryIsland("prevstory_gisa")));
-        scripts.addAll(Arrays.asList(scriptFinish()));
+        scriptStoryIsland(plan, PREVSTORY_GISA);
+        scriptFinish(plan);
 
-        return scripts.toArray(new String[0]);
+        return plan;
     }
 
     /**
      * 보조 캐릭터 스크립트 생성
      */
-    public String[] buildSubCharacterNew() {
-        ArrayList<String> scripts = new ArrayList<>();
-        scripts.addAll(Arrays.asList(scriptInit()));
+    public <S extends PlanSink> S buildSubCharacterNew(S plan) {
+        scriptInit(plan);
 
         int startNum = getStartNum();
         // 1->3회(1,2,3), 2->2회(2,3), 3->1회(3)
@@ -323,58 +379,57 @@ public class ScriptBuilder {
         for (int i = 1; i <= numIterations; i++) {
             // 첫 번째 반복에서 그룹 대기 수행
             if (!config.checkFirstGroup() && i==1) {
-                scripts.addAll(Arrays.asList(scriptGroupDelay()));
+                scriptGroupDelay(plan);
             }
             // 캐릭터 전환을 처음으로 이동
             int nextChar = getNextSubCharacterNumber(i,4);
             //if (getStartNum() != 1 || i != 1) {
-            scripts.addAll(Arrays.asList(scriptCharChange(nextChar)));
+            scriptCharChange(plan, nextChar);
             //}
 
 
             if(getStartNum() == 1 && i ==1 ) {
-                scripts.addAll(Arrays.asList(scriptDailyCheck()));
-                scripts.addAll(Arrays.asList(scriptBuyAll()));
+                scriptDailyCheck(plan);
+                scriptBuyAll(plan);
             }
 
 
 
             // 통합버전제외
-            //scripts.addAll(Arrays.asList(scriptSidunPadun()));
-            scripts.addAll(Arrays.asList(scriptSidun()));
-            scripts.addAll(Arrays.asList(scriptPadun()));
-            scripts.addAll(Arrays.asList(scriptEventDungeon()));
+            //scriptSidunPadun(plan);
+            scriptSidun(plan);
+            scriptPadun(plan);
+            scriptEventDungeon(plan);
             // 이벤트시던, 시던파던
-            scripts.addAll(Arrays.asList(scriptEventSidun()));
-            scripts.addAll(Arrays.asList(scriptMakeFavorite()));
-            scripts.addAll(Arrays.asList(scriptDonateOnes()));
-            scripts.addAll(Arrays.asList(scriptDragonKey()));
-            scripts.addAll(Arrays.asList(scriptPotionStorage()));
+            scriptEventSidun(plan);
+            scriptMakeFavorite(plan);
+            scriptDonateOnes(plan);
+            scriptDragonKey(plan);
+            scriptPotionStorage(plan);
 
             if (config.hasScheduleTime()) {
-                scripts.addAll(Arrays.asList(scriptScheduleHunting()));
+                scriptScheduleHunting(plan);
             }
-            scripts.addAll(Arrays.asList(scriptItemGreen()));
+            scriptItemGreen(plan);
             // 기란던전제외
             //if( i < numIterations)
-                scripts.addAll(Arrays.asList(scriptGiran("wait_hour_4")));
+                scriptGiran(plan, WAIT_HOUR_4);
         }
 
         // 모든 반복 종료 후 1번 캐릭터로 전환
-        scripts.addAll(Arrays.asList(scriptCharChange(1)));
+        scriptCharChange(plan, 1);
 
-        scripts.addAll(Arrays.asList(scriptStoryIsland("prevstory_gisa")));
-        scripts.addAll(Arrays.asList(scriptFinish()));
+        scriptStoryIsland(plan, PREVSTORY_GISA);
+        scriptFinish(plan);
 
-        return scripts.toArray(new String[0]);
+        return plan;
     }
 
     /**
      * 윤제 보조 캐릭터 스크립트 생성
      */
-    public String[] buildYoonSubCharacter() {
-        ArrayList<String> scripts = new ArrayList<>();
-        scripts.addAll(Arrays.asList(scriptInit()));
+    public <S extends PlanSink> S buildYoonSubCharacter(S plan) {
+        scriptInit(plan);
 
         int startNum = getStartNum();
         // 1->3회(1,2,3), 2->2회(2,3), 3->1회(3)
@@ -384,96 +439,85 @@ public class ScriptBuilder {
             // 캐릭터 전환을 처음으로 이동
             int nextChar = getNextSubCharacterNumber(i,4);
             //if (getStartNum() != 1 || i != 1) {
-            scripts.addAll(Arrays.asList(scriptCharChange(nextChar)));
+            scriptCharChange(plan, nextChar);
             //}
 
             // 첫 번째 반복에서 그룹 대기 수행
             if (!config.checkFirstGroup() && i==1) {
-                scripts.addAll(Arrays.asList(scriptGroupDelay()));
+                scriptGroupDelay(plan);
             }
 
             if(getStartNum() == 1 && i ==1 ) {
-                scripts.addAll(Arrays.asList(scriptDailyCheck()));
-                scripts.addAll(Arrays.asList(scriptBuyAll()));
+                scriptDailyCheck(plan);
+                scriptBuyAll(plan);
             }
 
 
             // 통합버전제외
-            //scripts.addAll(Arrays.asList(scriptSidunPadun()));
-            scripts.addAll(Arrays.asList(scriptSidun()));
-            scripts.addAll(Arrays.asList(scriptPadun()));
-            scripts.addAll(Arrays.asList(scriptEventDungeon()));
+            //scriptSidunPadun(plan);
+            scriptSidun(plan);
+            scriptPadun(plan);
+            scriptEventDungeon(plan);
             // 이벤트시던, 시던파던
-            scripts.addAll(Arrays.asList(scriptEventSidun()));
-            scripts.addAll(Arrays.asList(scriptMakeFavorite()));
-            scripts.addAll(Arrays.asList(scriptDonateOnes()));
-            scripts.addAll(Arrays.asList(scriptDragonKey()));
-            scripts.addAll(Arrays.asList(scriptPotionStorage()));
+            scriptEventSidun(plan);
+            scriptMakeFavorite(plan);
+            scriptDonateOnes(plan);
+            scriptDragonKey(plan);
+            scriptPotionStorage(plan);
 
             if (config.hasScheduleTime()) {
-                scripts.addAll(Arrays.asList(scriptScheduleHunting()));
+                scriptScheduleHunting(plan);
             }
-            scripts.addAll(Arrays.asList(scriptItemGreen()));
+            scriptItemGreen(plan);
             // 기란던전
             if( i < numIterations)
-                scripts.addAll(Arrays.asList(scriptGiran("wait_hour_4_4")));
+                scriptGiran(plan, WAIT_HOUR_4_4);
         }
 
         // 모든 반복 종료 후 1번 캐릭터로 전환
-        scripts.addAll(Arrays.asList(scriptCharChange(1)));
+        scriptCharChange(plan, 1);
 
-        scripts.addAll(Arrays.asList(scriptStoryIsland("prevstory_gisa")));
-        scripts.addAll(Arrays.asList(scriptFinish()));
+        scriptStoryIsland(plan, PREVSTORY_GISA);
+        scriptFinish(plan);
 
-        return scripts.toArray(new String[0]);
+        return plan;
     }
 
     /**
      * 보조 캐릭터 스크립트 생성
      */
-    public String[] buildOman() {
-        ArrayList<String> scripts = new ArrayList<>();
-        scripts.addAll(Arrays.asList(scriptInit()));
+    public <S extends PlanSink> S buildOman(S plan) {
+        scriptInit(plan);
 
         int startNum = getStartNum();
-        scripts.addAll(Arrays.asList(scriptCharChange(startNum)));
+        scriptCharChange(plan, startNum);
 
 
-        scripts.addAll(Arrays.asList(new String[]{
-                "oman"
-        }));
+        plan.add(OMAN);
 
-        return scripts.toArray(new String[0]);
+        return plan;
     }
 
     /**
      * 주말 전체 월드 던전 스크립트 생성 (테베 -> 아틀란 -> 티칼)
      * Config 필드 사용: isSubCharacter, waitTime, isEvent
      */
-    public static String[] buildWeekendAll(Config config) {
+    public static <S extends PlanSink> S buildWeekendAll(Config config, S plan) {
         int isSubCharacter = config.getIsSubCharacter();
         String waitTime = config.getWaitTime();
         boolean potionEvent = config.isPotionEvent();
 
-        String[] tebe = buildWeekendHuntInternal("tebe", isSubCharacter, waitTime, potionEvent);
-        String[] atlan = buildWeekendHuntInternal("atlan", isSubCharacter, waitTime, potionEvent);
-        String[] tikal = buildWeekendHuntInternal("tical", isSubCharacter, waitTime, potionEvent);
-
-        ArrayList<String> scripts = new ArrayList<>();
-        scripts.addAll(Arrays.asList(tebe));
-        scripts.addAll(Arrays.asList(atlan));
-        scripts.addAll(Arrays.asList(tikal));
-
-        return scripts.toArray(new String[0]);
+        buildWeekendHuntInternal(plan, "tebe", isSubCharacter, waitTime, potionEvent);
+        buildWeekendHuntInternal(plan, "atlan", isSubCharacter, waitTime, potionEvent);
+        buildWeekendHuntInternal(plan, "tical", isSubCharacter, waitTime, potionEvent);
+        return plan;
     }
 
     /**
      * 주말 악몽
      */
-    public String[] buildWeekendNightMare(Config config) {
-        ArrayList<String> scripts = new ArrayList<>();
-
-        scripts.addAll(Arrays.asList(scriptInit()));
+    public <S extends PlanSink> S buildWeekendNightMare(Config config, S plan) {
+        scriptInit(plan);
 
         int startNum = getStartNum();
         int maxNum = config.getMainCharRepeat();
@@ -481,22 +525,22 @@ public class ScriptBuilder {
 
         for (int i = 1; i <= numIterations; i++) {
 
-            scripts.addAll(Arrays.asList(scriptItemFind()));
+            scriptItemFind(plan);
             if(getStartNum() == 1 && i ==1 ) {
-                scripts.addAll(Arrays.asList(scriptWeekendNightMare(true)));
+                scriptWeekendNightMare(plan, true);
             }
             else {
-                scripts.addAll(Arrays.asList(scriptWeekendNightMare(false)));
+                scriptWeekendNightMare(plan, false);
             }
-            scripts.addAll(Arrays.asList(scriptItemSave()));
+            scriptItemSave(plan);
 
             // 캐릭터 변경
             int nextChar = getNextMainCharacterNumber(i);
-            scripts.addAll(Arrays.asList(scriptCharChange(nextChar)));
+            scriptCharChange(plan, nextChar);
         }
 
-        scripts.addAll(Arrays.asList(scriptFinish()));
-        return scripts.toArray(new String[0]);
+        scriptFinish(plan);
+        return plan;
     }
 
 
@@ -504,157 +548,95 @@ public class ScriptBuilder {
      * 개별 월드 던전 스크립트 생성 (테베, 티칼, 아틀란)
      * Config 필드 사용: worldDungeon, isSubCharacter, waitTime, potionEvent
      */
-    public static String[] buildWeekendHunt(Config config) {
+    public static <S extends PlanSink> S buildWeekendHunt(Config config, S plan) {
         String worldDungeon = config.getWorldDungeon();
         int isSubCharacter = config.getIsSubCharacter();
         String waitTime = config.getWaitTime();
         boolean potionEvent = config.isPotionEvent();
 
-        return buildWeekendHuntInternal(worldDungeon, isSubCharacter, waitTime, potionEvent);
+        buildWeekendHuntInternal(plan, worldDungeon, isSubCharacter, waitTime, potionEvent);
+        return plan;
     }
 
     /**
      * 개별 월드 던전 스크립트 생성 (내부용)
      */
-    private static String[] buildWeekendHuntInternal(String worldDungeon, int isSubCharacter, String waitTime, boolean potionEvent) {
-        String returnHome = "button_8"; // 일반귀환
-        String potion = potionEvent ? "world_buy_potion_half_event" : "world_buy_potion_half";
+    private static void buildWeekendHuntInternal(PlanSink plan, String worldDungeon, int isSubCharacter, String waitTime, boolean potionEvent) {
+        int returnHome = BUTTON_8; // 일반귀환
+        int potion = potionEvent ? WORLD_BUY_POTION_HALF_EVENT : WORLD_BUY_POTION_HALF;
+        int move = FragmentSymbols.intern("world_move_" + worldDungeon);
+        int hunting = FragmentSymbols.intern("world_hunting_" + worldDungeon);
+        int wait = FragmentSymbols.intern(waitTime);
 
         if (isSubCharacter == 0) {
             // 주캐릭터용 스크립트
-            return new String[]{
-                "wait_sec_10",
-                "world_move_" + worldDungeon,
-                "wait_sec_5",
-                "world_hunting_" + worldDungeon,
-                "wait_sec_5",
-                "power_save_on",
-                waitTime,
-                "power_save_off",
-                returnHome
-            };
+            plan.add(WAIT_SEC_10).add(move).add(WAIT_SEC_5)
+                .add(hunting).add(WAIT_SEC_5)
+                .add(POWER_SAVE_ON).add(wait).add(POWER_SAVE_OFF)
+                .add(returnHome);
         } else {
             // 보조캐릭터용 스크립트 (물약 구매 포함, 3회 반복)
-            return new String[]{
-                "wait_sec_10",
-                "world_move_" + worldDungeon,
-                "wait_sec_5",
-                potion,
-                "wait_sec_5",
-                "world_hunting_" + worldDungeon,
-                "wait_sec_5",
-                "power_save_on",
-                waitTime,
-
-                "power_save_off",
-                returnHome,
-                "wait_sec_10",
-                potion,
-                "wait_sec_5",
-                "world_hunting_" + worldDungeon,
-                "wait_sec_5",
-                "power_save_on",
-                waitTime,
-
-                "power_save_off",
-                returnHome,
-                "wait_sec_10",
-                potion,
-                "wait_sec_5",
-                "world_hunting_" + worldDungeon,
-                "wait_sec_5",
-                "power_save_on",
-                waitTime,
-
-                "power_save_off",
-                returnHome
-            };
+            plan.add(WAIT_SEC_10).add(move).add(WAIT_SEC_5);
+            for (int i = 0; i < 3; i++) {
+                if (i > 0) {
+                    plan.add(WAIT_SEC_10);
+                }
+                plan.add(potion).add(WAIT_SEC_5)
+                    .add(hunting).add(WAIT_SEC_5)
+                    .add(POWER_SAVE_ON).add(wait).add(POWER_SAVE_OFF)
+                    .add(returnHome);
+            }
         }
     }
 
     /**
      * find
      */
-    public String[] scriptItemFind()
+    public void scriptItemFind(PlanSink plan)
     {
-        return new String[] {
-            "item_change_move_kenmal",
-            "wait_sec_10",
-            "item_change_find",
-            "wait_sec_5",
-            "item_change_choose_1",
-            "wait_sec_5"
-        };
+        plan.beginSegment();
+        plan.add(ITEM_CHANGE_MOVE_KENMAL).add(WAIT_SEC_10)
+            .add(ITEM_CHANGE_FIND).add(WAIT_SEC_5)
+            .add(ITEM_CHANGE_CHOOSE_1).add(WAIT_SEC_5);
+        plan.endSegment();
     }
 
     /**
      * save
      */
-    public String[] scriptItemSave()
+    public void scriptItemSave(PlanSink plan)
     {
-        return new String[] {
-            "item_change_move_kenmal",
-            "wait_sec_10",
-            "item_change_choose_3",
-            "wait_sec_5",
-            "item_change_save",
-            "wait_sec_10"
-        };
+        plan.beginSegment();
+        plan.add(ITEM_CHANGE_MOVE_KENMAL).add(WAIT_SEC_10)
+            .add(ITEM_CHANGE_CHOOSE_3).add(WAIT_SEC_5)
+            .add(ITEM_CHANGE_SAVE).add(WAIT_SEC_10);
+        plan.endSegment();
     }
     /**
      * 악몽
      */
-    public String[] scriptWeekendNightMare(boolean main) {
+    public void scriptWeekendNightMare(PlanSink plan, boolean main) {
+        plan.beginSegment();
+        plan.add(returnHome).add(WAIT_SEC_10)
+            .add(WORLD_2_MOVE).add(WAIT_SEC_30)
+            .add(WORLD_2_POTION).add(WAIT_SEC_10)
+            .add(WORLD_WIND).add(WAIT_SEC_5);
 
         if(main) {
-            return new String[]{
-                    config.getReturnHomeKey(),
-                    "wait_sec_10",
-                    "world_2_move",
-                    "wait_sec_30",
-                    "world_2_potion",
-                    "wait_sec_10",
-                    "world_wind",
-                    "wait_sec_5",
-
-                    "power_save_on",
-                    "wait_hour_4",
-                    "power_save_off",
-
-                    config.getReturnHomeKey(),
-                    "wait_sec_30",
-            };
+            plan.add(POWER_SAVE_ON).add(WAIT_HOUR_4).add(POWER_SAVE_OFF);
         }
         else {
-            return new String[]{
-                    config.getReturnHomeKey(),
-                    "wait_sec_10",
-                    "world_2_move",
-                    "wait_sec_30",
-                    "world_2_potion",
-                    "wait_sec_10",
-                    "world_wind",
-                    "wait_sec_5",
-
-                    "power_save_on",
-                    "wait_hour_2",
-                    "power_save_off",
-
-                    config.getReturnKey(),
-                    "wait_sec_10",
-                    "world_2_potion",
-                    "wait_sec_10",
-                    "world_wind",
-                    "wait_sec_5",
-
-                    "power_save_on",
-                    "wait_hour_2",
-                    "power_save_off",
-
-                    config.getReturnHomeKey(),
-                    "wait_sec_30",
-            };
+            plan.add(POWER_SAVE_ON).add(WAIT_HOUR_2).add(POWER_SAVE_OFF);
+
+            plan.add(returnKey).add(WAIT_SEC_10)
+                .add(WORLD_2_POTION).add(WAIT_SEC_10)
+                .add(WORLD_WIND).add(WAIT_SEC_5);
+
+            plan.add(POWER_SAVE_ON).add(WAIT_HOUR_2).add(POWER_SAVE_OFF);
         }
+
+        plan.add(returnHome).add(WAIT_SEC_30);
+        plan.endSegment();
     }
 
     // ================================
@@ -664,313 +646,250 @@ public class ScriptBuilder {
     /**
      * 초기화 스크립트
      */
-    public String[] scriptInit() {
-        return new String[]{
-            config.getReturnHomeKey(),
-            "wait_sec_10"
-        };
+    public void scriptInit(PlanSink plan) {
+        plan.beginSegment();
+        plan.add(returnHome).add(WAIT_SEC_10);
+        plan.endSegment();
     }
 
     /**
      * 출석체크 스크립트
      */
-    public String[] scriptDailyCheck() {
-        return new String[]{
-            "daily_check",
-            "wait_sec_2"
-        };
+    public void scriptDailyCheck(PlanSink plan) {
+        plan.beginSegment();
+        plan.add(DAILY_CHECK).add(WAIT_SEC_2);
+        plan.endSegment();
     }
 
     /**
      * 일괄구매 스크립트
      */
-    public String[] scriptBuyAll() {
-        return new String[]{
-            "buy_all",
-            "wait_sec_2"
-        };
+    public void scriptBuyAll(PlanSink plan) {
+        plan.beginSegment();
+        plan.add(BUY_ALL).add(WAIT_SEC_2);
+        plan.endSegment();
     }
 
     /**
      * 이벤트 던전 스크립트
      */
-    public String[] scriptEventDungeon() {
+    public void scriptEventDungeon(PlanSink plan) {
+        plan.beginSegment();
         if (config.hasEventDungeon()) {
-            return new String[]{
-                config.getEventDungeon(),
-                config.getReturnHomeKey(),
-                config.getReturnHomeKey(),
-                "wait_sec_10"
-            };
+            plan.add(eventDungeon).add(returnHome).add(returnHome).add(WAIT_SEC_10);
         }
-        return new String[0];
+        plan.endSegment();
     }
 
     /**
      * 이벤트 시던 스크립트
      */
-    public String[] scriptEventSidun() {
+    public void scriptEventSidun(PlanSink plan) {
+        plan.beginSegment();
         if (config.hasSidunEvent() && !"event".equals(config.getSidunEvent())) {
-            return new String[]{
-                config.getAinKey(),
-                config.getSidunEvent(),
-                config.getReturnHomeKey(),
-                config.getReturnHomeKey(),
-                "wait_sec_5"
-            };
+            plan.add(ainKey).add(sidunEvent).add(returnHome).add(returnHome).add(WAIT_SEC_5);
         }
-        return new String[0];
+        plan.endSegment();
     }
 
     /**
      * 시던 스크립트
      * 시던 이벤트가 있으면 이벤트 버전(sidun_turnevent, sidun_mimicevent) 사용
      */
-    public String[] scriptSidun() {
-        //String sidunTurn = config.hasSidunEvent() ? "sidun_turnevent" : "sidun_turn";
-        //String sidunMimic = config.hasSidunEvent() ? "sidun_mimicevent" : "sidun_mimic";
-        String sidunTurn = "sidun_turn";
-        String sidunMimic = "sidun_mimic";
+    public void scriptSidun(PlanSink plan) {
+        plan.beginSegment();
+        //int sidunTurn = config.hasSidunEvent() ? SIDUN_TURNEVENT : SIDUN_TURN;
+        //int sidunMimic = config.hasSidunEvent() ? SIDUN_MIMICEVENT : SIDUN_MIMIC;
+        int sidunTurn = SIDUN_TURN;
+        int sidunMimic = SIDUN_MIMIC;
 
-        return new String[]{
-                sidunTurn,
-                config.getReturnHomeKey(),
-                config.getReturnHomeKey(),
-                "wait_sec_5",
+        plan.add(sidunTurn).add(returnHome).add(returnHome).add(WAIT_SEC_5);
 
-                sidunMimic,
-                config.getReturnHomeKey(),
-                config.getReturnHomeKey(),
-                "wait_sec_5"
-        };
+        plan.add(sidunMimic).add(returnHome).add(returnHome).add(WAIT_SEC_5);
+        plan.endSegment();
     }
 
     /**
      * 파던 스크립트
      */
-    public String[] scriptPadun() {
-        return new String[]{
-                "party_death",
-                config.getReturnHomeKey(),
-                config.getReturnHomeKey(),
-                "wait_sec_10",
-
-                "party_orim",
-                config.getReturnHomeKey(),
-                config.getReturnHomeKey(),
-                "wait_sec_2",
-                config.getReturnHomeKey(),
-                "wait_sec_10"
-        };
+    public void scriptPadun(PlanSink plan) {
+        plan.beginSegment();
+        scriptPadunDeath(plan);
+        scriptPadunOrim(plan);
+        plan.endSegment();
     }
 
     /**
      * 데스 파던 스크립트
      */
-    public String[] scriptPadunDeath() {
-        return new String[]{
-                "party_death",
-                config.getReturnHomeKey(),
-                config.getReturnHomeKey(),
-                "wait_sec_10",
-        };
+    public void scriptPadunDeath(PlanSink plan) {
+        plan.beginSegment();
+        plan.add(PARTY_DEATH).add(returnHome).add(returnHome).add(WAIT_SEC_10);
+        plan.endSegment();
     }
 
     /**
      * 오림 파던 스크립트
      */
-    public String[] scriptPadunOrim() {
-        return new String[]{
-                "party_orim",
-                config.getReturnHomeKey(),
-                config.getReturnHomeKey(),
-                "wait_sec_2",
-                config.getReturnHomeKey(),
-                "wait_sec_10"
-        };
+    public void scriptPadunOrim(PlanSink plan) {
+        plan.beginSegment();
+        plan.add(PARTY_ORIM).add(returnHome).add(returnHome).add(WAIT_SEC_2)
+            .add(returnHome).add(WAIT_SEC_10);
+        plan.endSegment();
     }
 
     /**
      * 제작 스크립트
      */
-    public String[] scriptMakeFavorite() {
-        return new String[]{
-                "make_favorite",
-                "wait_sec_2"
-        };
+    public void scriptMakeFavorite(PlanSink plan) {
+        plan.beginSegment();
+        plan.add(MAKE_FAVORITE).add(WAIT_SEC_2);
+        plan.endSegment();
     }
 
     /**
      * 기부 스크립트
      */
-    public String[] scriptDonate() {
-        return new String[]{
-                "donate_5_click",
-                "wait_sec_2"
-        };
+    public void scriptDonate(PlanSink plan) {
+        plan.beginSegment();
+        plan.add(DONATE_5_CLICK).add(WAIT_SEC_2);
+        plan.endSegment();
     }
 
     /**
      * 기부 스크립트 1회만
      */
-    public String[] scriptDonateOnes() {
-        return new String[]{
-                "donate_1_click",
-                "wait_sec_2"
-        };
+    public void scriptDonateOnes(PlanSink plan) {
+        plan.beginSegment();
+        plan.add(DONATE_1_CLICK).add(WAIT_SEC_2);
+        plan.endSegment();
     }
 
     /**
      * 용옥 스크립트
      */
-    public String[] scriptDragonKey() {
-        return new String[]{
-                config.getDragonKey(),
-                "wait_sec_2"
-        };
+    public void scriptDragonKey(PlanSink plan) {
+        plan.beginSegment();
+        plan.add(dragonKey).add(WAIT_SEC_2);
+        plan.endSegment();
     }
     /**
      * 고급획득변경 스크립트
      */
-    public String[] scriptPotionStorage() {
-        return new String[]{
-                "item_change_move_kenmal",
-                "wait_sec_10",
-                "potion_storage",
-                "wait_sec_5"
-        };
+    public void scriptPotionStorage(PlanSink plan) {
+        plan.beginSegment();
+        plan.add(ITEM_CHANGE_MOVE_KENMAL).add(WAIT_SEC_10)
+            .add(POTION_STORAGE).add(WAIT_SEC_5);
+        plan.endSegment();
     }
     /**
      * 고급획득변경 스크립트
      */
-    public String[] scriptItemGreen() {
-        return new String[]{
-                "get_item_green",
-                "wait_sec_2"
-        };
+    public void scriptItemGreen(PlanSink plan) {
+        plan.beginSegment();
+        plan.add(GET_ITEM_GREEN).add(WAIT_SEC_2);
+        plan.endSegment();
     }
 
     /**
      * 시던파던 스크립트
      * 시던 이벤트가 있으면 이벤트 버전(sidun_turnevent, sidun_mimicevent) 사용
      */
-    public String[] scriptSidunPadun() {
-        String sidunTurn = config.hasSidunEvent() ? "sidun_turnevent" : "sidun_turn";
-        String sidunMimic = config.hasSidunEvent() ? "sidun_mimicevent" : "sidun_mimic";
+    public void scriptSidunPadun(PlanSink plan) {
+        plan.beginSegment();
+        int sidunTurn = config.hasSidunEvent() ? SIDUN_TURNEVENT : SIDUN_TURN;
+        int sidunMimic = config.hasSidunEvent() ? SIDUN_MIMICEVENT : SIDUN_MIMIC;
 
-        return new String[]{
-            sidunTurn,
-            config.getReturnHomeKey(),
-            config.getReturnHomeKey(),
-            "wait_sec_5",
+        plan.add(sidunTurn).add(returnHome).add(returnHome).add(WAIT_SEC_5);
 
-            sidunMimic,
-            config.getReturnHomeKey(),
-            config.getReturnHomeKey(),
-            "wait_sec_5",
+        plan.add(sidunMimic).add(returnHome).add(returnHome).add(WAIT_SEC_5);
 
-            "party_death",
-            config.getReturnHomeKey(),
-            config.getReturnHomeKey(),
-            "wait_sec_10",
+        plan.add(PARTY_DEATH).add(returnHome).add(returnHome).add(WAIT_SEC_10);
 
-            "party_orim",
-            config.getReturnHomeKey(),
-            config.getReturnHomeKey(),
-            "wait_sec_10",
+        plan.add(PARTY_ORIM).add(returnHome).add(returnHome).add(WAIT_SEC_10);
 
-            "make_favorite",
-            "donate_5_click",
+        plan.add(MAKE_FAVORITE).add(DONATE_5_CLICK);
 
-            "wait_sec_2",
-            config.getDragonKey(),
-            "wait_sec_2",
-            "get_item_green",
-            "wait_sec_2"
-        };
+        plan.add(WAIT_SEC_2).add(dragonKey).add(WAIT_SEC_2)
+            .add(GET_ITEM_GREEN).add(WAIT_SEC_2);
+        plan.endSegment();
     }
 
     /**
      * 스케줄 사냥 스크립트
      */
-    public String[] scriptScheduleHunting() {
+    public void scriptScheduleHunting(PlanSink plan) {
         if (!config.hasScheduleTime()) {
-            return new String[0];
+            return;
         }
-        return new String[]{
-            "get_item_white",
-            "wait_sec_5",
-            "run_schedule",
-            "wait_sec_30",
-            "power_save_on",
-            config.getScheduleTime(),
-            "power_save_off",
-            config.getReturnHomeKey(),
-            "wait_sec_10"
-        };
+        plan.beginSegment();
+        plan.add(GET_ITEM_WHITE).add(WAIT_SEC_5)
+            .add(RUN_SCHEDULE).add(WAIT_SEC_30)
+            .add(POWER_SAVE_ON).add(scheduleTimeId()).add(POWER_SAVE_OFF)
+            .add(returnHome).add(WAIT_SEC_10);
+        plan.endSegment();
     }
 
     /**
      * 스케줄 사냥 + 아이템 변경 스크립트 (스케줄 전용)
      */
-    public String[] scriptScheduleHuntingItemChange() {
+    public void scriptScheduleHuntingItemChange(PlanSink plan) {
         if (!config.hasScheduleTime()) {
-            return new String[0];
+            return;
         }
-        return new String[]{
-                "item_change_move_kenmal",
-                "wait_sec_10",
-
-                "get_item_white",
-                "wait_sec_2",
-                "item_change_find",
-                "wait_sec_2",
-                "item_change_choose_1",
-                "wait_sec_2",
-
-                "run_schedule",
-                "wait_sec_30",
-                "power_save_on",
-                config.getScheduleTime(),
-                "power_save_off",
-                config.getReturnHomeKey(),
-
-                "wait_sec_10",
-                "item_change_move_kenmal",
-                "wait_sec_10",
-                "item_change_choose_3",
-                "wait_sec_2",
-                "item_change_save",
-                "wait_sec_2"
-
-        };
+        plan.beginSegment();
+        plan.add(ITEM_CHANGE_MOVE_KENMAL).add(WAIT_SEC_10);
+
+        plan.add(GET_ITEM_WHITE).add(WAIT_SEC_2)
+            .add(ITEM_CHANGE_FIND).add(WAIT_SEC_2)
+            .add(ITEM_CHANGE_CHOOSE_1).add(WAIT_SEC_2);
+
+        plan.add(RUN_SCHEDULE).add(WAIT_SEC_30)
+            .add(POWER_SAVE_ON).add(scheduleTimeId()).add(POWER_SAVE_OFF)
+            .add(returnHome);
+
+        plan.add(WAIT_SEC_10)
+            .add(ITEM_CHANGE_MOVE_KENMAL).add(WAIT_SEC_10)
+            .add(ITEM_CHANGE_CHOOSE_3).add(WAIT_SEC_2)
+            .add(ITEM_CHANGE_SAVE).add(WAIT_SEC_2);
+        plan.endSegment();
     }
 
     /**
      * 그룹 대기 스크립트
      */
-    public String[] scriptGroupDelay() {
-        return new String[]{
-            "run_schedule",
-            "wait_sec_30",
-            "power_save_on",
-            config.getGroup(),
-            "power_save_off",
-            config.getReturnHomeKey(),
-            "wait_sec_10"
-        };
+    public void scriptGroupDelay(PlanSink plan) {
+        plan.beginSegment();
+        plan.add(RUN_SCHEDULE).add(WAIT_SEC_30)
+            .add(POWER_SAVE_ON).add(groupId()).add(POWER_SAVE_OFF)
+            .add(returnHome).add(WAIT_SEC_10);
+        plan.endSegment();
+    }
+
+    private int groupId() {
+        if (group < 0) {
+            group = FragmentSymbols.intern(config.getGroup());
+        }
+        return group;
+    }
+
+    private int scheduleTimeId() {
+        if (scheduleTime < 0) {
+            scheduleTime = FragmentSymbols.intern(config.getScheduleTime());
+        }
+        return scheduleTime;
     }
 
     /**
      * 캐릭터 변경 스크립트
      */
-    public String[] scriptCharChange(int charNum) {
-        return new String[]{
-            "get_quest",
-            "get_mail",
-            "wait_sec_2",
-            "changeChar_" + charNum + "_integration",
-        };
+    public void scriptCharChange(PlanSink plan, int charNum) {
+        plan.beginSegment();
+        int changeChar = charNum > 0 && charNum < CHANGE_CHAR.length
+            ? CHANGE_CHAR[charNum]
+            : FragmentSymbols.intern("changeChar_" + charNum + "_integration");
+        plan.add(GET_QUEST).add(GET_MAIL).add(WAIT_SEC_2).add(changeChar);
+        plan.endSegment();
     }
 
     // 유효한 캐릭터 번호 (6, 7, 8번 파일 없음)
@@ -1040,45 +959,35 @@ public class ScriptBuilder {
     /**
      * 기란 던전 스크립트
      */
-    public String[] scriptGiran(String waitTIme) {
-        return new String[]{
-            config.getReturnHomeKey(),
-            "wait_sec_10",
-            config.getReturnKey(),
-            "wait_sec_10",
-            "dungeon_giran",
-            "power_save_on",
-                waitTIme,
-            "power_save_off",
-            config.getReturnHomeKey(),
-            "wait_sec_10"
-        };
+    public void scriptGiran(PlanSink plan, int waitTime) {
+        plan.beginSegment();
+        plan.add(returnHome).add(WAIT_SEC_10)
+            .add(returnKey).add(WAIT_SEC_10)
+            .add(DUNGEON_GIRAN)
+            .add(POWER_SAVE_ON).add(waitTime).add(POWER_SAVE_OFF)
+            .add(returnHome).add(WAIT_SEC_10);
+        plan.endSegment();
     }
 
     /**
      * 말하는 섬 스크립트
      */
-    public String[] scriptStoryIsland(String dungeonType) {
-        return new String[]{
-            "get_item_green",
-            "wait_sec_2",
-            dungeonType,
-            "power_save_on",
-            "wait_hour_1",
-            "power_save_off",
-            config.getReturnHomeKey(),
-        };
+    public void scriptStoryIsland(PlanSink plan, int dungeonType) {
+        plan.beginSegment();
+        plan.add(GET_ITEM_GREEN).add(WAIT_SEC_2)
+            .add(dungeonType)
+            .add(POWER_SAVE_ON).add(WAIT_HOUR_1).add(POWER_SAVE_OFF)
+            .add(returnHome);
+        plan.endSegment();
     }
 
     /**
      * 마무리 스크립트
      */
-    public String[] scriptFinish() {
-        return new String[]{
-            "run_schedule",
-            "wait_sec_30",
-            "power_save_on"
-       };
+    public void scriptFinish(PlanSink plan) {
+        plan.beginSegment();
+        plan.add(RUN_SCHEDULE).add(WAIT_SEC_30).add(POWER_SAVE_ON);
+        plan.endSegment();
     }
 
     // ================================
@@ -1088,71 +997,237 @@ public class ScriptBuilder {
     /**
      * 메인 캐릭터 스크립트 생성 (정적 메서드)
      */
-    public static String[] makeMainCharacter(Config config) {
-        return new ScriptBuilder(config).buildMainCharacterNew();
+    public static <S extends PlanSink> S makeMainCharacter(Config config, S plan) {
+        return new ScriptBuilder(config).buildMainCharacterNew(plan);
     }
 
     /**
      * 윤제 메인캐릭터
      */
-    public static String[] makeYoonMainCharacter(Config config) {
-        return new ScriptBuilder(config).buildYoonMainCharacter();
+    public static <S extends PlanSink> S makeYoonMainCharacter(Config config, S plan) {
+        return new ScriptBuilder(config).buildYoonMainCharacter(plan);
     }
 
     /**
      * 보조 캐릭터 스크립트 생성 (정적 메서드)
      */
-    public static String[] makeSubCharacter(Config config) {
-        return new ScriptBuilder(config).buildSubCharacterNew();
+    public static <S extends PlanSink> S makeSubCharacter(Config config, S plan) {
+        return new ScriptBuilder(config).buildSubCharacterNew(plan);
     }
 
     /**
      * 윤제 보조 캐릭터 스크립트 생성 (정적 메서드)
      */
-    public static String[] yoonmakeSubCharacter(Config config) {
-        return new ScriptBuilder(config).buildYoonSubCharacter();
+    public static <S extends PlanSink> S yoonmakeSubCharacter(Config config, S plan) {
+        return new ScriptBuilder(config).buildYoonSubCharacter(plan);
     }
 
     /**
      * 스케쥴 전용 스크립트 생성 (정적 메서드)
      */
-    public static String[] makeScheduleOnly(Config config) {
-        return new ScriptBuilder(config).buildScheduleOnly();
+    public static <S extends PlanSink> S makeScheduleOnly(Config config, S plan) {
+        return new ScriptBuilder(config).buildScheduleOnly(plan);
     }
 
     /**
      * 스케쥴 전용 스크립트 생성 (정적 메서드)
      */
-    public static String[] makeScheduleOnly_Pass(Config config) {
-        return new ScriptBuilder(config).buildScheduleOnlyPass();
+    public static <S extends PlanSink> S makeScheduleOnly_Pass(Config config, S plan) {
+        return new ScriptBuilder(config).buildScheduleOnlyPass(plan);
     }
 
 
     /**
      * 주말 전체 월드 스크립트 생성 (정적 메서드)
      */
-    public static String[] makeWeekendAll(Config config) {
-        return buildWeekendAll(config);
+    public static <S extends PlanSink> S makeWeekendAll(Config config, S plan) {
+        return buildWeekendAll(config, plan);
     }
 
     /**
      * 주말 악몽 월드 스크립트 생성 (정적 메서드)
      */
-    public static String[] makeWeekendNightMare(Config config) {
-        return new ScriptBuilder(config).buildWeekendNightMare(config);
+    public static <S extends PlanSink> S makeWeekendNightMare(Config config, S plan) {
+        return new ScriptBuilder(config).buildWeekendNightMare(config, plan);
     }
 
     /**
      * 주말 전체 월드 스크립트 생성 (정적 메서드)
      */
-    public static String[] makeOman(Config config) {
-        return new ScriptBuilder(config).buildOman();
+    public static <S extends PlanSink> S makeOman(Config config, S plan) {
+        return new ScriptBuilder(config).buildOman(plan);
     }
 
     /**
      * 주말 개별 던전 스크립트 생성 (정적 메서드)
      */
+    public static <S extends PlanSink> S makeWeekendHunt(Config config, S plan) {
+        return buildWeekendHunt(config, plan);
+    }
+
+    // ================================
+    // 조각 이름 배열 반환 (ScriptPlan 이전 API 호환)
+    // 같은 이름의 PlanSink 메서드로 ScriptPlan을 만들어 이름 배열로 바꿈 (생성기는 PlanSink 메서드를 씀)
+    // ================================
+
+    /**
+     * 메인 캐릭터 스크립트 생성 구버전 (조각 이름 배열)
+     */
+    public String[] buildMainCharacter() {
+        return buildMainCharacter(new ScriptPlan()).toNames();
+    }
+
+    /**
+     * 메인 캐릭터 스크립트 생성 (조각 이름 배열)
+     */
+    public String[] buildMainCharacterNew() {
+        return buildMainCharacterNew(new ScriptPlan()).toNames();
+    }
+
+    /**
+     * 윤제 메인 캐릭터 스크립트 생성 (조각 이름 배열)
+     */
+    public String[] buildYoonMainCharacter() {
+        return buildYoonMainCharacter(new ScriptPlan()).toNames();
+    }
+
+    /**
+     * 메인 캐릭터 순차 스크립트 생성 (조각 이름 배열)
+     */
+    public String[] buildMainCharacterSeq() {
+        return buildMainCharacterSeq(new ScriptPlan()).toNames();
+    }
+
+    /**
+     * 스케쥴 전용 스크립트 생성 (조각 이름 배열)
+     */
+    public String[] buildScheduleOnly() {
+        return buildScheduleOnly(new ScriptPlan()).toNames();
+    }
+
+    /**
+     * 스케쥴 전용 스크립트 생성 (패스) (조각 이름 배열)
+     */
+    public String[] buildScheduleOnlyPass() {
+        return buildScheduleOnlyPass(new ScriptPlan()).toNames();
+    }
+
+    /**
+     * 보조 캐릭터 스크립트 생성 구버전 (조각 이름 배열)
+     */
+    public String[] buildSubCharacter() {
+        return buildSubCharacter(new ScriptPlan()).toNames();
+    }
+
+    /**
+     * 보조 캐릭터 스크립트 생성 (조각 이름 배열)
+     */
+    public String[] buildSubCharacterNew() {
+        return buildSubCharacterNew(new ScriptPlan()).toNames();
+    }
+
+    /**
+     * 윤제 보조 캐릭터 스크립트 생성 (조각 이름 배열)
+     */
+    public String[] buildYoonSubCharacter() {
+        return buildYoonSubCharacter(new ScriptPlan()).toNames();
+    }
+
+    /**
+     * 오만 스크립트 생성 (조각 이름 배열)
+     */
+    public String[] buildOman() {
+        return buildOman(new ScriptPlan()).toNames();
+    }
+
+    /**
+     * 주말 전체 월드 던전 스크립트 생성 (조각 이름 배열)
+     */
+    public static String[] buildWeekendAll(Config config) {
+        return buildWeekendAll(config, new ScriptPlan()).toNames();
+    }
+
+    /**
+     * 개별 월드 던전 스크립트 생성 (조각 이름 배열)
+     */
+    public static String[] buildWeekendHunt(Config config) {
+        return buildWeekendHunt(config, new ScriptPlan()).toNames();
+    }
+
+    /**
+     * 주말 악몽 (조각 이름 배열)
+     */
+    public String[] buildWeekendNightMare(Config config) {
+        return buildWeekendNightMare(config, new ScriptPlan()).toNames();
+    }
+
+    /**
+     * 메인 캐릭터 스크립트 생성 (정적 메서드, 조각 이름 배열)
+     */
+    public static String[] makeMainCharacter(Config config) {
+        return makeMainCharacter(config, new ScriptPlan()).toNames();
+    }
+
+    /**
+     * 윤제 메인캐릭터 스크립트 생성 (정적 메서드, 조각 이름 배열)
+     */
+    public static String[] makeYoonMainCharacter(Config config) {
+        return makeYoonMainCharacter(config, new ScriptPlan()).toNames();
+    }
+
+    /**
+     * 보조 캐릭터 스크립트 생성 (정적 메서드, 조각 이름 배열)
+     */
+    public static String[] makeSubCharacter(Config config) {
+        return makeSubCharacter(config, new ScriptPlan()).toNames();
+    }
+
+    /**
+     * 윤제 보조 캐릭터 스크립트 생성 (정적 메서드, 조각 이름 배열)
+     */
+    public static String[] yoonmakeSubCharacter(Config config) {
+        return yoonmakeSubCharacter(config, new ScriptPlan()).toNames();
+    }
+
+    /**
+     * 스케쥴 전용 스크립트 생성 (정적 메서드, 조각 이름 배열)
+     */
+    public static String[] makeScheduleOnly(Config config) {
+        return makeScheduleOnly(config, new ScriptPlan()).toNames();
+    }
+
+    /**
+     * 스케쥴 전용 (패스) 스크립트 생성 (정적 메서드, 조각 이름 배열)
+     */
+    public static String[] makeScheduleOnly_Pass(Config config) {
+        return makeScheduleOnly_Pass(config, new ScriptPlan()).toNames();
+    }
+
+    /**
+     * 주말 전체 월드 스크립트 생성 (정적 메서드, 조각 이름 배열)
+     */
+    public static String[] makeWeekendAll(Config config) {
+        return makeWeekendAll(config, new ScriptPlan()).toNames();
+    }
+
+    /**
+     * 주말 악몽 월드 스크립트 생성 (정적 메서드, 조각 이름 배열)
+     */
+    public static String[] makeWeekendNightMare(Config config) {
+        return makeWeekendNightMare(config, new ScriptPlan()).toNames();
+    }
+
+    /**
+     * 오만 스크립트 생성 (정적 메서드, 조각 이름 배열)
+     */
+    public static String[] makeOman(Config config) {
+        return makeOman(config, new ScriptPlan()).toNames();
+    }
+
+    /**
+     * 주말 개별 던전 스크립트 생성 (정적 메서드, 조각 이름 배열)
+     */
     public static String[] makeWeekendHunt(Config config) {
-        return buildWeekendHunt(config);
+        return makeWeekendHunt(config, new ScriptPlan()).toNames();
     }
 }
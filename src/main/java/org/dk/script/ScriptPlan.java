@@ -0,0 +1,147 @@
+package org.dk.script;
+
+import java.util.Arrays;
+
+/**
+ * 스크립트 실행 계획 (조각 ID 목록)
+ * ScriptBuilder가 조각 이름 대신 FragmentSymbols의 ID를 이어 붙이고, 병합은 ID로 조각을 찾는다.
+ * script* 블록은 구간(segment)으로 표시해 두어 병합에서 미리 합쳐 둔 이벤트 묶음으로 재사용할 수 있다.
+ */
+public class ScriptPlan implements PlanSink {
+
+    private int[] ids;
+    private int size;
+
+    // segmentEnds[i] > 0이면 i에서 시작하는 구간의 끝(다음 인덱스)
+    private int[] segmentEnds;
+    private int segmentDepth;
+    private int segmentStart;
+
+    public ScriptPlan() {
+        this(64);
+    }
+
+    public ScriptPlan(int capacity) {
+        this.ids = new int[Math.max(capacity, 4)];
+    }
+
+    /**
+     * 이름 목록으로 계획 생성
+     */
+    public static ScriptPlan of(String... names) {
+        ScriptPlan plan = new ScriptPlan(names.length);
+        for (String name : names) {
+            plan.add(name);
+        }
+        return plan;
+    }
+
+    @Override
+    public ScriptPlan add(int id) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+        }
+        ids[size++] = id;
+        return this;
+    }
+
+    /**
+     * 구간 시작 (중첩되면 가장 바깥 구간만 기록)
+     */
+    @Override
+    public void beginSegment() {
+        if (segmentDepth++ == 0) {
+            segmentStart = size;
+        }
+    }
+
+    /**
+     * 구간 끝 (조각이 2개 이상일 때만 기록)
+     */
+    @Override
+    public void endSegment() {
+        if (--segmentDepth > 0 || size - segmentStart < 2) {
+            return;
+        }
+        if (segmentEnds == null || segmentEnds.length < ids.length) {
+            segmentEnds = segmentEnds == null ? new int[ids.length] : Arrays.copyOf(segmentEnds, ids.length);
+        }
+        segmentEnds[segmentStart] = size;
+    }
+
+    /**
+     * index에서 시작하는 구간의 끝 (구간이 없으면 -1)
+     */
+    public int segmentEnd(int index) {
+        if (segmentEnds == null || index >= segmentEnds.length || segmentEnds[index] == 0) {
+            return -1;
+        }
+        return segmentEnds[index];
+    }
+
+    @Override
+    public ScriptPlan add(String name) {
+        return add(FragmentSymbols.intern(name));
+    }
+
+    public ScriptPlan addAll(ScriptPlan other) {
+        if (size + other.size > ids.length) {
+            ids = Arrays.copyOf(ids, Math.max(ids.length * 2, size + other.size));
+        }
+        System.arraycopy(other.ids, 0, ids, size, other.size);
+        size += other.size;
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int id(int index) {
+        return ids[index];
+    }
+
+    public String name(int index) {
+        return FragmentSymbols.name(ids[index]);
+    }
+
+    /**
+     * ID 배열 복사본 (extra만큼 뒤에 빈 칸을 둠)
+     */
+    public int[] toIds(int extra) {
+        return Arrays.copyOf(ids, size + extra);
+    }
+
+    /**
+     * 계획을 다른 sink로 다시 보냄 (기록한 구간 포함)
+     */
+    public void writeTo(PlanSink sink) {
+        for (int i = 0; i < size; ) {
+            int end = segmentEnd(i);
+            if (end < 0) {
+                sink.add(ids[i++]);
+                continue;
+            }
+            sink.beginSegment();
+            for (; i < end; i++) {
+                sink.add(ids[i]);
+            }
+            sink.endSegment();
+        }
+    }
+
+    /**
+     * 조각 이름 배열로 변환
+     */
+    public String[] toNames() {
+        String[] names = new String[size];
+        for (int i = 0; i < size; i++) {
+            names[i] = FragmentSymbols.name(ids[i]);
+        }
+        return names;
+    }
+}
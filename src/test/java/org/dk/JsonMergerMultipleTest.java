@@ -0,0 +1,139 @@
+package org.dk;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.dk.merge.Fragment;
+import org.dk.merge.FragmentCatalog;
+import org.dk.merge.WaitFragments;
+import org.dk.script.ScriptBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 생성 전 정의 확인(validateDefinitions)이 없거나 쓸 수 없는 조각을 모두 모아서 파일을 쓰기 전에 중단하는지 확인
+ * 그룹이 쓰는 결과 매크로 이름(resultScriptNames)도 확인한다.
+ */
+class JsonMergerMultipleTest {
+
+    private static final String MACROS = "{\"sub\": [{\"name\": \"sub_1_oman\", \"type\": \"oman\", "
+        + "\"config\": {\"character\": \"1번\"}}]}";
+
+    @TempDir
+    File dir;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Set<String> fragments = new LinkedHashSet<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        JsonNode macro = mapper.readTree(MACROS).get("sub").get(0);
+        String[] plan = ScriptBuilder.makeOman(JsonMergerMultiple.buildConfig(macro.get("config"), "", ""));
+        for (String name : plan) {
+            // 대기 조각은 메모리에서 만들 수 있으므로 파일이 없어도 됨
+            if (WaitFragments.durationMs(name) < 0) {
+                fragments.add(name);
+            }
+        }
+        fragments.add("group_input");
+        for (String name : fragments) {
+            write(name, "512");
+        }
+        write("script_end", Fragment.END_MARKER_TYPE);
+    }
+
+    /**
+     * type 이벤트 하나만 있는 조각 파일
+     */
+    private void write(String name, String type) throws IOException {
+        Files.writeString(new File(dir, name + ".json").toPath(), "{\"records\": {\"r8\": {\"title\": \"" + name + "\", "
+            + "\"events\": [{\"position\": {\"x\": \"0\", \"y\": \"0\"}, \"ms\": \"100\", \"type\": \"" + type + "\", "
+            + "\"detail\": \"0\", \"data\": \"0\"}]}}}");
+    }
+
+    private void validate(String groups) throws IOException {
+        JsonMergerMultiple.validateDefinitions(FragmentCatalog.scan(dir), mapper.readTree(MACROS),
+            mapper.readTree(groups), "", "");
+    }
+
+    @Test
+    void passesWhenEveryFragmentExists() {
+        assertDoesNotThrow(() -> validate("{\"G\": {\"macroScripts\": [\"group_input\"], "
+            + "\"resultScripts\": [\"sub_1_oman\"]}}"));
+    }
+
+    @Test
+    void reportsEveryMissingInputBeforeWriting() throws IOException {
+        String removed = fragments.iterator().next();
+        assertTrue(new File(dir, removed + ".json").delete());
+        assertTrue(new File(dir, "script_end.json").delete());
+        String[] before = dir.list();
+
+        IOException e = assertThrows(IOException.class, () -> validate("{\"G\": {"
+            + "\"macroScripts\": [\"group_input\", \"group_missing\"], "
+            + "\"resultScripts\": [\"sub_1_oman\", \"sub_unbuilt\"]}}"));
+
+        String message = e.getMessage();
+        assertTrue(message.contains("(4개)"), message);
+        assertTrue(message.contains("script_end"), message);
+        assertTrue(message.contains("sub_1_oman: " + removed), message);
+        assertTrue(message.contains("그룹 G: group_missing"), message);
+        assertTrue(message.contains("그룹 G: 결과 매크로 sub_unbuilt"), message);
+        // 확인만 하고 아무 파일도 만들거나 지우지 않음
+        String[] after = dir.list();
+        Arrays.sort(before);
+        Arrays.sort(after);
+        assertArrayEquals(before, after);
+    }
+
+    @Test
+    void reportsUnusableFragmentContent() throws IOException {
+        String[] names = fragments.toArray(new String[0]);
+        // JSON이 깨진 조각, events가 빈 조각, 스크립트 종료 이벤트가 없는 script_end
+        Files.writeString(new File(dir, names[0] + ".json").toPath(), "{\"records\": {\"r8\": {\"events\": [");
+        Files.writeString(new File(dir, names[1] + ".json").toPath(), "{\"records\": {\"r8\": {\"events\": []}}}");
+        write("script_end", "512");
+        Files.writeString(new File(dir, "group_input.json").toPath(), "{\"records\": {}}");
+
+        IOException e = assertThrows(IOException.class, () -> validate("{\"G\": {\"macroScripts\": [\"group_input\"], "
+            + "\"resultScripts\": [\"sub_1_oman\"]}}"));
+
+        String message = e.getMessage();
+        assertTrue(message.contains("(4개)"), message);
+        assertTrue(message.contains(names[0] + ": 읽을 수 없음"), message);
+        assertTrue(message.contains(names[1] + ": events가 없거나 비어 있음"), message);
+        assertTrue(message.contains("group_input: events가 없거나 비어 있음"), message);
+        assertTrue(message.contains("script_end: 스크립트 종료 이벤트"), message);
+    }
+
+    @Test
+    void skipsFragmentsNoPlanUses() throws IOException {
+        Files.writeString(new File(dir, "unused.json").toPath(), "not json");
+        assertDoesNotThrow(() -> validate("{}"));
+    }
+
+    @Test
+    void collectsResultScriptsOfAllGroups() throws IOException {
+        // 그룹이 쓰는 결과 매크로만 병합한 레코드를 메모리에 둔다 (조합형 한글은 완성형으로 맞춤)
+        String decomposed = Normalizer.normalize("결과_A", Normalizer.Form.NFD);
+        JsonNode groups = mapper.readTree("{\"G1\": {\"macroScripts\": [\"group_input\"], \"resultScripts\": [\"sub_1_oman\"]}, "
+            + "\"G2\": {\"resultScripts\": [\"sub_1_oman\", \"" + decomposed + "\"]}, \"G3\": {}}");
+
+        assertEquals(Set.of("sub_1_oman", "결과_A"), JsonMergerMultiple.resultScriptNames(groups));
+        assertEquals(Set.of(), JsonMergerMultiple.resultScriptNames(null));
+    }
+}
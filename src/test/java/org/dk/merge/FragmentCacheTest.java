@@ -0,0 +1,226 @@
+package org.dk.merge;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.dk.merge.TestFragments.endMarker;
+import static org.dk.merge.TestFragments.event;
+import static org.dk.merge.TestFragments.fragment;
+import static org.dk.merge.TestFragments.write;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 조각 캐시의 파일 변경 감지와 메모리 예산에 따른 제거 확인 (싱글톤이므로 테스트마다 비움)
+ */
+class FragmentCacheTest {
+
+    @TempDir
+    File dir;
+
+    private final FragmentCache cache = FragmentCache.getInstance();
+
+    @BeforeEach
+    void setUp() {
+        cache.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.clear();
+        cache.setBudget(0, List.of());
+        cache.setLibrary(null);
+        cache.setStreamingParse(true);
+    }
+
+    private String writeFragment(String name, int events) throws IOException {
+        ObjectNode root = fragment(name);
+        ArrayNode array = (ArrayNode) root.get("records").get("r8").get("events");
+        for (int i = 0; i < events; i++) {
+            array.add(event("100", "200", 100L * (i + 1), "512", String.valueOf(i), "0"));
+        }
+        array.add(endMarker(100L * (events + 1)));
+        return write(dir, name, root).getPath();
+    }
+
+    @Test
+    void reusesFragmentUntilFileChanges() throws IOException {
+        String path = writeFragment("cache_a", 3);
+        Fragment first = cache.get(path);
+        long misses = cache.getMissCount();
+
+        assertSame(first, cache.get(path));
+        assertEquals(misses, cache.getMissCount());
+
+        // 수정 시각만 바뀌어도 다시 읽음
+        File file = new File(path);
+        assertTrue(file.setLastModified(file.lastModified() + 2000));
+        Fragment touched = cache.get(path);
+        assertNotSame(first, touched);
+        assertEquals(misses + 1, cache.getMissCount());
+
+        // 크기가 바뀌면 다시 읽고 새 내용을 봄 (수정 시각은 그대로 둠)
+        long lastModified = file.lastModified();
+        writeFragment("cache_a", 5);
+        assertTrue(file.setLastModified(lastModified));
+        Fragment resized = cache.get(path);
+        assertNotSame(touched, resized);
+        assertEquals(6, resized.getEventBuffer().size());
+    }
+
+    @Test
+    void symbolLookupUsesGivenFileState() throws IOException {
+        String path = writeFragment("cache_symbol", 2);
+        File file = new File(path);
+        Fragment first = cache.get(7, path, file.lastModified(), file.length());
+
+        assertSame(first, cache.get(7, path, file.lastModified(), file.length()));
+        assertNotSame(first, cache.get(7, path, file.lastModified() + 1, file.length()));
+    }
+
+    @Test
+    void getIfLoadedDoesNotReadFiles() throws IOException {
+        String path = writeFragment("loaded_a", 2);
+        long misses = cache.getMissCount();
+        assertNull(cache.getIfLoaded(path));
+        assertEquals(misses, cache.getMissCount());
+
+        Fragment fragment = cache.get(path);
+        assertSame(fragment, cache.getIfLoaded(path));
+
+        // 파일이 바뀌면 캐시에 있던 조각은 쓰지 않음
+        File file = new File(path);
+        assertTrue(file.setLastModified(file.lastModified() + 2000));
+        assertNull(cache.getIfLoaded(path));
+    }
+
+    @Test
+    void getIfLoadedTakesFragmentFromLibrary() throws IOException {
+        File macroDir = new File(dir, "library");
+        assertTrue(macroDir.mkdir());
+        File file = write(macroDir, "loaded_library", fragment("library", event("1", "2", 100, "512", "1", "0")));
+        File pack = new File(dir, "loaded.pack");
+        FragmentLibrary.compile(macroDir, pack);
+        cache.setLibrary(FragmentLibrary.open(pack));
+
+        Fragment fragment = cache.getIfLoaded(file.getPath());
+        assertEquals(1, fragment.getEventBuffer().size());
+        assertSame(fragment, cache.getIfLoaded(file.getPath()));
+    }
+
+    @Test
+    void prefetchSharesReadInProgress() throws IOException {
+        String path = writeFragment("prefetch_shared", 3);
+        long misses = cache.getMissCount();
+
+        CompletableFuture<Fragment> first = cache.prefetch(path);
+        CompletableFuture<Fragment> second = cache.prefetch(path);
+        assertSame(first.join(), second.join());
+        assertEquals(misses + 1, cache.getMissCount());
+        assertSame(first.join(), cache.get(path));
+    }
+
+    @Test
+    void prefetchSizesBufferFromOpenedFile() throws IOException {
+        String path = writeFragment("prefetch_grown", 4);
+        File file = new File(path);
+
+        // 목록에 적힌 크기가 실제 파일보다 작아도 파일 전체를 읽음
+        Fragment fragment = cache.prefetch(-1, path, file.lastModified(), 10).join();
+        assertEquals(5, fragment.getEventBuffer().size());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedOverBudget() throws IOException {
+        String a = writeFragment("lru_a", 4);
+        String b = writeFragment("lru_b", 4);
+        String c = writeFragment("lru_c", 4);
+        cache.get(a);
+        long weight = cache.getResidentBytes();
+        cache.clear();
+        cache.setBudget(weight * 5 / 2, List.of());
+
+        Fragment fragmentA = cache.get(a);
+        Fragment fragmentB = cache.get(b);
+        assertSame(fragmentA, cache.get(a));
+        long evictions = cache.getEvictionCount();
+
+        // 세 번째 조각을 넣으면 가장 오래 쓰지 않은 b가 빠짐
+        Fragment fragmentC = cache.get(c);
+        assertEquals(evictions + 1, cache.getEvictionCount());
+        assertEquals(2, cache.size());
+        assertTrue(cache.getResidentBytes() <= weight * 5 / 2);
+        assertSame(fragmentA, cache.get(a));
+        assertSame(fragmentC, cache.get(c));
+        assertNotSame(fragmentB, cache.get(b));
+    }
+
+    @Test
+    void symbolHitsRefreshOrderAndEvictionClearsSlot() throws IOException {
+        File a = new File(writeFragment("lru_symbol_a", 4));
+        File b = new File(writeFragment("lru_symbol_b", 4));
+        String c = writeFragment("lru_symbol_c", 4);
+        cache.get(a.getPath());
+        long weight = cache.getResidentBytes();
+        cache.clear();
+        cache.setBudget(weight * 5 / 2, List.of());
+
+        Fragment fragmentA = cache.get(11, a.getPath(), a.lastModified(), a.length());
+        Fragment fragmentB = cache.get(12, b.getPath(), b.lastModified(), b.length());
+        // ID 배열로 찾은 조각도 최근에 쓴 것으로 표시되어 b가 먼저 빠짐
+        assertSame(fragmentA, cache.get(11, a.getPath(), a.lastModified(), a.length()));
+        cache.get(c);
+        assertSame(fragmentA, cache.get(11, a.getPath(), a.lastModified(), a.length()));
+
+        long misses = cache.getMissCount();
+        assertNotSame(fragmentB, cache.get(12, b.getPath(), b.lastModified(), b.length()));
+        assertEquals(misses + 1, cache.getMissCount());
+    }
+
+    @Test
+    void keepsPinnedFragmentsOverBudget() throws IOException {
+        String pinned = writeFragment("pin_a", 4);
+        String b = writeFragment("pin_b", 4);
+        String c = writeFragment("pin_c", 4);
+        cache.get(pinned);
+        long weight = cache.getResidentBytes();
+        cache.clear();
+        cache.setBudget(weight * 3 / 2, List.of("pin_a*"));
+        long evictions = cache.getEvictionCount();
+
+        Fragment fragment = cache.get(pinned);
+        cache.get(b);
+        cache.get(c);
+        assertSame(fragment, cache.get(pinned));
+        assertEquals(evictions + 2, cache.getEvictionCount());
+    }
+
+    @Test
+    void chargesLazilyBuiltTemplateToBudget() throws IOException {
+        String path = writeFragment("grow_a", 8);
+        Fragment fragment = cache.get(path);
+        long before = cache.getResidentBytes();
+
+        fragment.getSpliceTemplate();
+        long after = cache.getResidentBytes();
+        assertTrue(after > before);
+        assertEquals(fragment.estimatedBytes(new File(path).length()), after);
+
+        // 캐시에서 빠진 조각이 커져도 합계에 더하지 않음
+        cache.clear();
+        fragment.getRoot();
+        assertEquals(0, cache.getResidentBytes());
+    }
+}
@@ -0,0 +1,82 @@
+package org.dk.merge;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.dk.script.FragmentSymbols;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.dk.merge.TestFragments.endMarker;
+import static org.dk.merge.TestFragments.event;
+import static org.dk.merge.TestFragments.fragment;
+import static org.dk.merge.TestFragments.mapper;
+import static org.dk.merge.TestFragments.write;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 조각 목록의 파일 상태와 inspect로 훑은 내용 요약 확인
+ */
+class FragmentCatalogTest {
+
+    @TempDir
+    File dir;
+
+    @Test
+    void recordsFileStateWithoutReading() throws IOException {
+        File file = write(dir, "catalog_state", fragment("state", event("1", "2", 100, "512", "1", "0")));
+        Files.writeString(new File(dir, "catalog_broken.json").toPath(), "{");
+
+        FragmentCatalog catalog = FragmentCatalog.scan(dir);
+        assertEquals(2, catalog.size());
+        FragmentCatalog.Entry entry = catalog.get(FragmentSymbols.intern("catalog_state"));
+        assertEquals(file.lastModified(), entry.getLastModified());
+        assertEquals(file.length(), entry.getSize());
+        assertFalse(entry.isInspected());
+        assertNull(catalog.get(FragmentSymbols.intern("catalog_none")));
+    }
+
+    @Test
+    void inspectSummarizesFirstRecord() throws IOException {
+        ObjectNode odd = mapper.createObjectNode();
+        odd.put("ms", "700");
+        odd.putArray("extra").add(1);
+        ObjectNode root = fragment("inspect", event("1", "2", 100, "512", "1", "0"), odd, endMarker(900));
+        // 두 번째 레코드는 보지 않음
+        ((ObjectNode) root.get("records")).set("r9", fragment("other", event("1", "2", 5000, "512", "1", "0")).get("records").get("r8"));
+        write(dir, "catalog_inspect", root);
+        write(dir, "catalog_plain", fragment("plain", event("1", "2", 300, "512", "1", "0")));
+
+        FragmentCatalog catalog = FragmentCatalog.scan(dir);
+        FragmentCatalog.Entry entry = catalog.inspect(FragmentSymbols.intern("catalog_inspect"));
+        assertTrue(entry.isInspected());
+        assertEquals(3, entry.getEventCount());
+        assertEquals(900, entry.getDurationMs());
+        assertTrue(entry.hasEndMarker());
+
+        FragmentCatalog.Entry plain = catalog.inspect(FragmentSymbols.intern("catalog_plain"));
+        assertEquals(1, plain.getEventCount());
+        assertEquals(300, plain.getDurationMs());
+        assertFalse(plain.hasEndMarker());
+
+        assertNull(catalog.inspect(FragmentSymbols.intern("catalog_none")));
+    }
+
+    @Test
+    void inspectReportsEmptyAndBrokenFragments() throws IOException {
+        write(dir, "catalog_empty", fragment("empty"));
+        Files.writeString(new File(dir, "catalog_noevents.json").toPath(), "{\"records\": {\"r8\": {\"title\": \"x\"}}}");
+        Files.writeString(new File(dir, "catalog_broken.json").toPath(), "{\"records\": {\"r8\": {\"events\": [{");
+
+        FragmentCatalog catalog = FragmentCatalog.scan(dir);
+        assertEquals(0, catalog.inspect(FragmentSymbols.intern("catalog_empty")).getEventCount());
+        assertEquals(0, catalog.inspect(FragmentSymbols.intern("catalog_noevents")).getEventCount());
+        assertThrows(IOException.class, () -> catalog.inspect(FragmentSymbols.intern("catalog_broken")));
+    }
+}
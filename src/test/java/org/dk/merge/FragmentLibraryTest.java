@@ -0,0 +1,128 @@
+package org.dk.merge;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.dk.merge.TestFragments.endMarker;
+import static org.dk.merge.TestFragments.event;
+import static org.dk.merge.TestFragments.fragment;
+import static org.dk.merge.TestFragments.mapper;
+import static org.dk.merge.TestFragments.write;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 조각 라이브러리 생성/열기 왕복과 원본 파일이 바뀐 조각의 원본 파일 사용 확인
+ */
+class FragmentLibraryTest {
+
+    @TempDir
+    File dir;
+
+    private File macroDir;
+    private File pack;
+    private ObjectNode columnar;
+    private ObjectNode irregular;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        macroDir = new File(dir, "macro");
+        assertTrue(macroDir.mkdir());
+        pack = new File(dir, "macro-library.pack");
+
+        columnar = fragment("columnar",
+            event("10", "20", 100, "512", "1", "0"),
+            event("11", "21", 250, "513", "\"따옴표\"", "데이터"),
+            endMarker(300));
+        ObjectNode odd = mapper.createObjectNode();
+        odd.put("ms", "50");
+        odd.put("type", "9");
+        odd.putArray("extra").add(1);
+        irregular = fragment("irregular", event("1", "2", 10, "512", "1", "0"), odd, endMarker(60));
+
+        write(macroDir, "a", columnar);
+        write(macroDir, "b", irregular);
+        assertEquals(2, FragmentLibrary.compile(macroDir, pack));
+    }
+
+    @AfterEach
+    void tearDown() {
+        FragmentCache.getInstance().clear();
+        FragmentCache.getInstance().setLibrary(null);
+    }
+
+    private Fragment load(FragmentLibrary library, String name) throws IOException {
+        File file = new File(macroDir, name + ".json");
+        return library.load(macroDir.getPath() + "/" + file.getName(), file.lastModified(), file.length());
+    }
+
+    private static ArrayNode events(Fragment fragment) {
+        return fragment.getEventBuffer().toArrayNode(mapper.createArrayNode());
+    }
+
+    @Test
+    void roundTripsColumnarAndIrregularFragments() throws IOException {
+        FragmentLibrary library = FragmentLibrary.open(pack);
+        assertNotNull(library);
+        assertEquals(2, library.size());
+
+        Fragment a = load(library, "a");
+        assertEquals(columnar.get("records").get("r8").get("events"), events(a));
+        // 트리는 필요할 때 라이브러리의 원본 JSON으로 만듦
+        assertEquals(columnar, a.getRoot());
+
+        Fragment b = load(library, "b");
+        assertTrue(b.getEventBuffer().hasIrregular());
+        assertEquals(irregular.get("records").get("r8").get("events"), events(b));
+        assertEquals(irregular, b.getRoot());
+    }
+
+    @Test
+    void skipsFragmentsChangedAfterCompile() throws IOException {
+        FragmentLibrary library = FragmentLibrary.open(pack);
+        File file = new File(macroDir, "a.json");
+        assertTrue(file.setLastModified(file.lastModified() + 2000));
+        assertNull(load(library, "a"));
+        assertNotNull(load(library, "b"));
+        assertNull(library.load(macroDir.getPath() + "/missing.json", 0, 0));
+    }
+
+    @Test
+    void cacheFallsBackToSourceFileWhenLibraryIsStale() throws IOException {
+        FragmentCache cache = FragmentCache.getInstance();
+        cache.clear();
+        cache.setLibrary(FragmentLibrary.open(pack));
+
+        ObjectNode changed = fragment("changed", event("5", "5", 70, "512", "1", "0"), endMarker(80));
+        write(macroDir, "a", changed);
+        File file = new File(macroDir, "a.json");
+        assertTrue(file.setLastModified(file.lastModified() + 2000));
+
+        Fragment fragment = cache.get(macroDir.getPath() + "/a.json");
+        assertEquals(changed.get("records").get("r8").get("events"), events(fragment));
+        assertEquals(changed, fragment.getRoot());
+
+        // 바뀌지 않은 조각은 라이브러리의 내용 그대로
+        assertEquals(irregular, cache.get(macroDir.getPath() + "/b.json").getRoot());
+    }
+
+    @Test
+    void ignoresFilesThatAreNotLibraries() throws IOException {
+        assertNull(FragmentLibrary.open(new File(dir, "none.pack")));
+
+        File other = new File(dir, "other.pack");
+        Files.write(other.toPath(), List.of("not a library"));
+        assertNull(FragmentLibrary.open(other));
+    }
+}
@@ -0,0 +1,68 @@
+package org.dk.merge;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.dk.merge.TestFragments.event;
+import static org.dk.merge.TestFragments.mapper;
+import static org.dk.merge.TestFragments.sampleEvents;
+import static org.dk.merge.TestFragments.write;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * 스트리밍으로 읽은 조각의 레코드를 파일을 다시 읽지 않고 원본과 같게 기록하는지 확인
+ */
+class FragmentReaderTest {
+
+    @TempDir
+    File dir;
+
+    @Test
+    void writeRecordMatchesOriginalRecord() throws IOException {
+        ObjectNode root = mapper.createObjectNode();
+        ObjectNode r8 = root.putObject("records").putObject("r8");
+        r8.put("version", "1.1");
+        // events가 레코드 중간에 있고, 숫자로 바꾸면 달라지는 ms와 숫자 ms가 섞인 이벤트
+        ObjectNode padded = event("1", "2", 0, "512", "1", "0");
+        padded.put("ms", "007");
+        ObjectNode numeric = event("3", "4", 0, "512", "1", "0");
+        numeric.put("ms", 900);
+        r8.putArray("events").addAll(sampleEvents()).add(padded).add(numeric);
+        r8.put("title", "순서");
+        ((ObjectNode) root.get("records")).putObject("r9").put("title", "다음");
+        File file = write(dir, "reader_order", root);
+
+        Fragment fragment = FragmentReader.read(file.getPath(), file);
+        file.delete();
+
+        assertEquals(mapper.writeValueAsString(r8), record(fragment));
+        assertEquals(7, fragment.getEventBuffer().getMs(5));
+    }
+
+    @Test
+    void writeRecordWithoutEvents() throws IOException {
+        ObjectNode root = mapper.createObjectNode();
+        ObjectNode r8 = root.putObject("records").putObject("r8");
+        r8.put("title", "이벤트 없음");
+        File file = write(dir, "reader_plain", root);
+
+        Fragment fragment = FragmentReader.read(file.getPath(), file);
+        assertFalse(fragment.hasEvents());
+        assertEquals(mapper.writeValueAsString(r8), record(fragment));
+    }
+
+    private static String record(Fragment fragment) throws IOException {
+        StringWriter out = new StringWriter();
+        try (JsonGenerator gen = mapper.getFactory().createGenerator(out)) {
+            fragment.writeRecord(gen);
+        }
+        return out.toString();
+    }
+}
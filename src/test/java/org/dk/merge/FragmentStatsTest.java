@@ -0,0 +1,58 @@
+package org.dk.merge;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import static org.dk.merge.TestFragments.endMarker;
+import static org.dk.merge.TestFragments.event;
+import static org.dk.merge.TestFragments.fragment;
+import static org.dk.merge.TestFragments.mapper;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 렌더링 없이 계산한 조각 요약이 렌더링 결과(SpliceTemplate)와 같은지 확인
+ */
+class FragmentStatsTest {
+
+    @Test
+    void statsMatchRenderedTemplate() {
+        ObjectNode irregular = mapper.createObjectNode();
+        irregular.put("ms", "40");
+        irregular.put("type", "9");
+        Fragment fragment = new Fragment("stats.json", fragment("stats",
+            event("10", "20", 10, "1", "65537", "0"),
+            event("0", "0", 20, "27", "\"quoted\"\\\n\u0001", "한글 🎮"),
+            irregular,
+            endMarker(50)));
+
+        FragmentStats stats = fragment.getStats();
+        SpliceTemplate template = fragment.getSpliceTemplate();
+        for (boolean lastFile : new boolean[]{false, true}) {
+            int events = 0;
+            long fixedBytes = 0;
+            int msFields = 0;
+            long advanceMs = 0;
+            for (int i = 0; i < template.size(); i++) {
+                if (!lastFile && template.isEndMarker(i)) {
+                    continue;
+                }
+                events++;
+                fixedBytes += template.fixedBytes(i);
+                msFields += template.hasMs(i) ? 1 : 0;
+                advanceMs = template.getMs(i);
+            }
+            assertEquals(events, stats.events(lastFile));
+            assertEquals(advanceMs, stats.advanceMs(lastFile));
+            assertEquals(fixedBytes + msFields * 4L, stats.bytes(lastFile, 1234));
+        }
+    }
+
+    @Test
+    void fragmentWithoutEventsAddsNothing() {
+        Fragment fragment = new Fragment("empty.json", fragment("empty"));
+        FragmentStats stats = fragment.getStats();
+        assertEquals(0, stats.events(true));
+        assertEquals(0, stats.advanceMs(true));
+        assertEquals(0, stats.bytes(true, 0));
+    }
+}
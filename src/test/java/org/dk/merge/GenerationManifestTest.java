@@ -0,0 +1,95 @@
+package org.dk.merge;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 증분 생성 매니페스트의 저장/로드와 건너뛰기 판단 확인
+ */
+class GenerationManifestTest {
+
+    @TempDir
+    File dir;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private File output(String name) throws IOException {
+        File file = new File(dir, name + ".json");
+        Files.writeString(file.toPath(), "{}");
+        return file;
+    }
+
+    @Test
+    void savesAndLoadsEntries() throws IOException {
+        GenerationManifest manifest = new GenerationManifest();
+        manifest.putMacro("1번_main", "abc", "[1번_main] 로그\n");
+        manifest.putMacro("2번_main", "def", null);
+        manifest.putGroup("A", "123");
+        File file = new File(dir, "manifest.json");
+        manifest.save(mapper, file);
+
+        GenerationManifest loaded = GenerationManifest.load(mapper, file);
+        assertEquals(Set.of("1번_main", "2번_main"), loaded.macroNames());
+        assertEquals(Set.of("A"), loaded.groupNames());
+        assertEquals("abc", loaded.getMacro("1번_main").getFingerprint());
+        assertEquals("[1번_main] 로그\n", loaded.getMacro("1번_main").getLog());
+        assertNull(loaded.getMacro("2번_main").getLog());
+        assertTrue(loaded.getGroup("A").matches("123"));
+    }
+
+    @Test
+    void skipsMacroOnlyWhenFingerprintLogAndOutputMatch() throws IOException {
+        GenerationManifest manifest = new GenerationManifest();
+        manifest.putMacro("kept", "abc", "로그\n");
+        manifest.putMacro("noLog", "abc", null);
+        File output = output("kept");
+
+        assertTrue(manifest.isMacroUpToDate("kept", "abc", output));
+        // 입력이 바뀜
+        assertFalse(manifest.isMacroUpToDate("kept", "abd", output));
+        // 로그를 다시 만들 수 없음
+        assertFalse(manifest.isMacroUpToDate("noLog", "abc", output));
+        // 지난 실행에 없던 매크로
+        assertFalse(manifest.isMacroUpToDate("added", "abc", output));
+        // 결과 파일이 지워짐
+        assertFalse(manifest.isMacroUpToDate("kept", "abc", new File(dir, "deleted.json")));
+    }
+
+    @Test
+    void skipsGroupOnlyWhenFingerprintAndOutputMatch() throws IOException {
+        GenerationManifest manifest = new GenerationManifest();
+        manifest.putGroup("A", "123");
+        File output = output("A");
+
+        assertTrue(manifest.isGroupUpToDate("A", "123", output));
+        assertFalse(manifest.isGroupUpToDate("A", "124", output));
+        assertFalse(manifest.isGroupUpToDate("B", "123", output));
+        assertFalse(manifest.isGroupUpToDate("A", "123", new File(dir, "deleted.json")));
+    }
+
+    @Test
+    void rebuildsEverythingWhenManifestUnusable() throws IOException {
+        assertTrue(GenerationManifest.load(mapper, new File(dir, "none.json")).macroNames().isEmpty());
+
+        File oldVersion = new File(dir, "old.json");
+        Files.writeString(oldVersion.toPath(), "{\"version\":\"0\",\"macros\":{\"m\":{\"fingerprint\":\"abc\",\"log\":\"x\"}}}");
+        GenerationManifest manifest = GenerationManifest.load(mapper, oldVersion);
+        assertTrue(manifest.macroNames().isEmpty());
+        assertFalse(manifest.isMacroUpToDate("m", "abc", output("m")));
+
+        File broken = new File(dir, "broken.json");
+        Files.writeString(broken.toPath(), "{\"version\":");
+        assertTrue(GenerationManifest.load(mapper, broken).macroNames().isEmpty());
+    }
+}
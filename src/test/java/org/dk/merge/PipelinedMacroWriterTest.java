@@ -0,0 +1,48 @@
+package org.dk.merge;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.dk.merge.TestFragments.mapper;
+import static org.dk.merge.TestFragments.metadata;
+import static org.dk.merge.TestFragments.sampleEvents;
+import static org.dk.merge.TestFragments.treeOutput;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * 쓰기 스레드를 거친 출력이 트리 방식과 바이트 단위로 같은지 확인
+ */
+class PipelinedMacroWriterTest {
+
+    @TempDir
+    File dir;
+
+    @Test
+    void pipelinedWriterMatchesTreeOutputForBothWriteMethods() throws IOException {
+        EventBuffer events = EventBuffer.of(sampleEvents());
+        EventBuffer merged = new EventBuffer(0);
+        File output = new File(dir, "pipelined.json");
+        try (PipelinedMacroWriter writer = new PipelinedMacroWriter(mapper, output, 2)) {
+            writer.writeHeader(metadata());
+            writer.writeSpliced(SpliceTemplate.of(events), 0, false);
+            merged.appendShifted(events, 0, false);
+            // 병합 버퍼는 쓰기 스레드와 공유하지 않으므로 넘긴 뒤 바로 다시 붙여도 된다
+            int start = merged.size();
+            merged.appendShifted(events, 1300, true);
+            writer.writeEvents(merged, start);
+            merged.appendShifted(events, 2600, true);
+            writer.finish();
+        }
+        EventBuffer expected = new EventBuffer(0);
+        expected.appendShifted(events, 0, false);
+        expected.appendShifted(events, 1300, true);
+        JsonNode metadata = metadata();
+        assertArrayEquals(treeOutput(metadata, expected.toArrayNode(mapper.createArrayNode())),
+            Files.readAllBytes(output.toPath()));
+    }
+}
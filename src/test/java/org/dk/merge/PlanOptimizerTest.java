@@ -0,0 +1,102 @@
+package org.dk.merge;
+
+import org.dk.script.FragmentSymbols;
+import org.dk.script.ScriptPlan;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.dk.merge.TestFragments.endMarker;
+import static org.dk.merge.TestFragments.event;
+import static org.dk.merge.TestFragments.fragment;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 계획 최적화의 대기 합치기, 중복 제거, 줄어든 양 확인
+ */
+class PlanOptimizerTest {
+
+    private static final String ACTION = "test_plan_action";
+    private static final String OTHER = "test_plan_other";
+
+    // 이벤트 2개 + 종료 이벤트, 중간 파일에서 2개, 1500 ms
+    private final Map<Integer, Fragment> fragments = Map.of(
+        FragmentSymbols.intern(ACTION), new Fragment(ACTION + ".json", fragment(ACTION,
+            event("10", "20", 1000, "512", "1", "0"),
+            event("10", "20", 1500, "512", "2", "0"),
+            endMarker(1600))),
+        FragmentSymbols.intern(OTHER), new Fragment(OTHER + ".json", fragment(OTHER,
+            event("30", "40", 700, "512", "1", "0"),
+            endMarker(800)))
+    );
+
+    private PlanOptimizer optimizer(boolean coalesceWaits) {
+        return new PlanOptimizer(fragments::get, coalesceWaits, List.of(ACTION));
+    }
+
+    @Test
+    void coalescesWaitsAndRemovesRepeatedIdempotentFragment() throws IOException {
+        ScriptPlan plan = ScriptPlan.of(ACTION, "wait_sec_2", "wait_sec_5", ACTION, "wait_sec_2",
+            OTHER, OTHER, "wait_sec_10");
+
+        PlanOptimizer.Result result = optimizer(true).optimize(plan);
+
+        // 대기만 사이에 둔 ACTION은 빠지고, 그 앞뒤 대기는 하나(2 + 5 + 2초)로 합쳐진다
+        assertArrayEquals(new String[]{ACTION, "wait_sec_9", OTHER, OTHER, "wait_sec_10"}, result.plan.toNames());
+        assertEquals(2, result.mergedWaits);
+        assertEquals(1, result.removedDuplicates);
+        assertEquals(WaitFragments.EVENT_COUNT * 2 + 2, result.savedEvents);
+        assertEquals(1500, result.savedMs);
+    }
+
+    @Test
+    void keepsOrderWhenNothingToOptimize() throws IOException {
+        ScriptPlan plan = ScriptPlan.of(ACTION, "wait_sec_2", OTHER, ACTION, "wait_sec_5", OTHER);
+
+        PlanOptimizer.Result result = optimizer(true).optimize(plan);
+
+        assertArrayEquals(plan.toNames(), result.plan.toNames());
+        assertEquals(0, result.mergedWaits);
+        assertEquals(0, result.removedDuplicates);
+        assertEquals(0, result.savedEvents);
+        assertEquals(0, result.savedMs);
+    }
+
+    @Test
+    void keepsWaitsWhenCoalescingDisabled() throws IOException {
+        ScriptPlan plan = ScriptPlan.of(ACTION, "wait_sec_2", "wait_sec_5", ACTION, OTHER);
+
+        PlanOptimizer.Result result = optimizer(false).optimize(plan);
+
+        assertArrayEquals(new String[]{ACTION, "wait_sec_2", "wait_sec_5", OTHER}, result.plan.toNames());
+        assertEquals(0, result.mergedWaits);
+        assertEquals(1, result.removedDuplicates);
+        assertEquals(2, result.savedEvents);
+    }
+
+    @Test
+    void coalescedWaitLastsAsLongAsItsParts() throws IOException {
+        ScriptPlan plan = ScriptPlan.of(OTHER, "wait_sec_2", "wait_sec_5", "wait_sec_10", OTHER);
+
+        PlanOptimizer.Result result = optimizer(true).optimize(plan);
+
+        String merged = result.plan.name(1);
+        assertEquals(17_000, WaitFragments.durationMs(merged));
+        Fragment wait = WaitFragments.get(merged, FragmentSymbols.path(result.plan.id(1)));
+        EventBuffer events = wait.getEventBuffer();
+        assertEquals(17_000, events.getMs(events.size() - 1));
+    }
+
+    @Test
+    void summaryAccumulatesAcrossPlans() throws IOException {
+        PlanOptimizer optimizer = optimizer(true);
+        optimizer.optimize(ScriptPlan.of(ACTION, "wait_sec_2", "wait_sec_5", ACTION));
+        optimizer.optimize(ScriptPlan.of(ACTION, "wait_sec_2", "wait_sec_5", ACTION));
+
+        assertEquals("계획 최적화: 대기 2개 합침, 중복 2개 제거, 이벤트 12개 감소, 실행 시간 3000 ms 단축",
+            optimizer.summary());
+    }
+}
@@ -0,0 +1,72 @@
+package org.dk.merge;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.dk.merge.TestFragments.mapper;
+import static org.dk.merge.TestFragments.metadata;
+import static org.dk.merge.TestFragments.sampleEvents;
+import static org.dk.merge.TestFragments.treeOutput;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 스트리밍 출력(writeEvents, writeSpliced)이 트리 방식과 바이트 단위로 같은지 확인
+ */
+class StreamingMacroWriterTest {
+
+    @TempDir
+    File dir;
+
+    @Test
+    void writeEventsMatchesTreeOutput() throws IOException {
+        ArrayNode events = sampleEvents();
+        File output = new File(dir, "events.json");
+        try (StreamingMacroWriter writer = new StreamingMacroWriter(mapper, output)) {
+            writer.writeHeader(metadata());
+            writer.writeEvents(EventBuffer.of(events), 0);
+            writer.finish();
+            assertEquals(events.size(), writer.getEventCount());
+        }
+        assertArrayEquals(treeOutput(metadata(), events), Files.readAllBytes(output.toPath()));
+    }
+
+    @Test
+    void writeSplicedMatchesTreeOutput() throws IOException {
+        ArrayNode events = sampleEvents();
+        File output = new File(dir, "spliced.json");
+        try (StreamingMacroWriter writer = new StreamingMacroWriter(mapper, output)) {
+            writer.writeHeader(metadata());
+            writer.writeSpliced(SpliceTemplate.of(EventBuffer.of(events)), 0, true);
+            writer.finish();
+        }
+        assertArrayEquals(treeOutput(metadata(), events), Files.readAllBytes(output.toPath()));
+    }
+
+    @Test
+    void splicedFragmentsMatchShiftedMerge() throws IOException {
+        EventBuffer first = EventBuffer.of(sampleEvents());
+        EventBuffer second = EventBuffer.of(sampleEvents());
+        // 중간 파일은 스크립트 종료 이벤트를 빼고, 다음 조각은 앞 조각의 마지막 ms만큼 민다
+        EventBuffer merged = new EventBuffer(0);
+        merged.appendShifted(first, 0, false);
+        long offset = merged.getMs(merged.size() - 1);
+        merged.appendShifted(second, offset, true);
+
+        File output = new File(dir, "merged.json");
+        try (StreamingMacroWriter writer = new StreamingMacroWriter(mapper, output)) {
+            writer.writeHeader(metadata());
+            writer.writeSpliced(SpliceTemplate.of(first), 0, false);
+            writer.writeSpliced(SpliceTemplate.of(second), offset, true);
+            writer.finish();
+            assertEquals(merged.size(), writer.getEventCount());
+        }
+        byte[] expected = treeOutput(metadata(), merged.toArrayNode(mapper.createArrayNode()));
+        assertArrayEquals(expected, Files.readAllBytes(output.toPath()));
+    }
+}
@@ -0,0 +1,107 @@
+package org.dk.merge;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * 테스트용 조각 JSON 생성
+ */
+final class TestFragments {
+
+    static final ObjectMapper mapper = new ObjectMapper();
+
+    private TestFragments() {
+    }
+
+    /**
+     * 녹화 파일과 같은 형식의 이벤트
+     */
+    static ObjectNode event(String x, String y, long ms, String type, String detail, String data) {
+        ObjectNode event = mapper.createObjectNode();
+        ObjectNode position = event.putObject("position");
+        position.put("x", x);
+        position.put("y", y);
+        event.put("ms", String.valueOf(ms));
+        event.put("type", type);
+        event.put("detail", detail);
+        event.put("data", data);
+        return event;
+    }
+
+    static ObjectNode endMarker(long ms) {
+        return event("0", "0", ms, Fragment.END_MARKER_TYPE, "0", "0");
+    }
+
+    /**
+     * records.r8에 메타데이터와 events를 담은 조각
+     */
+    static ObjectNode fragment(String title, JsonNode... events) {
+        ObjectNode root = mapper.createObjectNode();
+        ObjectNode r8 = root.putObject("records").putObject("r8");
+        r8.put("version", "1.1");
+        ObjectNode repeat = r8.putObject("repeat");
+        repeat.put("count", "1");
+        repeat.put("sel", "count");
+        r8.put("title", title);
+        ArrayNode array = r8.putArray("events");
+        for (JsonNode event : events) {
+            array.add(event);
+        }
+        return root;
+    }
+
+    /**
+     * 이스케이프가 필요한 문자열, 한글, 형식이 다른 이벤트, 스크립트 종료 이벤트를 섞은 이벤트 열
+     */
+    static ArrayNode sampleEvents() {
+        ArrayNode events = mapper.createArrayNode();
+        events.add(event("120", "45.5", 100, "1", "65537", "0"));
+        events.add(event("0", "0", 250, "27", "quote \" back \\ tab \t", "한글 데이터"));
+        ObjectNode irregular = mapper.createObjectNode();
+        irregular.put("type", "3");
+        irregular.put("ms", "300");
+        irregular.put("extra", 7);
+        events.add(irregular);
+        events.add(event("-1", "2", 1200, "27", "3221291009", "0"));
+        events.add(endMarker(1300));
+        return events;
+    }
+
+    static ObjectNode metadata() {
+        ObjectNode metadata = mapper.createObjectNode();
+        metadata.put("version", "1.1");
+        metadata.putObject("repeat").put("count", "1");
+        metadata.put("title", "병합 결과");
+        return metadata;
+    }
+
+    static File write(File dir, String name, JsonNode root) throws IOException {
+        File file = new File(dir, name + ".json");
+        mapper.writerWithDefaultPrettyPrinter().writeValue(file, root);
+        return file;
+    }
+
+    /**
+     * 트리 방식(writerWithDefaultPrettyPrinter)으로 쓴 결과 파일 바이트
+     */
+    static byte[] treeOutput(JsonNode metadata, ArrayNode events) throws IOException {
+        ObjectNode root = mapper.createObjectNode();
+        ObjectNode r8 = root.putObject("records").putObject("r8");
+        Iterator<Map.Entry<String, JsonNode>> fields = metadata.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (!"events".equals(field.getKey())) {
+                r8.set(field.getKey(), field.getValue());
+            }
+        }
+        r8.set("events", events);
+        return mapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(root);
+    }
+}
@@ -0,0 +1,118 @@
+package org.dk.merge;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.dk.script.FragmentSymbols;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.dk.merge.TestFragments.mapper;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 대기 조각 이름 규칙, 합친 대기 이름, 녹화 파일 우선 규칙 확인
+ */
+class WaitFragmentsTest {
+
+    @TempDir
+    File dir;
+
+    @Test
+    void durationFollowsNameGrammar() {
+        assertEquals(12_000, WaitFragments.durationMs("wait_sec_12"));
+        assertEquals(12_500, WaitFragments.durationMs("wait_sec_12.5"));
+        assertEquals(12_000, WaitFragments.durationMs("wait_sec_12.0"));
+        assertEquals(2_700_000, WaitFragments.durationMs("wait_min_45"));
+        assertEquals(5_400_000, WaitFragments.durationMs("wait_hour_1.5"));
+        // 녹화한 표준 대기는 이름이 아니라 녹화 길이 (여유 시간 포함)
+        assertEquals(620_000, WaitFragments.durationMs("wait_min_10"));
+        assertEquals(9_060_000, WaitFragments.durationMs("wait_hour_2.5"));
+        assertEquals(60_000, WaitFragments.durationMs("wait_group_A"));
+    }
+
+    @Test
+    void rejectsNamesOutsideGrammar() {
+        assertEquals(-1, WaitFragments.durationMs("wait_sec_0.5"));
+        assertEquals(-1, WaitFragments.durationMs("wait_day_1"));
+        assertEquals(-1, WaitFragments.durationMs("wait_sec_"));
+        assertEquals(-1, WaitFragments.durationMs("button_9"));
+    }
+
+    @Test
+    void nameForRoundTripsDuration() {
+        assertEquals("wait_sec_12", WaitFragments.nameFor(12_000));
+        assertEquals("wait_sec_12.5", WaitFragments.nameFor(12_500));
+        assertEquals("wait_sec_0.75", WaitFragments.nameFor(750));
+        for (long ms : new long[]{600, 750, 12_000, 12_500, 3_600_001}) {
+            assertEquals(ms, WaitFragments.durationMs(WaitFragments.nameFor(ms)));
+        }
+    }
+
+    @Test
+    void builtWaitEndsAtDuration() {
+        Fragment wait = WaitFragments.get("wait_sec_7", new File(dir, "wait_sec_7.json").getPath());
+        assertNotNull(wait);
+        EventBuffer events = wait.getEventBuffer();
+        assertEquals(WaitFragments.EVENT_COUNT, events.size());
+        assertEquals(7_000, events.getMs(events.size() - 1));
+        assertSame(wait, WaitFragments.get("wait_sec_7", new File(dir, "wait_sec_7.json").getPath()));
+    }
+
+    @Test
+    void recordedFileWinsOverNonStandardName() throws IOException {
+        File recorded = new File(dir, "wait_sec_13.json");
+        assertTrue(recorded.createNewFile());
+        assertNull(WaitFragments.get("wait_sec_13", recorded.getPath()));
+    }
+
+    @Test
+    void reRecordedStandardWaitIsReadFromFile() throws IOException {
+        File macroDir = new File(dir, "macro");
+        assertTrue(macroDir.mkdir());
+        File recorded = new File(macroDir, "wait_sec_5.json");
+        String path = recorded.getPath();
+
+        // 생성기와 같은 녹화 파일이면 메모리에서 만든 대기 사용
+        File copy = new File(FragmentSymbols.path(FragmentSymbols.intern("wait_sec_5")));
+        Files.copy(copy.toPath(), recorded.toPath());
+        assertEquals(List.of(), WaitFragments.checkRecordings(macroDir, FragmentCatalog.scan(macroDir)));
+        assertNotNull(WaitFragments.get("wait_sec_5", path));
+
+        // 다시 녹화해서 길이가 달라지면 파일에서 읽도록 null
+        ObjectNode root = (ObjectNode) mapper.readTree(recorded);
+        for (JsonNode event : root.path("records").path("r8").path("events")) {
+            ((ObjectNode) event).put("ms", String.valueOf(Long.parseLong(event.get("ms").asText()) + 30_000));
+        }
+        mapper.writeValue(recorded, root);
+        assertTrue(recorded.setLastModified(recorded.lastModified() + 2000));
+        assertEquals(List.of("wait_sec_5"), WaitFragments.checkRecordings(macroDir, FragmentCatalog.scan(macroDir)));
+        assertNull(WaitFragments.get("wait_sec_5", path));
+
+        // 파일이 없으면 다시 메모리에서 만듦
+        assertTrue(recorded.delete());
+        assertEquals(List.of(), WaitFragments.checkRecordings(macroDir, FragmentCatalog.scan(macroDir)));
+        assertNotNull(WaitFragments.get("wait_sec_5", path));
+    }
+
+    @Test
+    void syntheticNameAvoidsRecordedFiles() throws IOException {
+        assertEquals("wait_sec_14", WaitFragments.syntheticName(14_000, dir));
+
+        assertTrue(new File(dir, "wait_sec_14.json").createNewFile());
+        assertEquals("wait_sec_14.0", WaitFragments.syntheticName(14_000, dir));
+        assertTrue(new File(dir, "wait_sec_14.0.json").createNewFile());
+        String name = WaitFragments.syntheticName(14_000, dir);
+        assertEquals("wait_sec_14.00", name);
+        assertEquals(14_000, WaitFragments.durationMs(name));
+        assertNotNull(WaitFragments.get(name, new File(dir, name + ".json").getPath()));
+    }
+}
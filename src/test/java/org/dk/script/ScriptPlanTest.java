@@ -0,0 +1,174 @@
+package org.dk.script;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ScriptPlan/PlanSink로 만든 계획이 이전 API(조각 이름 배열)와 같은지 확인
+ */
+class ScriptPlanTest {
+
+    // macro-definitions.json의 정의와 같은 설정
+    private static final Config MAIN = Config.builder()
+        .character("1번").mainCharRepeat(13).scheduleTime("00h")
+        .sidunEvent("sidun_event_esem").eventDungeon("").build();
+    private static final Config SCHEDULE = Config.builder()
+        .character("1번").mainCharRepeat(13).scheduleTime("01h").scheduleOnly(true).build();
+    private static final Config SUB = Config.builder()
+        .character("1번").group("A").scheduleTime("01h").build();
+    private static final Config OMAN = Config.builder().character("1번").build();
+    private static final Config WEEKEND = Config.builder()
+        .isSubCharacter(0).waitTime("wait_hour_2").potionEvent(false).build();
+    private static final Config NIGHTMARE = Config.builder().character("1번").mainCharRepeat(5).build();
+
+    /**
+     * 받은 조각 이름과 구간 경계를 그대로 기록
+     */
+    private static class RecordingSink implements PlanSink {
+        final List<String> calls = new ArrayList<>();
+
+        @Override
+        public PlanSink add(int id) {
+            calls.add(FragmentSymbols.name(id));
+            return this;
+        }
+
+        @Override
+        public void beginSegment() {
+            calls.add("[");
+        }
+
+        @Override
+        public void endSegment() {
+            calls.add("]");
+        }
+
+        List<String> names() {
+            List<String> names = new ArrayList<>(calls);
+            names.removeIf(call -> call.equals("[") || call.equals("]"));
+            return names;
+        }
+    }
+
+    private static void assertSamePlan(Config config,
+                                       BiFunction<Config, ScriptPlan, ScriptPlan> planned,
+                                       BiFunction<Config, RecordingSink, RecordingSink> recorded,
+                                       Function<Config, String[]> names) {
+        ScriptPlan plan = planned.apply(config, new ScriptPlan());
+        assertTrue(plan.size() > 0);
+        assertArrayEquals(plan.toNames(), names.apply(config));
+        assertEquals(List.of(plan.toNames()), recorded.apply(config, new RecordingSink()).names());
+    }
+
+    @Test
+    void staticBuildersMatchNameArrays() {
+        assertSamePlan(MAIN, ScriptBuilder::makeMainCharacter, ScriptBuilder::makeMainCharacter,
+            ScriptBuilder::makeMainCharacter);
+        assertSamePlan(MAIN, ScriptBuilder::makeYoonMainCharacter, ScriptBuilder::makeYoonMainCharacter,
+            ScriptBuilder::makeYoonMainCharacter);
+        assertSamePlan(SUB, ScriptBuilder::makeSubCharacter, ScriptBuilder::makeSubCharacter,
+            ScriptBuilder::makeSubCharacter);
+        assertSamePlan(SUB, ScriptBuilder::yoonmakeSubCharacter, ScriptBuilder::yoonmakeSubCharacter,
+            ScriptBuilder::yoonmakeSubCharacter);
+        assertSamePlan(SCHEDULE, ScriptBuilder::makeScheduleOnly, ScriptBuilder::makeScheduleOnly,
+            ScriptBuilder::makeScheduleOnly);
+        assertSamePlan(SCHEDULE, ScriptBuilder::makeScheduleOnly_Pass, ScriptBuilder::makeScheduleOnly_Pass,
+            ScriptBuilder::makeScheduleOnly_Pass);
+        assertSamePlan(WEEKEND, ScriptBuilder::makeWeekendAll, ScriptBuilder::makeWeekendAll,
+            ScriptBuilder::makeWeekendAll);
+        assertSamePlan(NIGHTMARE, ScriptBuilder::makeWeekendNightMare, ScriptBuilder::makeWeekendNightMare,
+            ScriptBuilder::makeWeekendNightMare);
+        assertSamePlan(OMAN, ScriptBuilder::makeOman, ScriptBuilder::makeOman, ScriptBuilder::makeOman);
+        assertSamePlan(WEEKEND, ScriptBuilder::makeWeekendHunt, ScriptBuilder::makeWeekendHunt,
+            ScriptBuilder::makeWeekendHunt);
+    }
+
+    @Test
+    void instanceBuildersMatchNameArrays() {
+        ScriptBuilder main = new ScriptBuilder(MAIN);
+        assertArrayEquals(main.buildMainCharacter(new ScriptPlan()).toNames(), main.buildMainCharacter());
+        assertArrayEquals(main.buildMainCharacterNew(new ScriptPlan()).toNames(), main.buildMainCharacterNew());
+        assertArrayEquals(main.buildMainCharacterSeq(new ScriptPlan()).toNames(), main.buildMainCharacterSeq());
+        assertArrayEquals(main.buildYoonMainCharacter(new ScriptPlan()).toNames(), main.buildYoonMainCharacter());
+
+        ScriptBuilder schedule = new ScriptBuilder(SCHEDULE);
+        assertArrayEquals(schedule.buildScheduleOnly(new ScriptPlan()).toNames(), schedule.buildScheduleOnly());
+        assertArrayEquals(schedule.buildScheduleOnlyPass(new ScriptPlan()).toNames(), schedule.buildScheduleOnlyPass());
+
+        ScriptBuilder sub = new ScriptBuilder(SUB);
+        assertArrayEquals(sub.buildSubCharacter(new ScriptPlan()).toNames(), sub.buildSubCharacter());
+        assertArrayEquals(sub.buildSubCharacterNew(new ScriptPlan()).toNames(), sub.buildSubCharacterNew());
+        assertArrayEquals(sub.buildYoonSubCharacter(new ScriptPlan()).toNames(), sub.buildYoonSubCharacter());
+
+        ScriptBuilder oman = new ScriptBuilder(OMAN);
+        assertArrayEquals(oman.buildOman(new ScriptPlan()).toNames(), oman.buildOman());
+
+        ScriptBuilder nightmare = new ScriptBuilder(NIGHTMARE);
+        assertArrayEquals(nightmare.buildWeekendNightMare(NIGHTMARE, new ScriptPlan()).toNames(),
+            nightmare.buildWeekendNightMare(NIGHTMARE));
+        assertArrayEquals(ScriptBuilder.buildWeekendAll(WEEKEND, new ScriptPlan()).toNames(),
+            ScriptBuilder.buildWeekendAll(WEEKEND));
+        assertArrayEquals(ScriptBuilder.buildWeekendHunt(WEEKEND, new ScriptPlan()).toNames(),
+            ScriptBuilder.buildWeekendHunt(WEEKEND));
+    }
+
+    @Test
+    void writeToReplaysIdsAndSegments() {
+        ScriptPlan plan = ScriptBuilder.makeMainCharacter(MAIN, new ScriptPlan());
+        ScriptPlan copy = new ScriptPlan();
+        plan.writeTo(copy);
+
+        assertArrayEquals(plan.toIds(0), copy.toIds(0));
+        boolean segments = false;
+        for (int i = 0; i < plan.size(); i++) {
+            assertEquals(plan.segmentEnd(i), copy.segmentEnd(i));
+            segments |= plan.segmentEnd(i) >= 0;
+        }
+        assertTrue(segments);
+    }
+
+    @Test
+    void recordsOnlyOutermostSegmentsWithSeveralFragments() {
+        ScriptPlan plan = new ScriptPlan(2);
+        plan.add("test_plan_a");
+        plan.beginSegment();
+        plan.add("test_plan_b");
+        plan.beginSegment();
+        plan.add("test_plan_c");
+        plan.endSegment();
+        plan.add("test_plan_d");
+        plan.endSegment();
+        plan.beginSegment();
+        plan.add("test_plan_e");
+        plan.endSegment();
+
+        assertArrayEquals(new String[]{"test_plan_a", "test_plan_b", "test_plan_c", "test_plan_d", "test_plan_e"},
+            plan.toNames());
+        assertEquals(-1, plan.segmentEnd(0));
+        assertEquals(4, plan.segmentEnd(1));
+        assertEquals(-1, plan.segmentEnd(2));
+        // 조각이 하나뿐인 구간은 기록하지 않음
+        assertEquals(-1, plan.segmentEnd(4));
+
+        RecordingSink sink = new RecordingSink();
+        plan.writeTo(sink);
+        assertEquals(List.of("test_plan_a", "[", "test_plan_b", "test_plan_c", "test_plan_d", "]", "test_plan_e"),
+            sink.calls);
+    }
+
+    @Test
+    void addAllAppendsInOrder() {
+        ScriptPlan plan = ScriptPlan.of("test_plan_a", "test_plan_b");
+        plan.addAll(ScriptPlan.of("test_plan_c", "test_plan_a"));
+        assertArrayEquals(new String[]{"test_plan_a", "test_plan_b", "test_plan_c", "test_plan_a"}, plan.toNames());
+        assertEquals(plan.id(0), plan.id(3));
+    }
+}